@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.benchmark;
+
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+
+/**
+ * The agent under benchmark, a plain {@link ConversableAgent} that exposes its client.
+ *
+ * @author HamaWhite
+ */
+public class BenchmarkAgent extends ConversableAgent {
+
+    private BenchmarkAgent(Builder builder) {
+        super(builder);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the client of the agent, creating it on first use.
+     *
+     * @return the client for interacting with the OpenAI API.
+     */
+    public OpenAiClient openAiClient() {
+        return client();
+    }
+
+    /**
+     * Create a client whose requests never leave the JVM, it answers every chat completion with the same reply, so the
+     * benchmarks measure the request and response handling without the latency of the network and the llm.
+     *
+     * @param reply the content of the reply.
+     * @return a new client.
+     */
+    public static OpenAiClient fakeClient(String reply) {
+        String body = """
+                {"id":"chatcmpl-bench","object":"chat.completion","model":"gpt-4","choices":[{"index":0,
+                "message":{"role":"assistant","content":"%s"},"finish_reason":"stop"}],
+                "usage":{"prompt_tokens":120,"completion_tokens":20,"total_tokens":140}}
+                """.formatted(reply);
+        return OpenAiClient.builder()
+                .openaiApiKey("sk-bench")
+                .interceptorList(List.of(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(MediaType.get("application/json"), body))
+                        .build()))
+                .build()
+                .init();
+    }
+
+    /**
+     * Create a conversation history alternating user and assistant messages.
+     *
+     * @param size the number of messages.
+     * @return a list of messages.
+     */
+    public static List<ChatMessage> history(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> new ChatMessage(i % 2 == 0 ? USER : ASSISTANT,
+                        "Message %d, plot a chart of NVDA and TESLA stock price change YTD and save it.".formatted(i)))
+                .toList();
+    }
+
+    public static class Builder extends ConversableAgent.Builder<Builder> {
+
+        private Builder() {
+            super();
+        }
+
+        @Override
+        public BenchmarkAgent build() {
+            return new BenchmarkAgent(this);
+        }
+    }
+}
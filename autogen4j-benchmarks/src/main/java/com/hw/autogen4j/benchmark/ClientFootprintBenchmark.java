@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The idle footprint of agents that have created their client, with and without the shared client pool.
+ * <p>
+ * Besides the time to create the agents, the {@code retainedBytesPerAgent} counter reports the heap still used by
+ * each idle agent after a full garbage collection. With the shared pool, agents with the same settings share a client
+ * created once for the whole run, so the counter is the marginal footprint of one more agent.
+ *
+ * @author HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ClientFootprintBenchmark {
+
+    @Param({"true", "false"})
+    private boolean sharedClient;
+
+    @Param({"100"})
+    private int agentCount;
+
+    private List<BenchmarkAgent> agents;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long retainedBytesPerAgent;
+    }
+
+    @Benchmark
+    public List<BenchmarkAgent> idleAgents(Footprint footprint) {
+        long before = usedHeap();
+        agents = new ArrayList<>(agentCount);
+        for (int i = 0; i < agentCount; i++) {
+            BenchmarkAgent agent = BenchmarkAgent.builder()
+                    .name("agent_" + i)
+                    .openaiApiKey("sk-bench")
+                    .sharedClient(sharedClient)
+                    .build();
+            agent.openAiClient();
+            agents.add(agent);
+        }
+        footprint.retainedBytesPerAgent = (usedHeap() - before) / agentCount;
+        return agents;
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        if (!sharedClient) {
+            agents.forEach(agent -> agent.openAiClient().close());
+        }
+        agents = null;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.benchmark;
+
+import com.hw.autogen4j.entity.CodeBlock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.hw.autogen4j.util.CodeUtil.extractCode;
+
+/**
+ * Extracting the code blocks of a message, which is done for every message an agent with code execution receives.
+ * The regex extraction that the scanner replaced is kept as the baseline.
+ *
+ * @author HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeUtilBenchmark {
+
+    private static final Pattern CODE_BLOCK_PATTERN =
+            Pattern.compile("```[ \\t]*(\\w+)?[ \\t]*\\r?\\n(.*?)\\r?\\n[ \\t]*```", Pattern.DOTALL);
+
+    /**
+     * the shape of the message: a usual reply with one code block, a long reply with many code blocks, or a reply
+     * with many fences that are never closed.
+     */
+    @Param({"reply", "many_blocks", "unclosed_fences"})
+    private String shape;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        String block = """
+                ```python
+                # filename: plot.py
+                import yfinance as yf
+                data = yf.download(["NVDA", "TSLA"], start="2024-01-01")
+                data["Close"].pct_change().cumsum().plot().figure.savefig("chart.png")
+                ```
+                """;
+        String prose = "Let me plot the YTD price change of both stocks, then save the chart to a file.\n";
+        text = switch (shape) {
+            case "reply" -> prose + block + "Execute the code above and tell me the result.\n";
+            case "many_blocks" -> (prose + block).repeat(50);
+            case "unclosed_fences" -> "x```python\n".repeat(1_000);
+            default -> throw new IllegalArgumentException("Unknown shape " + shape);
+        };
+    }
+
+    @Benchmark
+    public List<CodeBlock> scanner() {
+        return extractCode(text);
+    }
+
+    @Benchmark
+    public List<CodeBlock> regex() {
+        List<CodeBlock> extracted = new ArrayList<>();
+        Matcher matcher = CODE_BLOCK_PATTERN.matcher(text);
+        while (matcher.find()) {
+            extracted.add(new CodeBlock(matcher.group(1), matcher.group(2)));
+        }
+        return extracted;
+    }
+}
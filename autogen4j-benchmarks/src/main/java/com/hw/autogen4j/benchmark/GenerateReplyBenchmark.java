@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.benchmark;
+
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.hw.autogen4j.entity.HumanInputMode.NEVER;
+
+/**
+ * Generating a reply through the whole list of reply functions, from the termination check to the llm reply, with a
+ * fake client answering in the JVM. What is left is the overhead of the framework around each llm call: the reply
+ * functions, building the request, and serializing and parsing the JSON payloads.
+ *
+ * @author HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerateReplyBenchmark {
+
+    @Param({"10", "100"})
+    private int historySize;
+
+    private OpenAiClient client;
+
+    private ConversableAgent assistant;
+
+    private ConversableAgent userProxy;
+
+    private List<ChatMessage> messages;
+
+    @Setup
+    public void setUp() {
+        client = BenchmarkAgent.fakeClient("The chart is saved to chart.png. TERMINATE");
+        assistant = BenchmarkAgent.builder()
+                .name("assistant")
+                .humanInputMode(NEVER)
+                // never stop replying, whatever the number of invocations.
+                .maxConsecutiveAutoReply(Integer.MAX_VALUE)
+                .client(client)
+                .build();
+        userProxy = BenchmarkAgent.builder()
+                .name("user_proxy")
+                .build();
+        messages = BenchmarkAgent.history(historySize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public ChatMessage generateReply() {
+        return assistant.generateReply(userProxy, messages);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.benchmark;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.group.GroupChat;
+import com.hw.autogen4j.agent.group.selector.SpeakerSelector;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+
+/**
+ * Selecting the next speaker of a group chat with selectors that do not call the llm, and counting the agents
+ * mentioned in a message. The regex counting that the {@code MentionMatcher} replaced is kept as the baseline.
+ *
+ * @author HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupChatBenchmark {
+
+    @Param({"4", "32"})
+    private int agentCount;
+
+    private List<Agent> agents;
+
+    private List<String> names;
+
+    private String content;
+
+    private GroupChat roundRobinChat;
+
+    private GroupChat mentionChat;
+
+    @Setup
+    public void setUp() {
+        agents = IntStream.range(0, agentCount)
+                .mapToObj(i -> (Agent) BenchmarkAgent.builder().name("agent_" + i).build())
+                .toList();
+        names = agents.stream().map(Agent::getName).toList();
+        content = """
+                Thanks agent_1, the chart looks right. I think the data needs another pass before we publish it,
+                @agent_%d please check the missing days, and then hand it over to the reviewer for a final look.
+                """.formatted(agentCount - 1);
+
+        roundRobinChat = GroupChat.builder()
+                .agents(agents)
+                .speakerSelector(SpeakerSelector.roundRobin())
+                .build();
+        mentionChat = GroupChat.builder()
+                .agents(agents)
+                .speakerSelector(SpeakerSelector.mention().orElse(SpeakerSelector.roundRobin()))
+                .build();
+        mentionChat.append(new ChatMessage(USER, content));
+    }
+
+    @Benchmark
+    public Map<String, Integer> mentionedNames() {
+        return mentionChat.mentionedNames(content, names);
+    }
+
+    @Benchmark
+    public Map<String, Integer> mentionedNamesRegex() {
+        Map<String, Integer> mentions = new HashMap<>();
+        for (String name : names) {
+            Pattern pattern = Pattern.compile("(?<=\\W)" + Pattern.quote(name) + "(?=\\W)");
+            Matcher matcher = pattern.matcher(" " + content + " ");
+            int count = 0;
+            while (matcher.find()) {
+                count++;
+            }
+            if (count > 0) {
+                mentions.put(name, count);
+            }
+        }
+        return mentions;
+    }
+
+    @Benchmark
+    public Agent selectSpeakerRoundRobin() {
+        return roundRobinChat.selectSpeaker(agents.get(0), null);
+    }
+
+    @Benchmark
+    public Agent selectSpeakerMention() {
+        return mentionChat.selectSpeaker(agents.get(0), null);
+    }
+}
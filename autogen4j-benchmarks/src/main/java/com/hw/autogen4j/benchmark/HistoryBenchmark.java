@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.benchmark;
+
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.session.ChatSession;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending to and copying the chat history of an agent. Each {@code append} invocation builds the whole history of
+ * a conversation in a new session, so the time is for {@code historySize} messages.
+ *
+ * @author HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int historySize;
+
+    private ConversableAgent assistant;
+
+    private ConversableAgent userProxy;
+
+    private List<ChatMessage> messages;
+
+    private ChatSession session;
+
+    @Setup
+    public void setUp() {
+        assistant = BenchmarkAgent.builder().name("assistant").build();
+        userProxy = BenchmarkAgent.builder().name("user_proxy").build();
+        messages = BenchmarkAgent.history(historySize);
+
+        session = new ChatSession();
+        session.run(this::receiveAll);
+    }
+
+    private void receiveAll() {
+        for (ChatMessage message : messages) {
+            assistant.receive(userProxy, message, false, true);
+        }
+    }
+
+    @Benchmark
+    public ChatSession append() {
+        ChatSession conversation = new ChatSession();
+        conversation.run(this::receiveAll);
+        return conversation;
+    }
+
+    @Benchmark
+    public List<ChatMessage> copy() {
+        return session.call(() -> new ArrayList<>(assistant.chatMessages(userProxy)));
+    }
+
+    @Benchmark
+    public List<ChatMessage> deepCopy() {
+        return session.call(() -> assistant.chatMessages(userProxy).stream().map(ChatMessage::new).toList());
+    }
+}
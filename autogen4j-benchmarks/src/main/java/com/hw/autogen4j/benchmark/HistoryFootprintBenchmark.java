@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.benchmark;
+
+import com.hw.autogen4j.session.CompactHistory;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+
+/**
+ * The heap retained by a chat history, keeping the messages in a list as agents do by default, or keeping
+ * them in a {@link CompactHistory}.
+ * <p>
+ * Besides the time to create and fill the history, the {@code retainedBytesPerMessage} counter reports the heap still used by
+ * each message after a full garbage collection. The {@code chat} shape is short replies with a curly quote, the
+ * {@code tool_output} shape alternates code with long execution outputs.
+ *
+ * @author HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HistoryFootprintBenchmark {
+
+    @Param({"list", "compact"})
+    private String store;
+
+    @Param({"chat", "tool_output"})
+    private String shape;
+
+    @Param({"1000"})
+    private int historySize;
+
+    private List<ChatMessage> history;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long retainedBytesPerMessage;
+    }
+
+    /**
+     * Creates the message, with its own content string, so the history is the only one retaining it.
+     */
+    private ChatMessage message(int i) {
+        return i % 2 == 0
+                ? new ChatMessage(USER, userContent(i), "user_proxy")
+                : new ChatMessage(ASSISTANT, "Here’s the next step %d, run the code below.".formatted(i), "assistant");
+    }
+
+    private String userContent(int i) {
+        if ("chat".equals(shape)) {
+            return "Message %d, that’s fine, please plot a chart of NVDA and TESLA stock price change YTD."
+                    .formatted(i);
+        }
+        StringBuilder output = new StringBuilder("exitcode: 0 (execution succeeded)\nCode output:\n");
+        for (int line = 0; line < 100; line++) {
+            output.append("2024-01-%02d NVDA close %d.%02d, TSLA close %d.%02d\n".formatted(line % 28 + 1,
+                    400 + (i + line) % 97, line % 100, 200 + (i * line) % 89, (i + line) % 100));
+        }
+        return output.toString();
+    }
+
+    @Benchmark
+    public List<ChatMessage> fill(Footprint footprint) {
+        long before = usedHeap();
+        history = "compact".equals(store) ? new CompactHistory() : new ArrayList<>();
+        for (int i = 0; i < historySize; i++) {
+            history.add(message(i));
+        }
+        footprint.retainedBytesPerMessage = (usedHeap() - before) / historySize;
+        return history;
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        history = null;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
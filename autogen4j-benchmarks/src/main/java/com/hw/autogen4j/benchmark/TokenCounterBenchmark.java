@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.benchmark;
+
+import com.hw.autogen4j.context.BpeTokenCounter;
+import com.hw.autogen4j.context.TokenCounter;
+import com.hw.autogen4j.tokenizer.BpeTokenizer;
+import com.hw.autogen4j.tokenizer.Encoding;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting the tokens of a chat history, as done before each llm call. The {@code cached} benchmark is the steady
+ * state of a conversation, where all messages but the newest have been counted on a previous turn, {@code encode}
+ * is the cost without the cache and {@code estimate} is the four characters per token baseline.
+ *
+ * @author HamaWhite
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenCounterBenchmark {
+
+    @Param({"CL100K_BASE", "O200K_BASE"})
+    private Encoding encoding;
+
+    @Param({"100"})
+    private int historySize;
+
+    private List<ChatMessage> messages;
+
+    private TokenCounter counter;
+
+    private BpeTokenizer tokenizer;
+
+    private final TokenCounter estimate = TokenCounter.estimate();
+
+    @Setup
+    public void setUp() {
+        messages = BenchmarkAgent.history(historySize);
+        counter = BpeTokenCounter.of(encoding);
+        tokenizer = BpeTokenizer.of(encoding);
+        messages.forEach(counter::count);
+    }
+
+    @Benchmark
+    public int cached() {
+        return count(counter);
+    }
+
+    @Benchmark
+    public int encode() {
+        int tokens = 0;
+        for (ChatMessage message : messages) {
+            tokens += tokenizer.countTokens(message.getContent());
+        }
+        return tokens;
+    }
+
+    @Benchmark
+    public int estimate() {
+        return count(estimate);
+    }
+
+    private int count(TokenCounter tokenCounter) {
+        int tokens = 0;
+        for (ChatMessage message : messages) {
+            tokens += tokenCounter.count(message);
+        }
+        return tokens;
+    }
+}
@@ -23,6 +23,7 @@ import com.hw.openai.entity.chat.ChatMessage;
 import lombok.Getter;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * An agent can communicate with other agents and perform actions.
@@ -74,6 +75,55 @@ public abstract class Agent {
      */
     public abstract void receive(Agent sender, ChatMessage message, boolean requestReply, boolean silent);
 
+    /**
+     * Send a string message to another agent asynchronously.
+     *
+     * @param recipient the recipient of the message.
+     * @param message   string message to be sent.
+     * @return a future completed with the reply of the recipient.
+     */
+    public CompletableFuture<ChatMessage> sendAsync(Agent recipient, String message) {
+        return sendAsync(recipient, new ChatMessage(message), true, false);
+    }
+
+    /**
+     * Send a message to another agent asynchronously. The message is delivered to the mailbox of the recipient, and
+     * the caller does not wait for the conversation that follows.
+     *
+     * @param recipient    the recipient of the message.
+     * @param message      message to be sent.
+     * @param requestReply whether to request a reply from the recipient.
+     * @param silent       whether to print the message sent.
+     * @return a future completed with the reply of the recipient, or null if there is no reply.
+     */
+    public CompletableFuture<ChatMessage> sendAsync(Agent recipient, ChatMessage message, boolean requestReply,
+            boolean silent) {
+        // by default the message is sent synchronously in the background, and the reply is not known.
+        return CompletableFuture.supplyAsync(() -> {
+            send(recipient, message, requestReply, silent);
+            return null;
+        });
+    }
+
+    /**
+     * Receive a message from another agent asynchronously. The message is processed by the mailbox of this agent, and
+     * the reply, if any, is sent back to the sender asynchronously.
+     *
+     * @param sender       sender of an Agent instance.
+     * @param message      message from the sender.
+     * @param requestReply whether a reply is requested from the sender.
+     * @param silent       whether to print the message received.
+     * @return a future completed with the reply to the message, or null if there is no reply.
+     */
+    public CompletableFuture<ChatMessage> receiveAsync(Agent sender, ChatMessage message, boolean requestReply,
+            boolean silent) {
+        // by default the message is received synchronously in the background, and the reply is not known.
+        return CompletableFuture.supplyAsync(() -> {
+            receive(sender, message, requestReply, silent);
+            return null;
+        });
+    }
+
     /**
      * Generate a reply based on the received messages.
      *
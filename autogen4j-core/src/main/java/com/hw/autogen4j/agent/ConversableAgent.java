@@ -18,9 +18,26 @@
 
 package com.hw.autogen4j.agent;
 
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
+import com.hw.autogen4j.cache.ResponseCache;
+import com.hw.autogen4j.client.ClientKey;
+import com.hw.autogen4j.client.OpenAiClientPool;
+import com.hw.autogen4j.context.ContextPolicy;
+import com.hw.autogen4j.context.TokenCounter;
 import com.hw.autogen4j.entity.*;
 import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.autogen4j.executor.CodeBlockScheduler;
+import com.hw.autogen4j.jfr.CodeExecutionEvent;
+import com.hw.autogen4j.jfr.LlmCallEvent;
+import com.hw.autogen4j.journal.ConversationJournal;
+import com.hw.autogen4j.metrics.InMemoryMetricsRegistry;
+import com.hw.autogen4j.metrics.MetricsRecorder;
+import com.hw.autogen4j.session.AgentState;
+import com.hw.autogen4j.session.ChatSession;
+import com.hw.autogen4j.session.CompactHistory;
+import com.hw.autogen4j.stream.ChatMessageAssembler;
+import com.hw.autogen4j.stream.StreamListener;
 import com.hw.openai.OpenAiClient;
 import com.hw.openai.entity.chat.*;
 
@@ -31,11 +48,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static com.hw.autogen4j.entity.HumanInputMode.*;
+import static com.hw.autogen4j.metrics.AgentMetrics.*;
 import static com.hw.autogen4j.util.CodeUtil.executeCode;
 import static com.hw.autogen4j.util.CodeUtil.extractCode;
 import static com.hw.openai.entity.chat.ChatMessageRole.*;
@@ -81,9 +103,9 @@ public class ConversableAgent extends Agent {
     protected CodeExecutionConfig codeExecutionConfig;
 
     /**
-     * a client for interacting with the OpenAI API.
+     * a client for interacting with the OpenAI API, created on first use.
      */
-    protected OpenAiClient client;
+    private final Supplier<OpenAiClient> client;
 
     /**
      * Chat conversation.
@@ -95,11 +117,64 @@ public class ConversableAgent extends Agent {
      */
     protected String defaultAutoReply;
 
-    private final Map<Agent, Integer> consecutiveAutoReplyCounter = new HashMap<>();
-    private final List<ChatMessage> oaiSystemMessage;
-    private final Map<Agent, List<ChatMessage>> oaiMessages = new HashMap<>();
+    /**
+     * cache of the llm responses, if null, every reply is generated by the llm.
+     */
+    protected ResponseCache responseCache;
+
+    /**
+     * decides which part of the chat history is sent to the llm with each request.
+     */
+    protected ContextPolicy contextPolicy;
+
+    /**
+     * receives the llm reply incrementally, if not null, the replies are streamed.
+     */
+    protected StreamListener streamListener;
+
+    /**
+     * stops streaming the llm reply once the content assembled so far matches.
+     */
+    protected Predicate<CharSequence> streamStopCondition;
+
+    /**
+     * records the latency of the reply functions, the llm calls and the code executions of the agent.
+     */
+    protected MetricsRecorder metricsRecorder;
+
+    /**
+     * the maximum number of tokens of a conversation with a peer agent, the conversation ends once it is reached.
+     */
+    protected TokenBudget tokenBudget;
 
-    private final List<BiFunction<Agent, List<ChatMessage>, ReplyResult>> replyFuncList;
+    /**
+     * the journal the chat histories are appended to, null if the histories are not journaled.
+     */
+    protected ConversationJournal journal;
+
+    /**
+     * whether the histories with the peer agents keep their messages in a {@link CompactHistory}.
+     */
+    protected boolean compactHistory;
+
+    /**
+     * the tokens used by the agent in all its conversations.
+     */
+    private final LongAdder promptTokens = new LongAdder();
+
+    private final LongAdder completionTokens = new LongAdder();
+
+    /**
+     * the state used when the agent chats outside a {@link ChatSession}.
+     */
+    private final AgentState defaultState;
+
+    private final List<NamedReplyFunc> replyFuncList;
+
+    /**
+     * the mailbox processing the messages in asynchronous mode.
+     */
+    private final Mailbox mailbox;
 
     protected ConversableAgent(Builder<?> builder) {
         this.name = builder.name;
@@ -109,17 +184,45 @@ public class ConversableAgent extends Agent {
         this.humanInputMode = builder.humanInputMode;
         this.functionMap = builder.functionMap;
         this.codeExecutionConfig = builder.codeExecutionConfig;
-        this.client = builder.client;
+        this.client = clientSupplier(builder.client, builder.sharedClient,
+                new ClientKey(builder.openaiApiBase, builder.openaiApiKey, builder.openaiProxy,
+                        builder.requestTimeout));
         this.chatCompletion = builder.chatCompletion;
         this.defaultAutoReply = builder.defaultAutoReply;
-
-        this.oaiSystemMessage = List.of(new ChatMessage(SYSTEM, systemMessage));
+        this.responseCache = builder.responseCache;
+        this.contextPolicy = builder.contextPolicy;
+        this.streamListener = builder.streamListener;
+        this.streamStopCondition = builder.streamStopCondition;
+        this.metricsRecorder = builder.metricsRecorder;
+        this.tokenBudget = builder.tokenBudget;
+        this.journal = builder.journal;
+        this.compactHistory = builder.compactHistory;
+
+        this.defaultState = new AgentState(systemMessage);
+        this.mailbox = new Mailbox(name, builder.mailboxCapacity, builder.mailboxExecutor,
+                builder.mailboxOfferTimeout);
         // creating a list of method references
         this.replyFuncList = Lists.newArrayList(
-                this::checkTerminationAndHumanReply,
-                this::generateFunctionCallReply,
-                this::generateCodeExecutionReply,
-                this::generateOaiReply);
+                new NamedReplyFunc("check_termination_and_human_reply", this::checkTerminationAndHumanReply),
+                new NamedReplyFunc("generate_function_call_reply", this::generateFunctionCallReply),
+                new NamedReplyFunc("generate_code_execution_reply", this::generateCodeExecutionReply),
+                new NamedReplyFunc("generate_oai_reply", this::generateOaiReply));
+    }
+
+    /**
+     * Returns the state of the agent in the current conversation.
+     * <p>
+     * If a {@link ChatSession} is bound to the current thread, the state is scoped to that session, otherwise the
+     * agent's own state is used.
+     *
+     * @return the state of the agent.
+     */
+    protected AgentState state() {
+        ChatSession session = ChatSession.current();
+        if (session == null) {
+            return defaultState;
+        }
+        return session.stateOf(this, agent -> new AgentState(systemMessage));
     }
 
     /**
@@ -129,7 +232,41 @@ public class ConversableAgent extends Agent {
      * @param replyFunc the reply function.
      */
     protected void registerReply(BiFunction<Agent, List<ChatMessage>, ReplyResult> replyFunc) {
-        this.replyFuncList.add(0, replyFunc);
+        registerReply("custom_reply", replyFunc);
+    }
+
+    /**
+     * The reply function will be called when the trigger matches the sender.
+     * The function registered later will be checked earlier by default.
+     *
+     * @param name      the name of the reply function, which tags its latency metrics.
+     * @param replyFunc the reply function.
+     */
+    protected void registerReply(String name, BiFunction<Agent, List<ChatMessage>, ReplyResult> replyFunc) {
+        this.replyFuncList.add(0, new NamedReplyFunc(name, replyFunc));
+    }
+
+    /**
+     * Returns the client for interacting with the OpenAI API, which is created or taken from the shared pool on first
+     * use, so agents that never call the llm never create one.
+     * <p>
+     * It replaces the former protected {@code client} field: subclasses call this method instead, as the field may
+     * not be set yet.
+     *
+     * @return the client for interacting with the OpenAI API.
+     */
+    protected OpenAiClient client() {
+        return client.get();
+    }
+
+    /**
+     * The supplier only captures the settings of the client, not the builder and everything else it refers to.
+     */
+    private static Supplier<OpenAiClient> clientSupplier(OpenAiClient client, boolean sharedClient, ClientKey key) {
+        if (client != null) {
+            return () -> client;
+        }
+        return Suppliers.memoize(() -> sharedClient ? OpenAiClientPool.shared().get(key) : key.newClient());
     }
 
     /**
@@ -138,7 +275,7 @@ public class ConversableAgent extends Agent {
      * @param systemMessage system message for the ChatCompletion inference.
      */
     public void updateSystemMessage(String systemMessage) {
-        oaiSystemMessage.get(0).setContent(systemMessage);
+        state().getOaiSystemMessage().get(0).setContent(systemMessage);
     }
 
     /**
@@ -150,6 +287,7 @@ public class ConversableAgent extends Agent {
      * @return The last message exchanged with the agent.
      */
     protected ChatMessage lastMessage(Agent agent) {
+        Map<Agent, List<ChatMessage>> oaiMessages = state().getOaiMessages();
         if (!oaiMessages.containsKey(agent)) {
             throw new Autogen4jException(
                     "The agent %s is not present in any conversation. No history available for this agent.",
@@ -158,15 +296,98 @@ public class ConversableAgent extends Agent {
         return oaiMessages.get(agent).get(oaiMessages.get(agent).size() - 1);
     }
 
+    /**
+     * The chat history with the agent in the current conversation.
+     *
+     * @param agent The agent in the conversation.
+     * @return an unmodifiable view of the messages exchanged with the agent, empty if there is no history.
+     */
+    public List<ChatMessage> chatMessages(Agent agent) {
+        return Collections.unmodifiableList(state().getOaiMessages().getOrDefault(agent, List.of()));
+    }
+
+    /**
+     * The tokens used by the agent in all its conversations. Responses served by the response cache use no tokens.
+     *
+     * @return the token usage of the agent.
+     */
+    public TokenUsage tokenUsage() {
+        return new TokenUsage(promptTokens.sum(), completionTokens.sum());
+    }
+
+    /**
+     * The tokens used by the agent to reply to the peer agent in the current conversation.
+     *
+     * @param agent the peer agent.
+     * @return the token usage of the conversation with the peer agent.
+     */
+    public TokenUsage tokenUsage(Agent agent) {
+        return state().getTokenUsage().getOrDefault(agent, TokenUsage.EMPTY);
+    }
+
     /**
      * Append a message to the ChatCompletion conversation.
      */
-    private void appendOaiMessage(Agent agent, ChatMessage message, ChatMessageRole role) {
-        ChatMessage oaiMessage = new ChatMessage(message);
-        if (!FUNCTION.equals(message.getRole())) {
-            oaiMessage.setRole(role);
+    protected void appendOaiMessage(Agent agent, ChatMessage message, ChatMessageRole role) {
+        List<ChatMessage> history = state().getOaiMessages().computeIfAbsent(agent, this::newHistory);
+        ChatMessage oaiMessage;
+        if (history instanceof SharedHistory sharedHistory) {
+            oaiMessage = sharedHistory.deliver(message, role);
+        } else {
+            oaiMessage = new ChatMessage(message);
+            if (!FUNCTION.equals(message.getRole())) {
+                oaiMessage.setRole(role);
+            }
+            history.add(oaiMessage);
+        }
+        if (journal != null) {
+            journal.appendMessage(name, agent.getName(), oaiMessage);
+        }
+    }
+
+    /**
+     * Creates the chat history with the agent, when the first message is exchanged with it. The history is shared
+     * if the agent offers one, otherwise it holds copies of the messages, compact ones if configured.
+     *
+     * @param agent the peer agent.
+     * @return the new chat history.
+     */
+    protected List<ChatMessage> newHistory(Agent agent) {
+        if (agent instanceof ConversableAgent peer) {
+            List<ChatMessage> history = peer.peerHistory(this);
+            if (history != null) {
+                return history;
+            }
+        }
+        return compactHistory ? new CompactHistory() : new ArrayList<>();
+    }
+
+    /**
+     * Returns a new chat history of the peer agent with this agent, shared with the histories of other agents. By
+     * default, the peer agent keeps its own history.
+     *
+     * @param peer the peer agent.
+     * @return the new shared history, or null if the peer agent keeps its own history.
+     */
+    protected List<ChatMessage> peerHistory(Agent peer) {
+        return null;
+    }
+
+    /**
+     * Replace the chat history with the agent in the current conversation, for example with the history restored
+     * from a {@link ConversationJournal}.
+     *
+     * @param agent    the peer agent.
+     * @param messages the messages exchanged with the agent.
+     */
+    public void restoreChatMessages(Agent agent, List<ChatMessage> messages) {
+        List<ChatMessage> history = newHistory(agent);
+        if (history instanceof SharedHistory sharedHistory) {
+            sharedHistory.restore(messages);
+        } else {
+            history.addAll(messages);
         }
-        oaiMessages.computeIfAbsent(agent, key -> new ArrayList<>()).add(oaiMessage);
+        state().getOaiMessages().put(agent, history);
     }
 
     @Override
@@ -220,20 +441,49 @@ public class ConversableAgent extends Agent {
         processReceivedMessage(sender, message, silent);
 
         if (requestReply) {
-            var reply = generateReply(sender, oaiMessages.get(sender));
+            var reply = MessageLoop.isolated(() -> generateReply(sender, state().getOaiMessages().get(sender)));
             if (reply != null) {
-                send(sender, reply, true, silent);
+                // sending the reply is queued to keep the stack depth constant during the conversation.
+                MessageLoop.tailCall(() -> send(sender, reply, true, silent));
             }
         }
     }
 
+    @Override
+    public CompletableFuture<ChatMessage> sendAsync(Agent recipient, ChatMessage message, boolean requestReply,
+            boolean silent) {
+        CompletableFuture<Void> appended = mailbox.submit(() -> {
+            appendOaiMessage(recipient, message, ASSISTANT);
+            return null;
+        });
+        return mailbox.thenCompose(appended, ignored -> recipient.receiveAsync(this, message, requestReply, silent));
+    }
+
+    @Override
+    public CompletableFuture<ChatMessage> receiveAsync(Agent sender, ChatMessage message, boolean requestReply,
+            boolean silent) {
+        CompletableFuture<ChatMessage> reply = mailbox.submit(() -> {
+            processReceivedMessage(sender, message, silent);
+            return requestReply ? generateReply(sender, state().getOaiMessages().get(sender)) : null;
+        });
+        // the conversation goes on without the caller waiting for it.
+        mailbox.thenCompose(reply, r -> r == null ? CompletableFuture.completedFuture(null)
+                : sendAsync(sender, r, true, silent)).exceptionally(e -> {
+                    LOG.error("Failed to send the reply of {} to {}.", name, sender.getName(), e);
+                    return null;
+                });
+        return reply;
+    }
+
     private void prepareChat(ConversableAgent recipient, boolean clearHistory) {
-        this.resetConsecutiveAutoReplyCounter(recipient);
-        recipient.resetConsecutiveAutoReplyCounter(this);
+        this.resetChat(recipient, clearHistory);
+        recipient.resetChat(this, clearHistory);
+    }
 
+    private void resetChat(Agent other, boolean clearHistory) {
+        resetConsecutiveAutoReplyCounter(other);
         if (clearHistory) {
-            this.clearHistory(recipient);
-            recipient.clearHistory(this);
+            clearHistory(other);
         }
     }
 
@@ -259,24 +509,65 @@ public class ConversableAgent extends Agent {
     public void initiateChat(ConversableAgent recipient, String message, boolean clearHistory, boolean silent) {
         prepareChat(recipient, clearHistory);
         send(recipient, new ChatMessage(message), true, silent);
+        metricsRecorder.recordValue(CONVERSATION_MESSAGES, Map.of(TAG_AGENT, name, TAG_RECIPIENT, recipient.getName()),
+                chatMessages(recipient).size());
+    }
+
+    /**
+     * Initiate a chat with the recipient agent asynchronously. The messages are processed by the mailboxes of the
+     * agents, and the caller does not wait for the conversation.
+     *
+     * @param recipient the recipient agent.
+     * @param message   the message to send.
+     * @return a future completed with the first reply of the recipient.
+     */
+    public CompletableFuture<ChatMessage> initiateChatAsync(ConversableAgent recipient, String message) {
+        // each agent resets its side of the chat in its own mailbox, as it is never touched outside of it.
+        CompletableFuture<Void> prepared = CompletableFuture.allOf(
+                mailbox.submit(() -> {
+                    resetChat(recipient, true);
+                    return null;
+                }),
+                recipient.mailbox.submit(() -> {
+                    recipient.resetChat(this, true);
+                    return null;
+                }));
+        return mailbox.thenCompose(prepared, ignored -> sendAsync(recipient, new ChatMessage(message), true, false));
     }
 
     private void resetConsecutiveAutoReplyCounter(Agent sender) {
+        Map<Agent, Integer> consecutiveAutoReplyCounter = state().getConsecutiveAutoReplyCounter();
         Optional.ofNullable(sender).ifPresentOrElse(
                 value -> consecutiveAutoReplyCounter.put(value, 0),
                 consecutiveAutoReplyCounter::clear);
     }
 
     /**
-     * Clear the chat history of the agent.
+     * Reset the tokens used in the conversation with the agent, so the next conversation starts with a new budget.
+     *
+     * @param agent the peer agent.
+     */
+    public void resetTokenUsage(Agent agent) {
+        state().getTokenUsage().remove(agent);
+    }
+
+    /**
+     * Clear the chat history of the agent, together with the tokens used in the conversation.
      *
      * @param agent the agent with whom the chat history to clear. If null, clear the chat history with all agents.
      */
-    private void clearHistory(Agent agent) {
-        if (agent != null && oaiMessages.containsKey(agent)) {
+    protected void clearHistory(Agent agent) {
+        Map<Agent, List<ChatMessage>> oaiMessages = state().getOaiMessages();
+        boolean single = agent != null && oaiMessages.containsKey(agent);
+        if (single) {
             oaiMessages.get(agent).clear();
+            state().getTokenUsage().remove(agent);
         } else {
             oaiMessages.clear();
+            state().getTokenUsage().clear();
+        }
+        if (journal != null) {
+            journal.appendClear(name, single ? agent.getName() : null);
         }
     }
 
@@ -288,9 +579,159 @@ public class ConversableAgent extends Agent {
      * @return a reply using llm.
      */
     public ReplyResult generateOaiReply(Agent sender, List<ChatMessage> messages) {
-        chatCompletion.setMessages(ListUtils.union(oaiSystemMessage, messages));
-        ChatCompletionResp response = client.createChatCompletion(chatCompletion);
-        return new ReplyResult(true, response.getChoices().get(0).getMessage());
+        ChatCompletion request = newChatCompletion(
+                ListUtils.union(state().getOaiSystemMessage(), contextPolicy.apply(messages)));
+        LlmCallEvent event = new LlmCallEvent();
+        event.begin();
+        String outcome = "error";
+        try {
+            ChatCompletionResp response = createChatCompletion(sender, request);
+            outcome = "success";
+            return new ReplyResult(true, response.getChoices().get(0).getMessage());
+        } finally {
+            if (event.shouldCommit()) {
+                event.agent = name;
+                event.model = request.getModel();
+                event.messageCount = request.getMessages().size();
+                event.promptSize = request.getMessages().stream()
+                        .map(ChatMessage::getContent)
+                        .mapToLong(content -> content == null ? 0 : content.length())
+                        .sum();
+                event.streamed = streamListener != null;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Send the request to the llm, unless the response of an identical request is cached.
+     *
+     * @param request the ChatCompletion request.
+     * @return the response of the llm.
+     */
+    private ChatCompletionResp createChatCompletion(Agent sender, ChatCompletion request) {
+        if (responseCache == null) {
+            return requestChatCompletion(sender, request);
+        }
+        String key = ResponseCache.key(request);
+        ChatCompletionResp response = responseCache.get(key);
+        if (response == null) {
+            response = requestChatCompletion(sender, request);
+            responseCache.put(key, response);
+        } else if (streamListener != null) {
+            // a cached reply is streamed in one piece.
+            ChatMessage message = response.getChoices().get(0).getMessage();
+            if (StringUtils.isNotEmpty(message.getContent())) {
+                streamListener.onDelta(message.getContent());
+            }
+            streamListener.onComplete(message);
+        }
+        return response;
+    }
+
+    private ChatCompletionResp requestChatCompletion(Agent sender, ChatCompletion request) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            ChatCompletionResp response = streamListener == null
+                    ? client().createChatCompletion(request)
+                    : streamChatCompletion(request);
+            outcome = "success";
+            accountTokenUsage(sender, tokenUsage(request, response));
+            return response;
+        } finally {
+            metricsRecorder.recordTime(LLM_CALL, Map.of(TAG_AGENT, name, TAG_MODEL, String.valueOf(request.getModel()),
+                    TAG_OUTCOME, outcome), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The tokens used by the llm call, as reported by the llm. Streamed responses carry no usage, so it is counted
+     * locally with the tokenizer of the model.
+     */
+    private static TokenUsage tokenUsage(ChatCompletion request, ChatCompletionResp response) {
+        var usage = response.getUsage();
+        if (usage != null && usage.getPromptTokens() != null && usage.getCompletionTokens() != null) {
+            return new TokenUsage(usage.getPromptTokens(), usage.getCompletionTokens());
+        }
+        TokenCounter counter = TokenCounter.forModel(request.getModel());
+        long prompt = request.getMessages().stream().mapToLong(counter::count).sum();
+        long completion = response.getChoices().stream().mapToLong(choice -> counter.count(choice.getMessage())).sum();
+        return new TokenUsage(prompt, completion);
+    }
+
+    private void accountTokenUsage(Agent sender, TokenUsage usage) {
+        promptTokens.add(usage.promptTokens());
+        completionTokens.add(usage.completionTokens());
+        state().getTokenUsage().merge(sender, usage, TokenUsage::plus);
+        metricsRecorder.increment(LLM_TOKENS, Map.of(TAG_AGENT, name, TAG_TYPE, "prompt"), usage.promptTokens());
+        metricsRecorder.increment(LLM_TOKENS, Map.of(TAG_AGENT, name, TAG_TYPE, "completion"),
+                usage.completionTokens());
+    }
+
+    /**
+     * Stream the reply of the llm, passing each delta to the stream listener, until the reply is complete or the
+     * stream stop condition matches the reply assembled so far.
+     *
+     * @param request the ChatCompletion request.
+     * @return a response holding the assembled reply.
+     */
+    private ChatCompletionResp streamChatCompletion(ChatCompletion request) {
+        request.setStream(true);
+        ChatMessageAssembler assembler = new ChatMessageAssembler();
+        client().streamChatCompletion(request)
+                .map(chunk -> {
+                    String delta = assembler.append(chunk);
+                    if (!delta.isEmpty()) {
+                        streamListener.onDelta(delta);
+                    }
+                    return assembler;
+                })
+                // cancel the stream once the condition matches, a block body avoids the takeUntil(Publisher) overload.
+                .takeUntil(current -> {
+                    return streamStopCondition.test(current.content());
+                })
+                .blockingSubscribe();
+
+        ChatMessage message = assembler.message();
+        streamListener.onComplete(message);
+
+        ChatChoice choice = new ChatChoice();
+        choice.setIndex(0);
+        choice.setMessage(message);
+        ChatCompletionResp response = new ChatCompletionResp();
+        response.setModel(request.getModel());
+        response.setChoices(List.of(choice));
+        return response;
+    }
+
+    /**
+     * Create a ChatCompletion request for the messages.
+     * The configured chatCompletion is only a template and is never mutated, so it can be shared by concurrent
+     * conversations.
+     *
+     * @param messages the messages of the request.
+     * @return a new ChatCompletion request.
+     */
+    private ChatCompletion newChatCompletion(List<ChatMessage> messages) {
+        return ChatCompletion.builder()
+                .model(chatCompletion.getModel())
+                .messages(messages)
+                .temperature(chatCompletion.getTemperature())
+                .topP(chatCompletion.getTopP())
+                .n(chatCompletion.getN())
+                .stream(chatCompletion.isStream())
+                .seed(chatCompletion.getSeed())
+                .stop(chatCompletion.getStop())
+                .maxTokens(chatCompletion.getMaxTokens())
+                .presencePenalty(chatCompletion.getPresencePenalty())
+                .frequencyPenalty(chatCompletion.getFrequencyPenalty())
+                .logitBias(chatCompletion.getLogitBias())
+                .user(chatCompletion.getUser())
+                .tools(chatCompletion.getTools())
+                .toolChoice(chatCompletion.getToolChoice())
+                .build();
     }
 
     /**
@@ -372,9 +813,16 @@ public class ConversableAgent extends Agent {
      */
     private ReplyResult checkTerminationAndHumanReply(Agent sender, List<ChatMessage> messages) {
         ChatMessage message = messages.get(messages.size() - 1);
+        Map<Agent, Integer> consecutiveAutoReplyCounter = state().getConsecutiveAutoReplyCounter();
         String reply = "";
         String noHumanInputMsg = "";
-        if (humanInputMode.equals(ALWAYS)) {
+        TokenUsage usage = tokenUsage(sender);
+        if (tokenBudget.isExhausted(usage)) {
+            // the budget is a hard limit, the human is not asked to continue.
+            LOG.warn("The token budget of {} in the conversation with {} is exhausted after {} tokens.", name,
+                    sender.getName(), usage.totalTokens());
+            reply = "exit";
+        } else if (humanInputMode.equals(ALWAYS)) {
             reply = getHumanInput(
                     "Provide feedback to %s. Press enter to skip and use auto-reply, or type 'exit' to end the conversation: "
                             .formatted(sender.getName()));
@@ -443,11 +891,14 @@ public class ConversableAgent extends Agent {
     @Override
     public ChatMessage generateReply(Agent sender, List<ChatMessage> messages) {
         if (CollectionUtils.isEmpty(messages)) {
-            messages = oaiMessages.get(sender);
+            messages = state().getOaiMessages().get(sender);
         }
         // loop through each method
         for (var replyFunc : replyFuncList) {
-            ReplyResult replyResult = replyFunc.apply(sender, messages);
+            long start = System.nanoTime();
+            ReplyResult replyResult = replyFunc.function().apply(sender, messages);
+            metricsRecorder.recordTime(REPLY_FUNCTION, Map.of(TAG_AGENT, name, TAG_FUNCTION, replyFunc.name()),
+                    System.nanoTime() - start);
             // if termination is required, immediately return the reply
             if (replyResult.terminate()) {
                 return replyResult.reply();
@@ -477,21 +928,60 @@ public class ConversableAgent extends Agent {
      * @return CodeExecutionResult representing the result of code execution.
      */
     private CodeExecutionResult executeCodeBlocks(List<CodeBlock> codeBlocks) {
-        StringBuilder allLogs = new StringBuilder();
-        CodeExecutionResult result;
+        if (codeExecutionConfig.isParallelCodeBlocks() && codeBlocks.size() > 1) {
+            return mergeResults(CodeBlockScheduler.execute(codeBlocks, this::executeCodeBlock));
+        }
+        List<CodeExecutionResult> results = new ArrayList<>();
         for (int i = 0; i < codeBlocks.size(); i++) {
-            CodeBlock codeBlock = codeBlocks.get(i);
-            String language = codeBlock.language();
-            String code = codeBlock.code();
-            LOG.info("\n>>>>>>>> EXECUTING CODE BLOCK {} (inferred language is {})...", i + 1, language);
+            CodeExecutionResult result = executeCodeBlock(i, codeBlocks.get(i));
+            results.add(result);
+            if (result.exitCode() != 0) {
+                break;
+            }
+        }
+        return mergeResults(results);
+    }
 
-            if (Set.of("bash", "shell", "sh", "python").contains(language.toLowerCase())) {
+    private CodeExecutionResult executeCodeBlock(int index, CodeBlock codeBlock) {
+        String language = codeBlock.language();
+        String code = codeBlock.code();
+        LOG.info("\n>>>>>>>> EXECUTING CODE BLOCK {} (inferred language is {})...", index + 1, language);
+
+        if (Set.of("bash", "shell", "sh", "python").contains(language.toLowerCase())) {
+            CodeExecutionEvent event = new CodeExecutionEvent();
+            event.begin();
+            long start = System.nanoTime();
+            CodeExecutionResult result = null;
+            try {
                 result = executeCode(language, code, codeExecutionConfig);
-            } else {
-                // the language is not supported, then return an error message.
-                result = new CodeExecutionResult(1, "unknown language " + language);
+            } finally {
+                if (result != null) {
+                    metricsRecorder.recordTime(CODE_EXECUTION, Map.of(TAG_AGENT, name,
+                            TAG_LANGUAGE, language.toLowerCase(), TAG_EXIT_CODE, String.valueOf(result.exitCode())),
+                            System.nanoTime() - start);
+                }
+                if (event.shouldCommit()) {
+                    event.agent = name;
+                    event.language = language;
+                    event.codeSize = code.length();
+                    event.exitCode = result == null ? -1 : result.exitCode();
+                    event.outputSize = result == null ? 0 : result.outputBytes();
+                    event.outcome = result == null ? "error" : result.exitCode() == 0 ? "success" : "failure";
+                    event.commit();
+                }
             }
+            return result;
+        }
+        // the language is not supported, then return an error message.
+        return new CodeExecutionResult(1, "unknown language " + language);
+    }
 
+    /**
+     * Merge the results of the code blocks in the order of the message, up to the first failed block.
+     */
+    private CodeExecutionResult mergeResults(List<CodeExecutionResult> results) {
+        StringBuilder allLogs = new StringBuilder();
+        for (CodeExecutionResult result : results) {
             allLogs.append("\n").append(result.logs());
             if (result.exitCode() != 0) {
                 return new CodeExecutionResult(result.exitCode(), allLogs.toString());
@@ -511,6 +1001,12 @@ public class ConversableAgent extends Agent {
         return null;
     }
 
+    /**
+     * A reply function with the name its metrics are tagged with.
+     */
+    private record NamedReplyFunc(String name, BiFunction<Agent, List<ChatMessage>, ReplyResult> function) {
+    }
+
     @Override
     public boolean equals(Object o) {
         return super.equals(o);
@@ -561,10 +1057,35 @@ public class ConversableAgent extends Agent {
         protected CodeExecutionConfig codeExecutionConfig;
 
         /**
-         * a client for interacting with the OpenAI API.
+         * a client for interacting with the OpenAI API, if null, a client is created from the settings below.
          */
         protected OpenAiClient client;
 
+        /**
+         * the base url of the OpenAI API, if null, read from the environment.
+         */
+        protected String openaiApiBase;
+
+        /**
+         * the api key of the OpenAI API, if null, read from the environment.
+         */
+        protected String openaiApiKey;
+
+        /**
+         * the http proxy, if null, read from the environment.
+         */
+        protected String openaiProxy;
+
+        /**
+         * the timeout of a request in seconds.
+         */
+        protected long requestTimeout = 60;
+
+        /**
+         * whether to share the client with all the agents with the same settings, or to create a dedicated one.
+         */
+        protected boolean sharedClient = true;
+
         /**
          * Chat conversation.
          */
@@ -575,12 +1096,64 @@ public class ConversableAgent extends Agent {
          */
         protected String defaultAutoReply = "";
 
-        protected Builder() {
-            this.client = OpenAiClient.builder()
-                    .requestTimeout(60)
-                    .build()
-                    .init();
+        /**
+         * cache of the llm responses, if null, every reply is generated by the llm.
+         */
+        protected ResponseCache responseCache;
+
+        /**
+         * decides which part of the chat history is sent to the llm with each request, the whole history by default.
+         */
+        protected ContextPolicy contextPolicy = ContextPolicy.all();
+
+        /**
+         * receives the llm reply incrementally, if not null, the replies are streamed.
+         */
+        protected StreamListener streamListener;
+
+        /**
+         * stops streaming the llm reply once the content assembled so far matches, never by default. The content is
+         * tested after every chunk, so the condition should not copy it into a string.
+         */
+        protected Predicate<CharSequence> streamStopCondition = content -> false;
+
+        /**
+         * the maximum number of pending messages in the mailbox of the agent in asynchronous mode.
+         */
+        protected int mailboxCapacity = 64;
+
+        /**
+         * the executor processing the mailbox, if null, a shared virtual thread executor is used.
+         */
+        protected Executor mailboxExecutor;
+
+        /**
+         * the maximum time in milliseconds to wait for room in a full mailbox.
+         */
+        protected long mailboxOfferTimeout = 30_000;
+
+        /**
+         * records the metrics of the agent, the global in-memory registry by default.
+         */
+        protected MetricsRecorder metricsRecorder = InMemoryMetricsRegistry.global();
+
+        /**
+         * the maximum number of tokens of a conversation with a peer agent, unlimited by default.
+         */
+        protected TokenBudget tokenBudget = TokenBudget.unlimited();
+
+        /**
+         * the journal the chat histories are appended to, none by default.
+         */
+        protected ConversationJournal journal;
+
+        /**
+         * whether to keep the histories compact, which uses less heap but materializes the messages on each read,
+         * false by default.
+         */
+        protected boolean compactHistory;
 
+        protected Builder() {
             this.chatCompletion = ChatCompletion.builder()
                     .model("gpt-4")
                     .temperature(0)
@@ -627,6 +1200,31 @@ public class ConversableAgent extends Agent {
             return (T) this;
         }
 
+        public T openaiApiBase(String openaiApiBase) {
+            this.openaiApiBase = openaiApiBase;
+            return (T) this;
+        }
+
+        public T openaiApiKey(String openaiApiKey) {
+            this.openaiApiKey = openaiApiKey;
+            return (T) this;
+        }
+
+        public T openaiProxy(String openaiProxy) {
+            this.openaiProxy = openaiProxy;
+            return (T) this;
+        }
+
+        public T requestTimeout(long requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return (T) this;
+        }
+
+        public T sharedClient(boolean sharedClient) {
+            this.sharedClient = sharedClient;
+            return (T) this;
+        }
+
         public T chatCompletion(ChatCompletion chatCompletion) {
             this.chatCompletion = chatCompletion;
             return (T) this;
@@ -637,6 +1235,61 @@ public class ConversableAgent extends Agent {
             return (T) this;
         }
 
+        public T responseCache(ResponseCache responseCache) {
+            this.responseCache = responseCache;
+            return (T) this;
+        }
+
+        public T contextPolicy(ContextPolicy contextPolicy) {
+            this.contextPolicy = contextPolicy;
+            return (T) this;
+        }
+
+        public T streamListener(StreamListener streamListener) {
+            this.streamListener = streamListener;
+            return (T) this;
+        }
+
+        public T streamStopCondition(Predicate<CharSequence> streamStopCondition) {
+            this.streamStopCondition = streamStopCondition;
+            return (T) this;
+        }
+
+        public T mailboxCapacity(int mailboxCapacity) {
+            this.mailboxCapacity = mailboxCapacity;
+            return (T) this;
+        }
+
+        public T mailboxExecutor(Executor mailboxExecutor) {
+            this.mailboxExecutor = mailboxExecutor;
+            return (T) this;
+        }
+
+        public T mailboxOfferTimeout(long mailboxOfferTimeout) {
+            this.mailboxOfferTimeout = mailboxOfferTimeout;
+            return (T) this;
+        }
+
+        public T metricsRecorder(MetricsRecorder metricsRecorder) {
+            this.metricsRecorder = metricsRecorder;
+            return (T) this;
+        }
+
+        public T tokenBudget(TokenBudget tokenBudget) {
+            this.tokenBudget = tokenBudget;
+            return (T) this;
+        }
+
+        public T journal(ConversationJournal journal) {
+            this.journal = journal;
+            return (T) this;
+        }
+
+        public T compactHistory(boolean compactHistory) {
+            this.compactHistory = compactHistory;
+            return (T) this;
+        }
+
         protected abstract ConversableAgent build();
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent;
+
+import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.autogen4j.session.ChatSession;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.hw.autogen4j.util.ThreadUtil.newVirtualThreadPerTaskExecutor;
+
+/**
+ * The bounded mailbox of an agent in asynchronous mode.
+ * <p>
+ * Tasks are run one at a time and in submission order on the configured executor, so the state of the agent is only
+ * ever touched by one thread at a time. When the mailbox is full, submitting blocks until there is room or the offer
+ * timeout expires, which slows down the producers instead of piling up unbounded work behind a slow agent.
+ *
+ * @author HamaWhite
+ */
+final class Mailbox {
+
+    private final String owner;
+
+    private final BlockingQueue<Runnable> queue;
+
+    private final Executor executor;
+
+    private final long offerTimeoutMillis;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * completed once all the steps composed so far are done, never exceptionally.
+     */
+    private CompletableFuture<Object> steps = CompletableFuture.completedFuture(null);
+
+    Mailbox(String owner, int capacity, Executor executor, long offerTimeoutMillis) {
+        this.owner = owner;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.executor = executor != null ? executor : DefaultExecutorHolder.EXECUTOR;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+
+    /**
+     * Submit a task to the mailbox. The task runs in the session of the submitter, if any.
+     *
+     * @param task the task to run.
+     * @param <T>  the result type of the task.
+     * @return a future completed with the result of the task, or exceptionally if the mailbox stayed full.
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ChatSession session = ChatSession.current();
+        Runnable runnable = () -> {
+            try {
+                future.complete(session == null ? task.get() : session.call(task));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        };
+        if (!offer(runnable)) {
+            future.completeExceptionally(new Autogen4jException(
+                    "The mailbox of agent %s is full, no room within %d ms.", owner, offerTimeoutMillis));
+            return future;
+        }
+        schedule();
+        return future;
+    }
+
+    /**
+     * Compose the next step of a conversation after a task of this mailbox. The steps run one at a time, in the
+     * order they are composed, on the executor of the mailbox and in the session of the caller, but never inside the
+     * drain: a step waiting for room in a full mailbox would otherwise block the very drain that makes room.
+     *
+     * @param future the future of a task of this mailbox.
+     * @param next   the next step, given the result of the task.
+     * @param <T>    the result type of the task.
+     * @param <U>    the result type of the next step.
+     * @return a future completed with the result of the next step.
+     */
+    synchronized <T, U> CompletableFuture<U> thenCompose(CompletableFuture<T> future,
+            Function<? super T, ? extends CompletionStage<U>> next) {
+        ChatSession session = ChatSession.current();
+        CompletableFuture<CompletionStage<U>> step = future.thenCombineAsync(steps,
+                (value, ignored) -> session == null ? next.apply(value) : session.call(() -> next.apply(value)),
+                executor);
+        // a failed step does not hold back the next ones, but a step failing early still waits for the previous.
+        steps = step.handle((value, e) -> null).thenCombine(steps, (ignored, previous) -> null);
+        return step.thenCompose(Function.identity());
+    }
+
+    private boolean offer(Runnable runnable) {
+        try {
+            return queue.offer(runnable, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            for (Runnable task = queue.poll(); task != null; task = queue.poll()) {
+                task.run();
+            }
+        } finally {
+            scheduled.set(false);
+            // a task may have been queued after the last poll, but before the flag was cleared.
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * The executor shared by all mailboxes without their own executor, created on first use.
+     */
+    private static final class DefaultExecutorHolder {
+
+        private static final ExecutorService EXECUTOR = newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * A trampoline that turns the reply chain of a conversation into a loop.
+ * <p>
+ * Without it, each turn of a conversation would nest one more {@code send -> receive -> send} in the call stack. The
+ * reply of an agent is always the last thing its {@code receive} does, so instead of sending it right away, the reply
+ * is queued and sent by the outermost {@code receive} of the thread once the current one has returned. The messages
+ * are delivered in the same order as before, but the stack depth stays constant whatever the conversation length.
+ *
+ * @author HamaWhite
+ */
+final class MessageLoop {
+
+    private static final ThreadLocal<Deque<Runnable>> PENDING = new ThreadLocal<>();
+
+    private MessageLoop() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Run the task as a tail call. If the loop is already running on this thread, the task is queued and run after
+     * the caller has returned, otherwise the loop is started and runs until no task is left.
+     *
+     * @param task the task to run, usually sending a reply.
+     */
+    static void tailCall(Runnable task) {
+        Deque<Runnable> pending = PENDING.get();
+        if (pending != null) {
+            pending.add(task);
+            return;
+        }
+        pending = new ArrayDeque<>();
+        PENDING.set(pending);
+        try {
+            for (Runnable next = task; next != null; next = pending.poll()) {
+                next.run();
+            }
+        } finally {
+            PENDING.remove();
+        }
+    }
+
+    /**
+     * Run the task outside the current loop. Conversations started by the task, for example a nested chat started by a
+     * reply function, run their own loop and are over when the task returns.
+     *
+     * @param task the task to run.
+     * @param <T>  the result type of the task.
+     * @return the result of the task.
+     */
+    static <T> T isolated(Supplier<T> task) {
+        Deque<Runnable> pending = PENDING.get();
+        if (pending == null) {
+            return task.get();
+        }
+        PENDING.remove();
+        try {
+            return task.get();
+        } finally {
+            PENDING.set(pending);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent;
+
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.chat.ChatMessageRole;
+
+import java.util.List;
+
+/**
+ * A chat history whose messages are shared with the histories of other agents, such as a view of the message log of
+ * a group chat. The agent delivers the messages as they were sent instead of appending its own copies.
+ *
+ * @author HamaWhite
+ */
+public interface SharedHistory extends List<ChatMessage> {
+
+    /**
+     * Delivers a message to the history.
+     *
+     * @param message the message, as it was sent.
+     * @param role    the role of the message from the point of view of the agent owning the history, unless it is a
+     *                function result.
+     * @return the message as stored in the history.
+     */
+    ChatMessage deliver(ChatMessage message, ChatMessageRole role);
+
+    /**
+     * Restores the messages of the history from the journal, sharing them with the other restored histories.
+     *
+     * @param messages the messages, as stored in the history when they were journaled.
+     */
+    void restore(List<ChatMessage> messages);
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group;
+
+import java.time.Duration;
+
+/**
+ * Latency statistics of the broadcasts of a group chat manager, one broadcast per round.
+ *
+ * @param count      the number of broadcasts.
+ * @param totalNanos the total time spent broadcasting, in nanoseconds.
+ * @param maxNanos   the time of the slowest broadcast, in nanoseconds.
+ * @param lastNanos  the time of the last broadcast, in nanoseconds.
+ *
+ * @author HamaWhite
+ */
+public record BroadcastStats(long count, long totalNanos, long maxNanos, long lastNanos) {
+
+    /**
+     * Returns the average time of a broadcast, or zero if there was no broadcast.
+     *
+     * @return the average time of a broadcast.
+     */
+    public Duration average() {
+        return Duration.ofNanos(count == 0 ? 0 : totalNanos / count);
+    }
+}
@@ -20,14 +20,20 @@ package com.hw.autogen4j.agent.group;
 
 import com.hw.autogen4j.agent.Agent;
 import com.hw.autogen4j.agent.ConversableAgent;
-import com.hw.autogen4j.entity.ReplyResult;
+import com.hw.autogen4j.agent.group.selector.SpeakerSelector;
+import com.hw.autogen4j.entity.TokenBudget;
+import com.hw.autogen4j.entity.TokenUsage;
 import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.autogen4j.jfr.SpeakerSelectionEvent;
+import com.hw.autogen4j.journal.ConversationJournal;
+import com.hw.autogen4j.session.ChatSession;
 import com.hw.openai.entity.chat.ChatMessage;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -35,12 +41,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import static com.hw.openai.entity.chat.ChatMessageRole.SYSTEM;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * A group chat of multiple agents, managed by a {@link GroupChatManager}.
+ * <p>
+ * The messages, the message log and the token usage of the group chat are conversation-scoped: while a
+ * {@link ChatSession} is bound to the current thread they live in the session, otherwise in the group chat itself. The
+ * same group chat can thus be managed in any number of concurrent sessions.
+ *
  * @author HamaWhite
  */
 @Getter
@@ -49,6 +59,12 @@ public class GroupChat {
 
     private static final Logger LOG = LoggerFactory.getLogger(GroupChat.class);
 
+    /**
+     * the name of the group chat, which identifies its messages in the journal.
+     */
+    @Builder.Default
+    private String name = "group_chat";
+
     /**
      * the name of the admin agent if there is one.
      */
@@ -61,11 +77,17 @@ public class GroupChat {
     private List<Agent> agents;
 
     /**
-     * a list of messages in the group chat.
+     * a list of messages in the group chat, outside of any session.
      */
     @Builder.Default
     private List<ChatMessage> messages = new ArrayList<>();
 
+    /**
+     * the log of the messages exchanged between the participants and the manager, shared by their histories, outside
+     * of any session.
+     */
+    private final GroupMessageLog log = new GroupMessageLog();
+
     /**
      * the maximum number of rounds.
      */
@@ -78,6 +100,81 @@ public class GroupChat {
     @Builder.Default
     private boolean allowRepeatSpeaker = true;
 
+    /**
+     * the strategy to select the next speaker, asking the llm by default.
+     */
+    @Builder.Default
+    private SpeakerSelector speakerSelector = SpeakerSelector.llm();
+
+    /**
+     * the maximum number of tokens of the group chat, the group chat ends once it is reached.
+     */
+    @Builder.Default
+    private TokenBudget tokenBudget = TokenBudget.unlimited();
+
+    /**
+     * the journal the messages are appended to, null if the messages are not journaled.
+     */
+    private ConversationJournal journal;
+
+    /**
+     * the tokens used by the participants and the manager of the group chat, outside of any session.
+     */
+    @Getter(AccessLevel.NONE)
+    private final LongAdder promptTokens = new LongAdder();
+
+    @Getter(AccessLevel.NONE)
+    private final LongAdder completionTokens = new LongAdder();
+
+    /**
+     * the state of the group chat outside of any session, made of the fields above.
+     */
+    @Getter(value = AccessLevel.PRIVATE, lazy = true)
+    private final State ownState = new State(messages, log, promptTokens, completionTokens);
+
+    /**
+     * the mention matchers built for each list of names, so that each one is only built once.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<List<String>, MentionMatcher> mentionMatchers = new ConcurrentHashMap<>();
+
+    /**
+     * The conversation-scoped state of a group chat.
+     */
+    private record State(List<ChatMessage> messages, GroupMessageLog log, LongAdder promptTokens,
+            LongAdder completionTokens) {
+
+        private State() {
+            this(new ArrayList<>(), new GroupMessageLog(), new LongAdder(), new LongAdder());
+        }
+    }
+
+    /**
+     * Returns the state of the group chat in the current session, or its own state outside of any session.
+     */
+    private State state() {
+        ChatSession session = ChatSession.current();
+        return session == null ? getOwnState() : session.scopedState(this, State::new);
+    }
+
+    /**
+     * Returns the messages of the group chat in the current session.
+     *
+     * @return the messages of the group chat.
+     */
+    public List<ChatMessage> getMessages() {
+        return state().messages();
+    }
+
+    /**
+     * Returns the message log of the group chat in the current session.
+     *
+     * @return the message log of the group chat.
+     */
+    public GroupMessageLog getLog() {
+        return state().log();
+    }
+
     /**
      * Return the names of the agents in the group chat.
      *
@@ -87,11 +184,61 @@ public class GroupChat {
         return extractAgentNames(agents);
     }
 
+    /**
+     * Returns the tokens used by the participants and the manager of the group chat.
+     *
+     * @return the token usage of the group chat.
+     */
+    public TokenUsage tokenUsage() {
+        State state = state();
+        return new TokenUsage(state.promptTokens().sum(), state.completionTokens().sum());
+    }
+
+    /**
+     * Add the tokens used by a participant or the manager to the group chat.
+     *
+     * @param usage the tokens used.
+     */
+    public void addTokenUsage(TokenUsage usage) {
+        State state = state();
+        state.promptTokens().add(usage.promptTokens());
+        state.completionTokens().add(usage.completionTokens());
+    }
+
+    /**
+     * Reset the tokens used in the group chat, when a new chat starts.
+     */
+    public void resetTokenUsage() {
+        State state = state();
+        state.promptTokens().reset();
+        state.completionTokens().reset();
+    }
+
     public GroupChat append(ChatMessage message) {
-        messages.add(message);
+        getMessages().add(message);
+        if (journal != null) {
+            journal.appendGroupMessage(name, message);
+        }
         return this;
     }
 
+    /**
+     * Restores the messages of the group chat in the current session from the journal, in place of its messages. They
+     * are also appended to the log, where the restored histories of the participants and the manager find them.
+     *
+     * @param restored the restored messages, named after the agents who spoke them.
+     */
+    public void restore(List<ChatMessage> restored) {
+        List<ChatMessage> current = getMessages();
+        current.clear();
+        current.addAll(restored);
+        Map<String, Agent> agentsByName = new HashMap<>();
+        if (agents != null) {
+            agents.forEach(agent -> agentsByName.put(agent.getName(), agent));
+        }
+        getLog().restore(restored, agentsByName::get);
+    }
+
     /**
      * Returns the agent with a given name.
      *
@@ -146,26 +293,29 @@ public class GroupChat {
         if (!allowRepeatSpeaker) {
             updatedAgents.remove(lastSpeaker);
         }
-        selector.updateSystemMessage(selectSpeakerMsg(updatedAgents));
-
-        List<ChatMessage> updatedMessages = new ArrayList<>(messages);
-        updatedMessages.add(new ChatMessage(SYSTEM,
-                "Read the above conversation. Then select the next role from %s to play. Only return the role."
-                        .formatted(extractAgentNames(updatedAgents))));
-
-        ReplyResult replyResult = selector.generateOaiReply(selector, updatedMessages);
-        String content = replyResult.reply().getContent();
-
-        // if exactly one agent is mentioned, use it. Otherwise, leave the OAI response unmodified
-        Map<String, Integer> mentions = mentionedAgents(content, updatedAgents);
-
-        if (mentions.size() == 1) {
-            String name = mentions.keySet().iterator().next();
-            return agentByName(name);
-        } else {
-            throw new Autogen4jException("GroupChat selectSpeaker failed to resolve the next speaker's name. " +
-                    "This is because the speaker selection OAI call returned:\n %s", content);
+        SpeakerSelectionEvent event = new SpeakerSelectionEvent();
+        event.begin();
+        Agent speaker = null;
+        String outcome = "error";
+        try {
+            speaker = speakerSelector.select(this, lastSpeaker, updatedAgents, selector);
+            outcome = speaker == null ? "undecided" : "selected";
+        } finally {
+            if (event.shouldCommit()) {
+                event.selector = speakerSelector.getClass().getSimpleName();
+                event.lastSpeaker = lastSpeaker.getName();
+                event.speaker = speaker == null ? null : speaker.getName();
+                event.candidateCount = updatedAgents.size();
+                event.messageCount = getMessages().size();
+                event.outcome = outcome;
+                event.commit();
+            }
         }
+        if (speaker == null) {
+            throw new Autogen4jException("GroupChat selectSpeaker failed to resolve the next speaker, " +
+                    "the speaker selector could not decide after %s.", lastSpeaker.getName());
+        }
+        return speaker;
     }
 
     /**
@@ -187,28 +337,18 @@ public class GroupChat {
     }
 
     /**
-     * Counts the number of times each agent is mentioned in the provided message content.
+     * Counts the number of times each name is mentioned in the provided message content.
      *
-     * @param content The content of the message, either as a single string or a list of strings.
-     * @param agents  A list of Agent objects
-     * @return a map counter for mentioned agents.
-     */
-    private Map<String, Integer> mentionedAgents(String content, List<Agent> agents) {
-        Map<String, Integer> mentions = new HashMap<>();
-        for (Agent agent : agents) {
-            // finds agent mentions, taking word boundaries into account
-            Pattern pattern = Pattern.compile("(?<=\\W)" + Pattern.quote(agent.getName()) + "(?=\\W)");
-            // pad the message to help with matching
-            Matcher matcher = pattern.matcher(" " + content + " ");
-            int count = 0;
-            while (matcher.find()) {
-                count++;
-            }
-            if (count > 0) {
-                mentions.put(agent.getName(), count);
-            }
+     * @param content The content of the message.
+     * @param names   A list of names, for example the names of the agents.
+     * @return a map counter for mentioned names.
+     */
+    public Map<String, Integer> mentionedNames(String content, List<String> names) {
+        // the names are only copied into a key when their matcher is built, a lookup hashes the list as it is.
+        MentionMatcher matcher = mentionMatchers.get(names);
+        if (matcher == null) {
+            matcher = mentionMatchers.computeIfAbsent(List.copyOf(names), MentionMatcher::new);
         }
-        return mentions;
+        return matcher.count(content);
     }
-
 }
@@ -18,16 +18,30 @@
 
 package com.hw.autogen4j.agent.group;
 
+import com.google.common.base.Throwables;
 import com.hw.autogen4j.agent.Agent;
 import com.hw.autogen4j.agent.ConversableAgent;
 import com.hw.autogen4j.entity.ReplyResult;
+import com.hw.autogen4j.entity.TokenUsage;
 import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.autogen4j.jfr.BroadcastEvent;
+import com.hw.autogen4j.session.ChatSession;
 import com.hw.openai.entity.chat.ChatMessage;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.hw.autogen4j.entity.HumanInputMode.NEVER;
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
 import static com.hw.openai.entity.chat.ChatMessageRole.FUNCTION;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
 
 /**
  * A chat manager agent that can manage a group chat of multiple agents.
@@ -36,13 +50,82 @@ import static com.hw.openai.entity.chat.ChatMessageRole.FUNCTION;
  */
 public class GroupChatManager extends ConversableAgent {
 
+    private static final Logger LOG = LoggerFactory.getLogger(GroupChatManager.class);
+
     private final GroupChat groupChat;
 
+    private final Executor broadcastExecutor;
+
+    private final LongAdder broadcastCount = new LongAdder();
+
+    private final LongAdder broadcastNanos = new LongAdder();
+
+    private final LongAccumulator maxBroadcastNanos = new LongAccumulator(Math::max, 0);
+
+    private volatile long lastBroadcastNanos;
+
     protected GroupChatManager(Builder builder) {
         super(builder);
         this.groupChat = builder.groupChat;
+        this.broadcastExecutor = builder.broadcastExecutor;
+
+        this.registerReply("run_chat", this::runChat);
+    }
 
-        this.registerReply(this::runChat);
+    /**
+     * Returns the group chat managed by this agent.
+     *
+     * @return the group chat.
+     */
+    public GroupChat getGroupChat() {
+        return groupChat;
+    }
+
+    /**
+     * The history of the manager with a participant is a view of the message log of the group chat. Its messages are
+     * shared with the other histories, so they must not be modified.
+     */
+    @Override
+    protected List<ChatMessage> newHistory(Agent agent) {
+        return groupChat.getLog().history(agent, USER, this);
+    }
+
+    /**
+     * The history of a participant with the manager is a view of the message log of the group chat.
+     */
+    @Override
+    protected List<ChatMessage> peerHistory(Agent peer) {
+        return groupChat.getLog().history(peer, ASSISTANT, this);
+    }
+
+    /**
+     * Clearing the history of the manager with the initiator starts a new group chat, so the tokens used by the
+     * manager and by the participants replying to it are reset, and the token budget of the group chat starts over.
+     */
+    @Override
+    protected void clearHistory(Agent agent) {
+        super.clearHistory(agent);
+        resetTokenUsage(this);
+        for (Agent participant : groupChat.getAgents()) {
+            if (participant instanceof ConversableAgent conversable) {
+                conversable.resetTokenUsage(this);
+            }
+        }
+        groupChat.resetTokenUsage();
+    }
+
+    /**
+     * The tokens used in the current conversation by the manager to select the speakers, and by the participants to
+     * reply to the manager.
+     */
+    private TokenUsage participantsTokenUsage() {
+        TokenUsage usage = tokenUsage(this);
+        for (Agent agent : groupChat.getAgents()) {
+            if (agent instanceof ConversableAgent participant) {
+                usage = usage.plus(participant.tokenUsage(this));
+            }
+        }
+        return usage;
     }
 
     /**
@@ -60,8 +143,10 @@ public class GroupChatManager extends ConversableAgent {
         ChatMessage message = messages.get(messages.size() - 1);
         Agent speaker = sender;
         for (int i = 0; i < groupChat.getMaxRound(); i++) {
-            // set the name to speaker's name if the role is not function
-            if (!FUNCTION.equals(message.getRole())) {
+            // set the name to speaker's name if the role is not function, messages of the group log already have it.
+            if (!FUNCTION.equals(message.getRole()) && !speaker.getName().equals(message.getName())) {
+                // the message may be shared with other histories, so it is renamed on a copy.
+                message = new ChatMessage(message);
                 message.setName(speaker.getName());
             }
             groupChat.append(message);
@@ -69,12 +154,15 @@ public class GroupChatManager extends ConversableAgent {
             if (isTerminationMsg.test(message)) {
                 break;
             }
-            // broadcast the message to all agents except the speaker
-            for (Agent agent : groupChat.getAgents()) {
-                if (!agent.equals(speaker)) {
-                    send(agent, message, false, true);
-                }
+            // the group chat ends cleanly once its token budget is reached.
+            if (groupChat.getTokenBudget().isExhausted(groupChat.tokenUsage())) {
+                LOG.warn("The token budget of the group chat managed by {} is exhausted after {} tokens.", name,
+                        groupChat.tokenUsage().totalTokens());
+                break;
             }
+            // broadcast the message to all agents except the speaker
+            broadcast(speaker, message);
+            TokenUsage usageBefore = participantsTokenUsage();
             ChatMessage reply;
             try {
                 // select the next speaker.
@@ -91,6 +179,8 @@ public class GroupChatManager extends ConversableAgent {
                     throw new Autogen4jException("Admin agent is not found in the participants.", e);
                 }
             }
+            // the tokens used to select the speaker and to generate its reply.
+            groupChat.addTokenUsage(participantsTokenUsage().minus(usageBefore));
             // the speaker sends the message without requesting a reply.
             speaker.send(this, reply, false, false);
             message = lastMessage(speaker);
@@ -98,6 +188,71 @@ public class GroupChatManager extends ConversableAgent {
         return new ReplyResult(true, null);
     }
 
+    /**
+     * Send the message to all the agents except the speaker, and wait until every one of them has received it.
+     * <p>
+     * The recipients receive the message concurrently on the broadcast executor, but the broadcast of the next round
+     * only starts once this one is over, so each recipient still receives the messages in order.
+     */
+    private void broadcast(Agent speaker, ChatMessage message) {
+        BroadcastEvent event = new BroadcastEvent();
+        event.begin();
+        String outcome = "error";
+        long start = System.nanoTime();
+        List<Agent> recipients = groupChat.getAgents().stream()
+                .filter(agent -> !agent.equals(speaker))
+                .toList();
+        // the history of the manager is not thread-safe, so its side of the broadcast is done on this thread.
+        recipients.forEach(agent -> appendOaiMessage(agent, message, ASSISTANT));
+
+        ChatSession session = ChatSession.current();
+        CompletableFuture<?>[] deliveries = recipients.stream()
+                .map(agent -> CompletableFuture.runAsync(() -> deliver(session, agent, message), broadcastExecutor))
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(deliveries).join();
+            outcome = "success";
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new Autogen4jException("Failed to broadcast the message of " + speaker.getName(), e.getCause());
+        } finally {
+            recordBroadcast(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.manager = name;
+                event.speaker = speaker.getName();
+                event.recipientCount = recipients.size();
+                event.messageSize = message.getContent() == null ? 0 : message.getContent().length();
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    private void deliver(ChatSession session, Agent recipient, ChatMessage message) {
+        if (session == null) {
+            recipient.receive(this, message, false, true);
+        } else {
+            session.run(() -> recipient.receive(this, message, false, true));
+        }
+    }
+
+    private void recordBroadcast(long nanos) {
+        broadcastCount.increment();
+        broadcastNanos.add(nanos);
+        maxBroadcastNanos.accumulate(nanos);
+        lastBroadcastNanos = nanos;
+    }
+
+    /**
+     * Returns the latency statistics of the broadcasts, one broadcast per round.
+     *
+     * @return the broadcast statistics.
+     */
+    public BroadcastStats broadcastStats() {
+        return new BroadcastStats(broadcastCount.sum(), broadcastNanos.sum(), maxBroadcastNanos.get(),
+                lastBroadcastNanos);
+    }
+
     @Override
     public boolean equals(Object o) {
         return super.equals(o);
@@ -116,11 +271,21 @@ public class GroupChatManager extends ConversableAgent {
 
         private GroupChat groupChat;
 
+        /**
+         * the executor the recipients receive a broadcast message on, by default the broadcasting thread itself.
+         */
+        private Executor broadcastExecutor = Runnable::run;
+
         public Builder groupChat(GroupChat groupChat) {
             this.groupChat = groupChat;
             return this;
         }
 
+        public Builder broadcastExecutor(Executor broadcastExecutor) {
+            this.broadcastExecutor = broadcastExecutor;
+            return this;
+        }
+
         private Builder() {
             super();
             this.name = "chat_manager";
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.SharedHistory;
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.chat.ChatMessageRole;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+
+/**
+ * The chat history between a participant and the manager of a group chat, as a view of the group message log.
+ * <p>
+ * The history holds the indexes of its messages in the log. Adding a message delivers it: a message already in the
+ * log, such as a broadcast one, is found after the last message of the history, a new message is appended to the log
+ * first. The messages of the log the agent never received, such as the terminating message of a previous chat, are
+ * not part of the history. Like any history, it is not thread-safe, but its floor, the index of its first message, is
+ * read by the log to drop the messages no history can read any more. An empty history has no floor.
+ *
+ * @author HamaWhite
+ */
+final class GroupHistory extends AbstractList<ChatMessage> implements SharedHistory {
+
+    private static final int[] NO_INDEXES = new int[0];
+
+    private static final int NO_FLOOR = Integer.MAX_VALUE;
+
+    private final GroupMessageLog log;
+
+    private final Agent participant;
+
+    private final ChatMessageRole participantRole;
+
+    private final Agent manager;
+
+    private volatile int floor = NO_FLOOR;
+
+    /**
+     * the ascending indexes of the messages of the history in the log.
+     */
+    private int[] indexes = NO_INDEXES;
+
+    private int size;
+
+    GroupHistory(GroupMessageLog log, Agent participant, ChatMessageRole participantRole, Agent manager) {
+        this.log = log;
+        this.participant = participant;
+        this.participantRole = participantRole;
+        this.manager = manager;
+    }
+
+    @Override
+    public ChatMessage get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return as(log.entry(indexes[index]));
+    }
+
+    /**
+     * The message of an entry, with its role from the point of view of the agent owning the history.
+     */
+    private ChatMessage as(GroupMessageLog.Entry entry) {
+        return entry.as(participant.equals(entry.speaker()) == (participantRole == ASSISTANT) ? ASSISTANT : USER);
+    }
+
+    int floor() {
+        return floor;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Delivers a message, either one of the log or a new one, which is appended to the log. The role tells which side
+     * of the history spoke a new message.
+     */
+    @Override
+    public ChatMessage deliver(ChatMessage message, ChatMessageRole role) {
+        Agent speaker = role == participantRole ? participant : manager;
+        int index;
+        if (size == 0) {
+            // the sender may have logged the first message before this history was created, the log must not drop it
+            // before the floor is set.
+            synchronized (log) {
+                index = log.indexOf(message, 0);
+                if (index < 0) {
+                    index = log.append(speaker, message);
+                }
+                floor = index;
+            }
+        } else {
+            index = log.indexOf(message, indexes[size - 1] + 1);
+            if (index < 0) {
+                index = log.append(speaker, message);
+            }
+        }
+        addIndex(index);
+        return get(size - 1);
+    }
+
+    /**
+     * Restores the history from the journal. Each message is matched, in order, with a message of the group chat
+     * restored to the log, and appended to the log if there is none, so the restored histories share their messages
+     * again.
+     */
+    @Override
+    public void restore(List<ChatMessage> messages) {
+        floor = NO_FLOOR;
+        indexes = NO_INDEXES;
+        size = 0;
+        synchronized (log) {
+            int from = log.restoredFrom();
+            for (ChatMessage message : messages) {
+                int index = log.find(entry -> message.equals(as(entry)), from);
+                if (index < 0) {
+                    index = log.append(message.getRole() == participantRole ? participant : manager, message);
+                }
+                if (size == 0) {
+                    floor = index;
+                }
+                addIndex(index);
+                from = index + 1;
+            }
+        }
+    }
+
+    private void addIndex(int index) {
+        if (size == indexes.length) {
+            indexes = Arrays.copyOf(indexes, Math.max(16, size * 2));
+        }
+        indexes[size++] = index;
+        modCount++;
+    }
+
+    @Override
+    public boolean add(ChatMessage message) {
+        deliver(message, message.getRole());
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        floor = NO_FLOOR;
+        indexes = NO_INDEXES;
+        size = 0;
+        modCount++;
+        log.trim();
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.chat.ChatMessageRole;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
+import static com.hw.openai.entity.chat.ChatMessageRole.FUNCTION;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+
+/**
+ * The append-only log of the messages exchanged in a group chat, shared by the histories of all participants.
+ * <p>
+ * Without it, every broadcast copies the message into the history of each recipient and into the history of the
+ * manager with each recipient, so the heap grows with the number of agents times the number of messages. Instead,
+ * each message is stored once, along with the agent who spoke it, and the histories are {@link GroupHistory views}
+ * with cursors into the log, which map the role of each message for the agent reading it.
+ * <p>
+ * The messages read from the log are shared by all the histories, so they must not be modified: an agent changing
+ * a message of its history would change it for every other agent too. Appending is synchronized, reading is
+ * lock-free, so the recipients of a broadcast can read the log while it grows.
+ * <p>
+ * The messages before the first message of every live history are dropped when a history is cleared, or when the log
+ * is full, so the log only holds the messages some agent can still read. The indexes of the messages never change.
+ *
+ * @author HamaWhite
+ */
+public final class GroupMessageLog {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * the retained entries, starting at the index of the first one, replaced as a whole so that the lock-free readers
+     * always see an array and an index that match.
+     */
+    private volatile Chunk chunk = new Chunk(new Entry[INITIAL_CAPACITY], 0);
+
+    /**
+     * the number of messages ever appended, which is also the index of the next one.
+     */
+    private volatile int size;
+
+    /**
+     * the index of the first message restored from the journal, the restored histories find their messages from there.
+     */
+    private volatile int restoredFrom;
+
+    /**
+     * whether the restored messages are kept until the histories are restored, that is until a history is cleared.
+     */
+    private boolean restoring;
+
+    /**
+     * the histories reading the log, the ones that are no longer used by their agent are garbage collected.
+     */
+    private final List<WeakReference<GroupHistory>> views = new ArrayList<>();
+
+    private record Chunk(Entry[] entries, int base) {
+    }
+
+    /**
+     * A message of the log, spoken by an agent.
+     *
+     * @param speaker     the agent who spoke the message, null if a restored message was spoken by an unknown agent.
+     * @param source      the message as it was sent, only used to recognize it when it is delivered.
+     * @param asUser      the message as seen by the agents it was sent to.
+     * @param asAssistant the message as seen by the agent who spoke it.
+     */
+    record Entry(Agent speaker, ChatMessage source, ChatMessage asUser, ChatMessage asAssistant) {
+
+        ChatMessage as(ChatMessageRole role) {
+            return role == ASSISTANT ? asAssistant : asUser;
+        }
+
+        boolean matches(ChatMessage message) {
+            return message == source || message == asUser || message == asAssistant;
+        }
+    }
+
+    /**
+     * Appends a message spoken by an agent. Unless it is a function result, the message is named after the speaker,
+     * so the other agents can tell who spoke.
+     *
+     * @param speaker the agent who spoke the message.
+     * @param message the message, which is copied.
+     * @return the index of the message in the log.
+     */
+    synchronized int append(Agent speaker, ChatMessage message) {
+        return append(speaker, message, speaker.getName());
+    }
+
+    private int append(Agent speaker, ChatMessage message, String name) {
+        ChatMessage asUser = new ChatMessage(message);
+        ChatMessage asAssistant = asUser;
+        if (!FUNCTION.equals(message.getRole())) {
+            asUser.setRole(USER);
+            asUser.setName(name);
+            asAssistant = new ChatMessage(asUser);
+            asAssistant.setRole(ASSISTANT);
+        }
+        int index = size;
+        Chunk current = chunk;
+        if (index - current.base() == current.entries().length) {
+            // the messages no history can read are dropped before growing the log.
+            current = compact();
+        }
+        current.entries()[index - current.base()] = new Entry(speaker, message, asUser, asAssistant);
+        // publishing the size last makes the entry visible to the lock-free readers.
+        size = index + 1;
+        return index;
+    }
+
+    /**
+     * Appends the messages of the group chat restored from the journal, which are already named after their speakers.
+     * The messages already in the log are kept, since the histories that are not restored may still read them. The
+     * restored messages are kept until a history is cleared, so that the histories restored meanwhile find them.
+     *
+     * @param messages the restored messages.
+     * @param speakers finds the agent who spoke a message by its name, null if the agent is unknown.
+     */
+    synchronized void restore(List<ChatMessage> messages, Function<String, Agent> speakers) {
+        restoredFrom = size;
+        restoring = true;
+        for (ChatMessage message : messages) {
+            Agent speaker = message.getName() == null ? null : speakers.apply(message.getName());
+            append(speaker, message, message.getName());
+        }
+    }
+
+    int restoredFrom() {
+        return restoredFrom;
+    }
+
+    /**
+     * Drops the messages before the first message of every live history.
+     */
+    synchronized void trim() {
+        restoring = false;
+        compact();
+    }
+
+    /**
+     * Copies the messages that some history can still read into a new chunk if any can be dropped, or if the current
+     * chunk is full.
+     *
+     * @return the current chunk, with room for at least one more message.
+     */
+    private Chunk compact() {
+        int floor = restoring ? restoredFrom : size;
+        for (Iterator<WeakReference<GroupHistory>> iterator = views.iterator(); iterator.hasNext();) {
+            GroupHistory view = iterator.next().get();
+            if (view == null) {
+                iterator.remove();
+            } else {
+                floor = Math.min(floor, view.floor());
+            }
+        }
+        Chunk current = chunk;
+        int base = Math.max(floor, current.base());
+        int retained = size - base;
+        if (base == current.base() && retained < current.entries().length) {
+            return current;
+        }
+        Entry[] entries = new Entry[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(retained) * 2)];
+        System.arraycopy(current.entries(), base - current.base(), entries, 0, retained);
+        chunk = new Chunk(entries, base);
+        return chunk;
+    }
+
+    /**
+     * Returns the number of messages ever appended to the log, including the dropped ones.
+     *
+     * @return the number of messages.
+     */
+    public int size() {
+        return size;
+    }
+
+    Entry entry(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        Chunk current = chunk;
+        return current.entries()[index - current.base()];
+    }
+
+    /**
+     * Finds a message delivered to a history, searching backwards since it is almost always the latest one.
+     *
+     * @param message the delivered message.
+     * @param from    the first index to search.
+     * @return the index of the message, or -1 if it is not in the log.
+     */
+    int indexOf(ChatMessage message, int from) {
+        int count = size;
+        Chunk current = chunk;
+        for (int index = count - 1; index >= Math.max(from, current.base()); index--) {
+            if (current.entries()[index - current.base()].matches(message)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first message matching a condition, searching forwards.
+     *
+     * @param matcher the condition.
+     * @param from    the first index to search.
+     * @return the index of the message, or -1 if there is none.
+     */
+    int find(Predicate<Entry> matcher, int from) {
+        int count = size;
+        Chunk current = chunk;
+        for (int index = Math.max(from, current.base()); index < count; index++) {
+            if (matcher.test(current.entries()[index - current.base()])) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the messages retained by the log, as seen by the agents they were sent to.
+     *
+     * @return an unmodifiable snapshot of the messages.
+     */
+    public List<ChatMessage> messages() {
+        int count = size;
+        Chunk current = chunk;
+        return Arrays.stream(current.entries(), 0, count - current.base()).map(Entry::asUser).toList();
+    }
+
+    /**
+     * Returns a new, empty history of a participant with the manager, or of the manager with a participant. The
+     * messages spoken by the participant have the given role in the history, the other messages the opposite role.
+     *
+     * @param participant     the participant.
+     * @param participantRole the role of the messages spoken by the participant.
+     * @param manager         the manager of the group chat.
+     * @return an empty view of the log.
+     */
+    synchronized List<ChatMessage> history(Agent participant, ChatMessageRole participantRole, Agent manager) {
+        GroupHistory history = new GroupHistory(this, participant, participantRole, manager);
+        views.add(new WeakReference<>(history));
+        return history;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the mentions of a fixed set of names in a single scan of the content.
+ * <p>
+ * The names are compiled once into an Aho-Corasick automaton, so finding all the mentions costs one pass over the
+ * content whatever the number of names. A mention must be surrounded by non-word characters or the ends of the
+ * content, and the mentions of the same name never overlap, which gives the same counts as searching each name with
+ * the regex {@code (?<=\W)name(?=\W)} in the padded content.
+ *
+ * @author HamaWhite
+ */
+public final class MentionMatcher {
+
+    private static final int ASCII = 128;
+
+    private final String[] names;
+
+    private final int[] lengths;
+
+    /**
+     * the index in the alphabet of the ascii characters, 0 for the characters that appear in no name.
+     */
+    private final int[] asciiIndex = new int[ASCII];
+
+    /**
+     * the index in the alphabet of the other characters.
+     */
+    private final Map<Character, Integer> otherIndex = new HashMap<>();
+
+    private final int alphabetSize;
+
+    /**
+     * the transitions of the automaton, the next state is at {@code state * alphabetSize + index}.
+     */
+    private final int[] transitions;
+
+    /**
+     * the names ending at each state, including the ones reached through the failure links.
+     */
+    private final int[][] outputs;
+
+    public MentionMatcher(List<String> names) {
+        this.names = new LinkedHashSet<>(names).stream()
+                .filter(name -> name != null && !name.isEmpty())
+                .toArray(String[]::new);
+        this.lengths = Arrays.stream(this.names).mapToInt(String::length).toArray();
+
+        int size = 1;
+        for (String name : this.names) {
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (indexOf(c) == 0) {
+                    if (c < ASCII) {
+                        asciiIndex[c] = size++;
+                    } else {
+                        otherIndex.put(c, size++);
+                    }
+                }
+            }
+        }
+        this.alphabetSize = size;
+
+        // build the trie, state 0 is the root.
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(newState());
+        ends.add(new ArrayList<>());
+        for (int id = 0; id < this.names.length; id++) {
+            int state = 0;
+            for (char c : this.names[id].toCharArray()) {
+                int index = indexOf(c);
+                if (trie.get(state)[index] <= 0) {
+                    trie.get(state)[index] = trie.size();
+                    trie.add(newState());
+                    ends.add(new ArrayList<>());
+                }
+                state = trie.get(state)[index];
+            }
+            ends.get(state).add(id);
+        }
+
+        // turn the trie into a complete automaton, breadth first so the failure state is always done first.
+        int states = trie.size();
+        this.transitions = new int[states * alphabetSize];
+        this.outputs = new int[states][];
+        int[] failure = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int index = 0; index < alphabetSize; index++) {
+            int next = index == 0 ? 0 : Math.max(trie.get(0)[index], 0);
+            transitions[index] = next;
+            if (next > 0) {
+                queue.add(next);
+            }
+        }
+        outputs[0] = new int[0];
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] fallback = Arrays.copyOfRange(transitions, failure[state] * alphabetSize,
+                    (failure[state] + 1) * alphabetSize);
+            outputs[state] = concat(ends.get(state), outputs[failure[state]]);
+            for (int index = 0; index < alphabetSize; index++) {
+                int next = index == 0 ? 0 : trie.get(state)[index];
+                if (next > 0) {
+                    failure[next] = fallback[index];
+                    transitions[state * alphabetSize + index] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * alphabetSize + index] = fallback[index];
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the number of times each name is mentioned in the content.
+     *
+     * @param content the content to scan.
+     * @return a map counter for the mentioned names, without the names that are not mentioned.
+     */
+    public Map<String, Integer> count(CharSequence content) {
+        Map<String, Integer> mentions = new HashMap<>();
+        if (content == null || names.length == 0) {
+            return mentions;
+        }
+        int[] counts = new int[names.length];
+        // the end of the last counted mention of each name, so that the mentions of a name do not overlap.
+        int[] lastEnds = new int[names.length];
+        int length = content.length();
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            state = transitions[state * alphabetSize + indexOf(content.charAt(i))];
+            for (int id : outputs[state]) {
+                int start = i + 1 - lengths[id];
+                if (start >= lastEnds[id]
+                        && (start == 0 || !isWordChar(content.charAt(start - 1)))
+                        && (i + 1 == length || !isWordChar(content.charAt(i + 1)))) {
+                    counts[id]++;
+                    lastEnds[id] = i + 1;
+                }
+            }
+        }
+        for (int id = 0; id < names.length; id++) {
+            if (counts[id] > 0) {
+                mentions.put(names[id], counts[id]);
+            }
+        }
+        return mentions;
+    }
+
+    private int[] newState() {
+        int[] state = new int[alphabetSize];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private int indexOf(char c) {
+        return c < ASCII ? asciiIndex[c] : otherIndex.getOrDefault(c, 0);
+    }
+
+    private static int[] concat(List<Integer> ends, int[] inherited) {
+        int[] result = new int[ends.size() + inherited.length];
+        for (int i = 0; i < ends.size(); i++) {
+            result[i] = ends.get(i);
+        }
+        System.arraycopy(inherited, 0, result, ends.size(), inherited.length);
+        return result;
+    }
+
+    /**
+     * Whether the character is a word character, the complement of {@code \W} in a regex.
+     */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group.selector;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.agent.group.GroupChat;
+
+import java.util.List;
+
+/**
+ * Uses a strategy, and a fallback strategy when the first one cannot decide. The fallback only picks among the
+ * candidates the first strategy allows, so a transition graph still applies when the llm breaks its ties. When the
+ * first strategy allows none of them, the fallback picks among all the candidates.
+ *
+ * @author HamaWhite
+ */
+public class FallbackSelector implements SpeakerSelector {
+
+    private final SpeakerSelector primary;
+
+    private final SpeakerSelector fallback;
+
+    public FallbackSelector(SpeakerSelector primary, SpeakerSelector fallback) {
+        this.primary = primary;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Agent select(GroupChat groupChat, Agent lastSpeaker, List<Agent> candidates, ConversableAgent manager) {
+        Agent speaker = primary.select(groupChat, lastSpeaker, candidates, manager);
+        if (speaker != null) {
+            return speaker;
+        }
+        List<Agent> allowed = primary.allowedCandidates(groupChat, lastSpeaker, candidates);
+        // no agent is allowed to speak next, the fallback picks among all of them rather than ending the chat.
+        return fallback.select(groupChat, lastSpeaker, allowed.isEmpty() ? candidates : allowed, manager);
+    }
+
+    @Override
+    public List<Agent> allowedCandidates(GroupChat groupChat, Agent lastSpeaker, List<Agent> candidates) {
+        return fallback.allowedCandidates(groupChat, lastSpeaker,
+                primary.allowedCandidates(groupChat, lastSpeaker, candidates));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group.selector;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.agent.group.GroupChat;
+import com.hw.autogen4j.entity.ReplyResult;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.SYSTEM;
+
+/**
+ * Asks the llm to read the conversation and pick the next speaker, which costs one round trip per round. It cannot
+ * decide when the reply does not name exactly one of the candidates.
+ *
+ * @author HamaWhite
+ */
+public class LlmSpeakerSelector implements SpeakerSelector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LlmSpeakerSelector.class);
+
+    @Override
+    public Agent select(GroupChat groupChat, Agent lastSpeaker, List<Agent> candidates, ConversableAgent manager) {
+        manager.updateSystemMessage(groupChat.selectSpeakerMsg(candidates));
+
+        List<String> names = candidates.stream().map(Agent::getName).toList();
+        List<ChatMessage> updatedMessages = new ArrayList<>(groupChat.getMessages());
+        updatedMessages.add(new ChatMessage(SYSTEM,
+                "Read the above conversation. Then select the next role from %s to play. Only return the role."
+                        .formatted(names)));
+
+        ReplyResult replyResult = manager.generateOaiReply(manager, updatedMessages);
+        String content = replyResult.reply().getContent();
+
+        // if exactly one agent is mentioned, use it. Otherwise, the group chat decides what to do.
+        Map<String, Integer> mentions = groupChat.mentionedNames(content, names);
+        if (mentions.size() != 1) {
+            LOG.warn("Failed to resolve the next speaker's name, the speaker selection OAI call returned: {}", content);
+            return null;
+        }
+        return groupChat.agentByName(mentions.keySet().iterator().next());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group.selector;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.agent.group.GroupChat;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the agent explicitly mentioned with {@code @name} in the last message of the group chat.
+ * <p>
+ * The selector cannot decide when the last message mentions no candidate, or more than one.
+ *
+ * @author HamaWhite
+ */
+public class MentionSelector implements SpeakerSelector {
+
+    @Override
+    public Agent select(GroupChat groupChat, Agent lastSpeaker, List<Agent> candidates, ConversableAgent manager) {
+        List<ChatMessage> messages = groupChat.getMessages();
+        if (messages.isEmpty()) {
+            return null;
+        }
+        String content = messages.get(messages.size() - 1).getContent();
+        if (content == null || content.indexOf('@') < 0) {
+            return null;
+        }
+        List<String> handles = candidates.stream().map(agent -> "@" + agent.getName()).toList();
+        Map<String, Integer> mentions = groupChat.mentionedNames(content, handles);
+        if (mentions.size() != 1) {
+            return null;
+        }
+        return candidates.get(handles.indexOf(mentions.keySet().iterator().next()));
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group.selector;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.agent.group.GroupChat;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Picks the next speaker at random among the candidates.
+ *
+ * @author HamaWhite
+ */
+public class RandomSelector implements SpeakerSelector {
+
+    private final Random random;
+
+    public RandomSelector(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public Agent select(GroupChat groupChat, Agent lastSpeaker, List<Agent> candidates, ConversableAgent manager) {
+        return candidates.isEmpty() ? null : candidates.get(random.nextInt(candidates.size()));
+    }
+}
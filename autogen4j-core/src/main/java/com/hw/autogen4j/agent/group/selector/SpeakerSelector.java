@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group.selector;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.agent.group.GroupChat;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Selects the next speaker of a group chat.
+ * <p>
+ * Only the llm strategy costs a round trip to the llm, the other strategies decide locally. They can be combined, for
+ * example {@code SpeakerSelector.mention().orElse(SpeakerSelector.roundRobin())} lets an agent hand over to another
+ * one by mentioning it with {@code @name}, and goes round the group otherwise.
+ *
+ * @author HamaWhite
+ */
+@FunctionalInterface
+public interface SpeakerSelector {
+
+    /**
+     * Selects the next speaker.
+     *
+     * @param groupChat   the group chat.
+     * @param lastSpeaker the agent who spoke last.
+     * @param candidates  the agents allowed to speak next, in the order of the group chat.
+     * @param manager     the group chat manager, used to call the llm.
+     * @return the next speaker, or null if this strategy cannot decide.
+     */
+    Agent select(GroupChat groupChat, Agent lastSpeaker, List<Agent> candidates, ConversableAgent manager);
+
+    /**
+     * Returns the candidates this strategy allows to speak next. When this strategy cannot decide, the fallback
+     * strategy picks among them.
+     *
+     * @param groupChat   the group chat.
+     * @param lastSpeaker the agent who spoke last.
+     * @param candidates  the agents allowed to speak next, in the order of the group chat.
+     * @return the allowed candidates, in the same order.
+     */
+    default List<Agent> allowedCandidates(GroupChat groupChat, Agent lastSpeaker, List<Agent> candidates) {
+        return candidates;
+    }
+
+    /**
+     * Returns a strategy that lets the agents speak in the order of the group chat.
+     *
+     * @return a round-robin strategy.
+     */
+    static SpeakerSelector roundRobin() {
+        return new RoundRobinSelector();
+    }
+
+    /**
+     * Returns a strategy that picks the next speaker at random.
+     *
+     * @return a random strategy.
+     */
+    static SpeakerSelector random() {
+        return random(new Random());
+    }
+
+    /**
+     * Returns a strategy that picks the next speaker at random.
+     *
+     * @param random the source of randomness.
+     * @return a random strategy.
+     */
+    static SpeakerSelector random(Random random) {
+        return new RandomSelector(random);
+    }
+
+    /**
+     * Returns a strategy that follows a graph of allowed transitions, which cannot decide when more than one agent is
+     * allowed to speak next.
+     *
+     * @param transitions the names of the agents allowed to speak after each agent, by agent name.
+     * @return a transition graph strategy.
+     */
+    static SpeakerSelector transitions(Map<String, ? extends Collection<String>> transitions) {
+        return new TransitionGraphSelector(transitions, null);
+    }
+
+    /**
+     * Returns a strategy that follows a graph of allowed transitions, and lets another strategy pick among the allowed
+     * agents when there is more than one.
+     *
+     * @param transitions the names of the agents allowed to speak after each agent, by agent name.
+     * @param tieBreaker  picks the next speaker among the allowed agents.
+     * @return a transition graph strategy.
+     */
+    static SpeakerSelector transitions(Map<String, ? extends Collection<String>> transitions,
+            SpeakerSelector tieBreaker) {
+        return new TransitionGraphSelector(transitions, tieBreaker);
+    }
+
+    /**
+     * Returns a strategy that picks the agent explicitly mentioned with {@code @name} in the last message, which
+     * cannot decide when no agent or more than one agent is mentioned.
+     *
+     * @return a mention strategy.
+     */
+    static SpeakerSelector mention() {
+        return new MentionSelector();
+    }
+
+    /**
+     * Returns a strategy that asks the llm to read the conversation and pick the next speaker.
+     *
+     * @return an llm strategy.
+     */
+    static SpeakerSelector llm() {
+        return new LlmSpeakerSelector();
+    }
+
+    /**
+     * Returns a strategy that tries the cheap strategy first, and asks the llm only when it cannot decide.
+     *
+     * @param cheap the strategy to try first.
+     * @return a hybrid strategy.
+     */
+    static SpeakerSelector hybrid(SpeakerSelector cheap) {
+        return cheap.orElse(llm());
+    }
+
+    /**
+     * Returns a strategy that uses this strategy, and the fallback strategy when this one cannot decide. The fallback
+     * only picks among the candidates this strategy allows, for example the agents a transition graph allows after
+     * the last speaker, or among all the candidates when this strategy allows none of them.
+     *
+     * @param fallback the strategy to use when this one cannot decide.
+     * @return the combined strategy.
+     */
+    default SpeakerSelector orElse(SpeakerSelector fallback) {
+        return new FallbackSelector(this, fallback);
+    }
+}
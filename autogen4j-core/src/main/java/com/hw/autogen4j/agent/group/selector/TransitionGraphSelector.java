@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group.selector;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.agent.group.GroupChat;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Follows a graph of allowed transitions between the agents.
+ * <p>
+ * When exactly one agent is allowed to speak after the last speaker, it is selected. When several agents are allowed,
+ * the tie breaker picks one among them, if there is no tie breaker the selector cannot decide. An agent without
+ * outgoing transitions places no restriction on the next speaker. A fallback strategy also picks among the allowed
+ * agents only, or among all the agents when none is allowed, for example after an agent with an empty set of
+ * transitions.
+ *
+ * @author HamaWhite
+ */
+public class TransitionGraphSelector implements SpeakerSelector {
+
+    private final Map<String, Set<String>> transitions;
+
+    private final SpeakerSelector tieBreaker;
+
+    public TransitionGraphSelector(Map<String, ? extends Collection<String>> transitions, SpeakerSelector tieBreaker) {
+        this.transitions = transitions.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey,
+                        entry -> Set.copyOf(entry.getValue())));
+        this.tieBreaker = tieBreaker;
+    }
+
+    @Override
+    public Agent select(GroupChat groupChat, Agent lastSpeaker, List<Agent> candidates, ConversableAgent manager) {
+        List<Agent> nextSpeakers = allowedCandidates(groupChat, lastSpeaker, candidates);
+        if (nextSpeakers.size() == 1) {
+            return nextSpeakers.get(0);
+        }
+        if (nextSpeakers.isEmpty() || tieBreaker == null) {
+            return null;
+        }
+        return tieBreaker.select(groupChat, lastSpeaker, nextSpeakers, manager);
+    }
+
+    /**
+     * The agents the graph allows to speak after the last speaker.
+     */
+    @Override
+    public List<Agent> allowedCandidates(GroupChat groupChat, Agent lastSpeaker, List<Agent> candidates) {
+        Set<String> allowed = lastSpeaker == null ? null : transitions.get(lastSpeaker.getName());
+        if (allowed == null) {
+            return candidates;
+        }
+        return candidates.stream().filter(agent -> allowed.contains(agent.getName())).toList();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.chat.ChatCompletionResp;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base class of the response caches, which store responses as JSON and record hits and misses.
+ * <p>
+ * Storing the JSON instead of the response object bounds the cache by size, and makes sure callers never share a
+ * mutable response through the cache.
+ *
+ * @author HamaWhite
+ */
+public abstract class AbstractResponseCache implements ResponseCache {
+
+    private static final ObjectMapper MAPPER = OpenAiClient.defaultObjectMapper();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Loads the JSON of the cached response.
+     *
+     * @param key the key of the request.
+     * @return the JSON of the response, or null if there is none.
+     */
+    protected abstract String load(String key);
+
+    /**
+     * Stores the JSON of the response.
+     *
+     * @param key   the key of the request.
+     * @param value the JSON of the response.
+     */
+    protected abstract void store(String key, String value);
+
+    @Override
+    public ChatCompletionResp get(String key) {
+        String value = load(key);
+        if (value == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        try {
+            return MAPPER.readValue(value, ChatCompletionResp.class);
+        } catch (JsonProcessingException e) {
+            throw new Autogen4jException("Failed to read the cached response.", e);
+        }
+    }
+
+    @Override
+    public void put(String key, ChatCompletionResp response) {
+        try {
+            store(key, MAPPER.writeValueAsString(response));
+        } catch (JsonProcessingException e) {
+            throw new Autogen4jException("Failed to write the response to the cache.", e);
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum());
+    }
+}
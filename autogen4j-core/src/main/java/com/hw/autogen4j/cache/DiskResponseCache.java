@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * An on-disk response cache that survives restarts, one JSON file per response.
+ * <p>
+ * Errors reading or writing the cache directory are logged and treated as cache misses, a broken cache never breaks the
+ * conversation.
+ *
+ * @author HamaWhite
+ */
+public class DiskResponseCache extends AbstractResponseCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiskResponseCache.class);
+
+    private final Path directory;
+
+    /**
+     * Creates an on-disk cache.
+     *
+     * @param directory the directory of the cached responses, created if it does not exist.
+     */
+    public DiskResponseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    private Path pathOf(String key) {
+        return directory.resolve(key + ".json");
+    }
+
+    @Override
+    protected String load(String key) {
+        try {
+            return Files.readString(pathOf(key));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Failed to read the cached response {}.", key, e);
+            return null;
+        }
+    }
+
+    @Override
+    protected void store(String key, String value) {
+        try {
+            Files.createDirectories(directory);
+            // write to a temp file first, so that concurrent readers never see a partial response.
+            Path tempFile = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(tempFile, value);
+            Files.move(tempFile, pathOf(key), ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOG.warn("Failed to write the cached response {}.", key, e);
+        }
+    }
+}
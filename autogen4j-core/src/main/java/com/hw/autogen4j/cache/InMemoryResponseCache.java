@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * An in-memory LRU response cache, bounded by the total size of the cached responses.
+ *
+ * @author HamaWhite
+ */
+public class InMemoryResponseCache extends AbstractResponseCache {
+
+    private final Cache<String, String> cache;
+
+    /**
+     * Creates an in-memory cache.
+     *
+     * @param maximumSize the maximum total size of the cached responses, in characters of JSON.
+     */
+    public InMemoryResponseCache(long maximumSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumSize)
+                .weigher((String key, String value) -> key.length() + value.length())
+                .build();
+    }
+
+    @Override
+    protected String load(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    protected void store(String key, String value) {
+        cache.put(key, value);
+    }
+
+    /**
+     * Returns the number of cached responses.
+     *
+     * @return the number of cached responses.
+     */
+    public long size() {
+        return cache.size();
+    }
+}
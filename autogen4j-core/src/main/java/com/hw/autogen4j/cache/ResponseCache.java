@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.chat.ChatCompletion;
+import com.hw.openai.entity.chat.ChatCompletionResp;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * A cache of chat completion responses, keyed by the content of the request.
+ * <p>
+ * Only deterministic requests, such as the ones sent with temperature 0, should be cached, because a cache hit always
+ * returns the same response for the same request.
+ *
+ * @author HamaWhite
+ */
+public interface ResponseCache {
+
+    /**
+     * Returns the cached response for the key.
+     *
+     * @param key the key of the request, see {@link #key(ChatCompletion)}.
+     * @return the cached response, or null if there is none.
+     */
+    ChatCompletionResp get(String key);
+
+    /**
+     * Caches the response for the key.
+     *
+     * @param key      the key of the request, see {@link #key(ChatCompletion)}.
+     * @param response the response to cache.
+     */
+    void put(String key, ChatCompletionResp response);
+
+    /**
+     * Returns the hit and miss statistics of the cache.
+     *
+     * @return the statistics of the cache.
+     */
+    CacheStats stats();
+
+    /**
+     * Computes a stable key for the request, a SHA-256 hash of the model, the parameters and all the messages,
+     * including the system message.
+     *
+     * @param request the chat completion request.
+     * @return the hex encoded key of the request.
+     */
+    static String key(ChatCompletion request) {
+        try {
+            return DigestUtils.sha256Hex(KeyMapperHolder.MAPPER.writeValueAsBytes(request));
+        } catch (JsonProcessingException e) {
+            throw new Autogen4jException("Failed to compute the cache key of the request.", e);
+        }
+    }
+
+    /**
+     * Serializes the request the same way it is sent, with map entries sorted to keep the key stable.
+     */
+    final class KeyMapperHolder {
+
+        private static final ObjectMapper MAPPER = OpenAiClient.defaultObjectMapper()
+                .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+        private KeyMapperHolder() {
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.cache;
+
+/**
+ * A two-tier response cache, an in-memory tier in front of an on-disk tier.
+ * <p>
+ * Responses are written to both tiers, and responses only found on disk are promoted to memory.
+ *
+ * @author HamaWhite
+ */
+public class TieredResponseCache extends AbstractResponseCache {
+
+    private final InMemoryResponseCache memory;
+
+    private final DiskResponseCache disk;
+
+    public TieredResponseCache(InMemoryResponseCache memory, DiskResponseCache disk) {
+        this.memory = memory;
+        this.disk = disk;
+    }
+
+    @Override
+    protected String load(String key) {
+        String value = memory.load(key);
+        if (value == null) {
+            value = disk.load(key);
+            if (value != null) {
+                memory.store(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    protected void store(String key, String value) {
+        memory.store(key, value);
+        disk.store(key, value);
+    }
+}
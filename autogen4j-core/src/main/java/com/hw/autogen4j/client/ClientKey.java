@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.client;
+
+import com.hw.openai.OpenAiClient;
+
+/**
+ * Identifies the settings of an OpenAI client, agents with the same settings share the same client.
+ * <p>
+ * Null settings fall back to the environment variables when the client is created, for example OPENAI_API_KEY.
+ *
+ * @param openaiApiBase  the base url of the OpenAI API.
+ * @param openaiApiKey   the api key.
+ * @param openaiProxy    the http proxy.
+ * @param requestTimeout the timeout of a request in seconds.
+ *
+ * @author HamaWhite
+ */
+public record ClientKey(String openaiApiBase, String openaiApiKey, String openaiProxy, long requestTimeout) {
+
+    /**
+     * Creates and initializes a new client with these settings.
+     *
+     * @return a new client.
+     */
+    public OpenAiClient newClient() {
+        return OpenAiClient.builder()
+                .openaiApiBase(openaiApiBase)
+                .openaiApiKey(openaiApiKey)
+                .openaiProxy(openaiProxy)
+                .requestTimeout(requestTimeout)
+                .build()
+                .init();
+    }
+
+    @Override
+    public String toString() {
+        // never print the api key.
+        return "ClientKey[openaiApiBase=%s, openaiApiKey=%s, openaiProxy=%s, requestTimeout=%d]"
+                .formatted(openaiApiBase, openaiApiKey == null ? null : "***", openaiProxy, requestTimeout);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.client;
+
+import com.hw.openai.OpenAiClient;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A pool of OpenAI clients keyed by their settings.
+ * <p>
+ * Each client owns an HTTP stack with its own connection pool and dispatcher, so sharing one client among all the
+ * agents with the same settings reuses connections and saves the cost of creating a client per agent. Clients are
+ * created on first use.
+ *
+ * @author HamaWhite
+ */
+public class OpenAiClientPool implements AutoCloseable {
+
+    private static final OpenAiClientPool SHARED = new OpenAiClientPool();
+
+    private final Map<ClientKey, OpenAiClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the pool shared by all the agents of the JVM.
+     *
+     * @return the shared pool.
+     */
+    public static OpenAiClientPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the client for the settings, creating it on first use.
+     *
+     * @param key the settings of the client.
+     * @return the client for the settings.
+     */
+    public OpenAiClient get(ClientKey key) {
+        return clients.computeIfAbsent(key, ClientKey::newClient);
+    }
+
+    /**
+     * Returns the number of clients in the pool.
+     *
+     * @return the number of clients.
+     */
+    public int size() {
+        return clients.size();
+    }
+
+    /**
+     * Closes and removes all the clients of the pool.
+     */
+    @Override
+    public void close() {
+        clients.values().removeIf(client -> {
+            client.close();
+            return true;
+        });
+    }
+}
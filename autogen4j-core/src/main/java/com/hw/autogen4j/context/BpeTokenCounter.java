@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.context;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hw.autogen4j.tokenizer.BpeTokenizer;
+import com.hw.autogen4j.tokenizer.Encoding;
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.chat.ChatMessageRole;
+import com.hw.openai.entity.chat.ToolCall;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A token counter that encodes the messages with the byte pair encoding of the model, so the counts match the prompt
+ * tokens reported by the llm.
+ * <p>
+ * Encoding is much slower than looking up a count, so the count of each message is cached until the message is
+ * garbage collected. Messages are mutable, so a cached count is only used while the role, content, name and tool calls
+ * of the message are still the same instances as when it was counted. That makes counting a history that only grows at
+ * the end a matter of lookups, which is cheap enough to do on every turn.
+ *
+ * @author HamaWhite
+ */
+public class BpeTokenCounter implements TokenCounter {
+
+    /**
+     * the tokens every message is wrapped with, see the OpenAI cookbook on counting tokens.
+     */
+    private static final int TOKENS_PER_MESSAGE = 3;
+
+    private static final int TOKENS_PER_NAME = 1;
+
+    private static final Map<Encoding, BpeTokenCounter> SHARED = new EnumMap<>(Encoding.class);
+
+    private final BpeTokenizer tokenizer;
+
+    private final Cache<ChatMessage, Counted> counts = CacheBuilder.newBuilder().weakKeys().build();
+
+    public BpeTokenCounter(BpeTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * Returns the counter shared by all users of the encoding, so they share the cached counts too.
+     *
+     * @param encoding the encoding.
+     * @return the shared counter of the encoding.
+     */
+    public static BpeTokenCounter of(Encoding encoding) {
+        synchronized (SHARED) {
+            return SHARED.computeIfAbsent(encoding, key -> new BpeTokenCounter(BpeTokenizer.of(key)));
+        }
+    }
+
+    @Override
+    public int count(ChatMessage message) {
+        Counted counted = counts.getIfPresent(message);
+        if (counted != null && counted.matches(message)) {
+            return counted.tokens();
+        }
+        counted = new Counted(message.getRole(), message.getContent(), message.getName(), message.getToolCalls(),
+                encode(message));
+        counts.put(message, counted);
+        return counted.tokens();
+    }
+
+    private int encode(ChatMessage message) {
+        int tokens = TOKENS_PER_MESSAGE + tokenizer.countTokens(message.getContent());
+        if (message.getRole() != null) {
+            tokens += tokenizer.countTokens(message.getRole().getValue());
+        }
+        if (message.getName() != null) {
+            tokens += TOKENS_PER_NAME + tokenizer.countTokens(message.getName());
+        }
+        if (message.getToolCalls() != null) {
+            for (ToolCall toolCall : message.getToolCalls()) {
+                if (toolCall.getFunction() != null) {
+                    tokens += tokenizer.countTokens(toolCall.getFunction().getName())
+                            + tokenizer.countTokens(toolCall.getFunction().getArguments());
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * The count of a message, along with the fields it was counted from.
+     */
+    private record Counted(ChatMessageRole role, String content, String name, List<ToolCall> toolCalls, int tokens) {
+
+        boolean matches(ChatMessage message) {
+            return role == message.getRole() && content == message.getContent() && name == message.getName()
+                    && toolCalls == message.getToolCalls();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.context;
+
+import com.hw.openai.entity.chat.ChatMessage;
+
+import java.util.List;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.FUNCTION;
+
+/**
+ * Decides which part of the chat history is sent to the llm with each request.
+ * <p>
+ * Policies can be combined, for example {@code ContextPolicy.tokenBudget(4000).pinFirstMessage()} keeps the task
+ * message and as many of the latest messages as fit into 4000 tokens.
+ *
+ * @author HamaWhite
+ */
+@FunctionalInterface
+public interface ContextPolicy {
+
+    /**
+     * Selects the messages to send to the llm.
+     *
+     * @param messages the chat history, oldest first.
+     * @return the messages to send, in the order of the history.
+     */
+    List<ChatMessage> apply(List<ChatMessage> messages);
+
+    /**
+     * Returns a policy that keeps the whole history.
+     *
+     * @return a policy that keeps the whole history.
+     */
+    static ContextPolicy all() {
+        return messages -> messages;
+    }
+
+    /**
+     * Returns a policy that keeps the last n messages.
+     *
+     * @param n the number of messages to keep.
+     * @return a policy that keeps the last n messages.
+     */
+    static ContextPolicy lastMessages(int n) {
+        return new LastMessagesPolicy(n);
+    }
+
+    /**
+     * Returns a policy that keeps the latest messages that fit into the token budget, using an estimate of the number
+     * of tokens.
+     *
+     * @param maxTokens the maximum number of tokens of the kept messages.
+     * @return a policy that keeps the latest messages that fit into the token budget.
+     */
+    static ContextPolicy tokenBudget(int maxTokens) {
+        return tokenBudget(maxTokens, TokenCounter.estimate());
+    }
+
+    /**
+     * Returns a policy that keeps the latest messages that fit into the token budget.
+     *
+     * @param maxTokens    the maximum number of tokens of the kept messages.
+     * @param tokenCounter counts the tokens of a message.
+     * @return a policy that keeps the latest messages that fit into the token budget.
+     */
+    static ContextPolicy tokenBudget(int maxTokens, TokenCounter tokenCounter) {
+        return new TokenBudgetPolicy(maxTokens, tokenCounter);
+    }
+
+    /**
+     * Returns a policy that always keeps the first message of the history, usually the task, and applies this policy
+     * to the other messages.
+     *
+     * @return a policy that pins the first message.
+     */
+    default ContextPolicy pinFirstMessage() {
+        return new PinningPolicy(this, messages -> messages.isEmpty() ? -1 : 0);
+    }
+
+    /**
+     * Returns a policy that always keeps the latest tool output of the history, either a function result or the
+     * result of a code execution, and applies this policy to the other messages.
+     *
+     * @return a policy that pins the latest tool output.
+     */
+    default ContextPolicy pinLatestToolOutput() {
+        return new PinningPolicy(this, messages -> {
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                ChatMessage message = messages.get(i);
+                if (FUNCTION.equals(message.getRole())
+                        || (message.getContent() != null && message.getContent().startsWith("exitcode:"))) {
+                    return i;
+                }
+            }
+            return -1;
+        });
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.context;
+
+import com.hw.openai.entity.chat.ChatMessage;
+
+import java.util.List;
+
+/**
+ * A context policy that keeps the last n messages.
+ *
+ * @author HamaWhite
+ */
+public class LastMessagesPolicy implements ContextPolicy {
+
+    private final int n;
+
+    public LastMessagesPolicy(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("The number of messages to keep must be positive.");
+        }
+        this.n = n;
+    }
+
+    @Override
+    public List<ChatMessage> apply(List<ChatMessage> messages) {
+        return messages.subList(Math.max(0, messages.size() - n), messages.size());
+    }
+}
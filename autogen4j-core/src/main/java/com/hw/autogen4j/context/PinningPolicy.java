@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.context;
+
+import com.hw.openai.entity.chat.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * A context policy that always keeps one pinned message and applies another policy to the other messages.
+ * <p>
+ * The pinned message comes on top of what the other policy keeps, and all the messages stay in the order of the
+ * history.
+ *
+ * @author HamaWhite
+ */
+public class PinningPolicy implements ContextPolicy {
+
+    private final ContextPolicy delegate;
+
+    private final ToIntFunction<List<ChatMessage>> pinnedIndex;
+
+    /**
+     * Creates a pinning policy.
+     *
+     * @param delegate    the policy applied to the messages that are not pinned.
+     * @param pinnedIndex returns the index of the pinned message in the history, or -1 if there is none.
+     */
+    public PinningPolicy(ContextPolicy delegate, ToIntFunction<List<ChatMessage>> pinnedIndex) {
+        this.delegate = delegate;
+        this.pinnedIndex = pinnedIndex;
+    }
+
+    @Override
+    public List<ChatMessage> apply(List<ChatMessage> messages) {
+        // the kept messages are matched by identity, so every message is read once, since histories such as the
+        // compact one return a new instance on each read.
+        List<ChatMessage> snapshot = new ArrayList<>(messages);
+        int pinned = pinnedIndex.applyAsInt(snapshot);
+        if (pinned < 0) {
+            return delegate.apply(snapshot);
+        }
+        List<ChatMessage> others = new ArrayList<>(snapshot);
+        others.remove(pinned);
+
+        Set<ChatMessage> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(delegate.apply(others));
+
+        List<ChatMessage> result = new ArrayList<>(kept.size() + 1);
+        for (int i = 0; i < snapshot.size(); i++) {
+            ChatMessage message = snapshot.get(i);
+            if (i == pinned || kept.contains(message)) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.context;
+
+import com.hw.openai.entity.chat.ChatMessage;
+
+import java.util.List;
+
+/**
+ * A context policy that keeps the latest messages that fit into a token budget.
+ * <p>
+ * The last message is always kept, even if it exceeds the budget on its own, because the llm can't reply to a
+ * conversation it does not see.
+ *
+ * @author HamaWhite
+ */
+public class TokenBudgetPolicy implements ContextPolicy {
+
+    private final int maxTokens;
+
+    private final TokenCounter tokenCounter;
+
+    public TokenBudgetPolicy(int maxTokens, TokenCounter tokenCounter) {
+        this.maxTokens = maxTokens;
+        this.tokenCounter = tokenCounter;
+    }
+
+    @Override
+    public List<ChatMessage> apply(List<ChatMessage> messages) {
+        int start = messages.size();
+        int tokens = 0;
+        while (start > 0) {
+            tokens += tokenCounter.count(messages.get(start - 1));
+            if (tokens > maxTokens && start < messages.size()) {
+                break;
+            }
+            start--;
+        }
+        return messages.subList(start, messages.size());
+    }
+}
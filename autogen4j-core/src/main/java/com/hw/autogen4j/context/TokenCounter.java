@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.context;
+
+import com.hw.autogen4j.tokenizer.Encoding;
+import com.hw.openai.entity.chat.ChatMessage;
+
+/**
+ * Counts the tokens of a chat message.
+ *
+ * @author HamaWhite
+ */
+@FunctionalInterface
+public interface TokenCounter {
+
+    /**
+     * Counts the tokens of the message, including the overhead of the message format.
+     *
+     * @param message the message.
+     * @return the number of tokens.
+     */
+    int count(ChatMessage message);
+
+    /**
+     * Returns a counter that estimates four characters per token, plus a fixed overhead per message.
+     *
+     * @return a counter estimating the number of tokens.
+     */
+    static TokenCounter estimate() {
+        return message -> {
+            String content = message.getContent();
+            return 4 + (content == null ? 0 : (content.length() + 3) / 4);
+        };
+    }
+
+    /**
+     * Returns a counter that encodes the messages with the byte pair encoding of the model, caching the count of
+     * each message.
+     *
+     * @param model the model name, such as gpt-4.
+     * @return the shared counter of the encoding of the model.
+     */
+    static TokenCounter forModel(String model) {
+        return BpeTokenCounter.of(Encoding.forModel(model));
+    }
+}
@@ -18,9 +18,15 @@
 
 package com.hw.autogen4j.entity;
 
+import com.hw.autogen4j.executor.DockerCli;
+import com.hw.autogen4j.executor.DockerClient;
+import com.hw.autogen4j.executor.ExecutionCache;
+
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+
 /**
  * Config for the code execution.
  *
@@ -30,6 +36,11 @@ import lombok.Data;
 @Builder
 public class CodeExecutionConfig {
 
+    /**
+     * the default maximum number of bytes of output kept in memory per stream.
+     */
+    public static final int DEFAULT_MAX_OUTPUT_BYTES = 64 * 1024;
+
     /**
      * the working directory for the code execution.
      */
@@ -41,6 +52,30 @@ public class CodeExecutionConfig {
      */
     private String docker;
 
+    /**
+     * the client running the containers when docker is used.
+     */
+    @Builder.Default
+    private DockerClient dockerClient = new DockerCli();
+
+    /**
+     * the number of warm containers per image and working directory.
+     */
+    @Builder.Default
+    private int containerPoolSize = 2;
+
+    /**
+     * the number of code blocks a container runs before it is replaced.
+     */
+    @Builder.Default
+    private int containerMaxUses = 100;
+
+    /**
+     * the number of failed code blocks after which a container is replaced.
+     */
+    @Builder.Default
+    private int containerMaxFailures = 3;
+
     /**
      * the maximum execution time in seconds.
      */
@@ -53,4 +88,52 @@ public class CodeExecutionConfig {
      */
     @Builder.Default
     private int lastMessagesNumber = 1;
+
+    /**
+     * the maximum number of bytes of output kept in memory per stream, the logs of a larger output only keep its
+     * first and last part, and the whole output is spilled to a temporary file.
+     */
+    @Builder.Default
+    private int maxOutputBytes = DEFAULT_MAX_OUTPUT_BYTES;
+
+    /**
+     * whether to run python code in warm interpreter workers instead of starting a new process per code block.
+     */
+    @Builder.Default
+    private boolean warmWorkers = false;
+
+    /**
+     * the number of warm workers per working directory.
+     */
+    @Builder.Default
+    private int workerPoolSize = 2;
+
+    /**
+     * the number of code blocks a warm worker runs before it is replaced.
+     */
+    @Builder.Default
+    private int workerMaxUses = 50;
+
+    /**
+     * the python modules imported by the warm workers when they start, for example pandas.
+     */
+    @Builder.Default
+    private List<String> preImports = List.of();
+
+    /**
+     * whether to run the code blocks of a message concurrently when they do not depend on each other.
+     */
+    @Builder.Default
+    private boolean parallelCodeBlocks = false;
+
+    /**
+     * the cache of the results of deterministic code, null to always run the code.
+     */
+    private ExecutionCache executionCache;
+
+    /**
+     * whether the code run with this config is deterministic, so that its results can be cached.
+     */
+    @Builder.Default
+    private boolean deterministic = false;
 }
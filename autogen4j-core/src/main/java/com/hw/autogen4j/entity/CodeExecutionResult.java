@@ -19,18 +19,26 @@
 package com.hw.autogen4j.entity;
 
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Represents the result of code execution.
  *
- * @param exitCode  0 if the code executes successfully.
- * @param logs the error message if the code fails to execute, the stdout otherwise.
- * @param image the docker image name after container run when docker is used.
+ * @param exitCode    0 if the code executes successfully.
+ * @param logs        the error message if the code fails to execute, the stdout otherwise.
+ * @param image       the docker image name after container run when docker is used.
+ * @param outputBytes the total number of bytes of the output the logs are taken from.
+ * @param truncated   whether the middle of the output is missing from the logs, because the output was too large.
  *
  * @author HamaWhite
  */
-public record CodeExecutionResult(int exitCode, String logs, String image) {
+public record CodeExecutionResult(int exitCode, String logs, String image, long outputBytes, boolean truncated) {
 
     public CodeExecutionResult(int exitCode, String logs) {
         this(exitCode, logs, null);
     }
+
+    public CodeExecutionResult(int exitCode, String logs, String image) {
+        this(exitCode, logs, image, logs == null ? 0 : logs.getBytes(StandardCharsets.UTF_8).length, false);
+    }
 }
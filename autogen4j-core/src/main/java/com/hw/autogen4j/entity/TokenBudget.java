@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.entity;
+
+/**
+ * The maximum number of tokens a conversation may use, once one of the limits is reached, the conversation ends.
+ *
+ * @param maxPromptTokens     the maximum number of prompt tokens.
+ * @param maxCompletionTokens the maximum number of completion tokens.
+ * @param maxTotalTokens      the maximum number of prompt and completion tokens together.
+ *
+ * @author HamaWhite
+ */
+public record TokenBudget(long maxPromptTokens, long maxCompletionTokens, long maxTotalTokens) {
+
+    private static final TokenBudget UNLIMITED = new TokenBudget(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    /**
+     * A budget without any limit.
+     *
+     * @return the unlimited budget.
+     */
+    public static TokenBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * A budget limiting the prompt and completion tokens together.
+     *
+     * @param maxTotalTokens the maximum number of tokens.
+     * @return a budget limiting the total tokens.
+     */
+    public static TokenBudget ofTotal(long maxTotalTokens) {
+        return new TokenBudget(Long.MAX_VALUE, Long.MAX_VALUE, maxTotalTokens);
+    }
+
+    /**
+     * Returns whether the usage has reached one of the limits of the budget.
+     *
+     * @param usage the token usage of the conversation.
+     * @return true if no more tokens may be used.
+     */
+    public boolean isExhausted(TokenUsage usage) {
+        return usage.promptTokens() >= maxPromptTokens
+                || usage.completionTokens() >= maxCompletionTokens
+                || usage.totalTokens() >= maxTotalTokens;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.entity;
+
+/**
+ * The number of tokens used by llm calls.
+ *
+ * @param promptTokens     the number of tokens of the requests.
+ * @param completionTokens the number of tokens of the replies.
+ *
+ * @author HamaWhite
+ */
+public record TokenUsage(long promptTokens, long completionTokens) {
+
+    public static final TokenUsage EMPTY = new TokenUsage(0, 0);
+
+    public long totalTokens() {
+        return promptTokens + completionTokens;
+    }
+
+    public TokenUsage plus(TokenUsage other) {
+        return new TokenUsage(promptTokens + other.promptTokens, completionTokens + other.completionTokens);
+    }
+
+    public TokenUsage minus(TokenUsage other) {
+        return new TokenUsage(promptTokens - other.promptTokens, completionTokens - other.completionTokens);
+    }
+}
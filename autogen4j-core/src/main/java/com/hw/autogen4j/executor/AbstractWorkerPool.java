@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.hw.autogen4j.exception.Autogen4jException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.hw.autogen4j.util.ThreadUtil.newVirtualThreadPerTaskExecutor;
+
+/**
+ * A pool of warm workers that are expensive to start, such as interpreters or containers.
+ * <p>
+ * The workers are started ahead of time in the background, each one runs many code blocks, and a worker that cannot be
+ * reused is destroyed and replaced in the background. At most {@code size} code blocks run at the same time, the
+ * others wait for a free worker.
+ *
+ * @param <W> the type of the workers.
+ * @author HamaWhite
+ */
+public abstract class AbstractWorkerPool<W> implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractWorkerPool.class);
+
+    /**
+     * starts the workers in the background.
+     */
+    private static final ExecutorService STARTER = newVirtualThreadPerTaskExecutor();
+
+    private final int size;
+
+    private final BlockingQueue<W> idleWorkers = new LinkedBlockingQueue<>();
+
+    /**
+     * limits the number of code blocks running at the same time to the size of the pool.
+     */
+    private final Semaphore permits;
+
+    /**
+     * the number of workers being started in the background.
+     */
+    private final AtomicInteger starting = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    protected AbstractWorkerPool(int size) {
+        this.size = size;
+        this.permits = new Semaphore(size);
+    }
+
+    /**
+     * Start a worker, blocking until it is ready.
+     *
+     * @return a worker ready to run code.
+     */
+    protected abstract W startWorker();
+
+    /**
+     * Whether the worker can run more code after its last use.
+     *
+     * @param worker the worker.
+     * @return true if the worker can be reused.
+     */
+    protected abstract boolean reusable(W worker);
+
+    /**
+     * Destroy the worker.
+     *
+     * @param worker the worker.
+     */
+    protected abstract void destroy(W worker);
+
+    /**
+     * Start all the workers in the background, called by the subclasses once they are fully constructed.
+     */
+    protected void prestart() {
+        for (int i = 0; i < size; i++) {
+            startInBackground();
+        }
+    }
+
+    /**
+     * Run a task with a warm worker, waiting for one to be free if all of them are busy.
+     *
+     * @param task the task to run.
+     * @param <R>  the result type of the task.
+     * @return the result of the task.
+     */
+    protected <R> R withWorker(Function<W, R> task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Autogen4jException("Interrupted while waiting for a worker.", e);
+        }
+        W worker = null;
+        try {
+            worker = acquire();
+            return task.apply(worker);
+        } finally {
+            if (worker != null) {
+                release(worker);
+            }
+            permits.release();
+        }
+    }
+
+    private W acquire() {
+        W worker = idleWorkers.poll();
+        try {
+            // wait for the workers being started, unless they all failed to start.
+            while (worker == null && starting.get() > 0) {
+                worker = idleWorkers.poll(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Autogen4jException("Interrupted while waiting for a worker.", e);
+        }
+        return worker != null ? worker : startWorker();
+    }
+
+    private void release(W worker) {
+        if (!closed && idleWorkers.size() < size && reusable(worker)) {
+            idleWorkers.add(worker);
+        } else {
+            destroy(worker);
+            if (!closed) {
+                startInBackground();
+            }
+        }
+    }
+
+    private void startInBackground() {
+        starting.incrementAndGet();
+        STARTER.execute(() -> {
+            try {
+                W worker = startWorker();
+                if (closed || idleWorkers.size() >= size) {
+                    destroy(worker);
+                } else {
+                    idleWorkers.add(worker);
+                }
+            } catch (Exception e) {
+                LOG.warn("Failed to start a warm worker of {}, workers will be started on demand.", this, e);
+            } finally {
+                starting.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of warm workers waiting for code.
+     *
+     * @return the number of idle workers.
+     */
+    public int idleCount() {
+        return idleWorkers.size();
+    }
+
+    /**
+     * Destroy the idle workers, the busy ones are destroyed once their code is done.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (W worker = idleWorkers.poll(); worker != null; worker = idleWorkers.poll()) {
+            destroy(worker);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.hw.autogen4j.entity.CodeBlock;
+import com.hw.autogen4j.entity.CodeExecutionResult;
+import com.hw.autogen4j.exception.Autogen4jException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.hw.autogen4j.util.ThreadUtil.newVirtualThreadPerTaskExecutor;
+
+/**
+ * Runs the code blocks of a message concurrently, as far as the dependencies between them allow.
+ * <p>
+ * A block depends on an earlier block when:
+ * <ul>
+ * <li>it declares it explicitly, with a {@code # depends: <filename or block number>, ...} line.</li>
+ * <li>both blocks use the same file, that is the {@code # filename:} of a block or a quoted file name in the code.</li>
+ * <li>it imports the python module declared by the {@code # filename:} of the earlier block.</li>
+ * <li>either block is a shell block, since shell blocks usually prepare the environment, for example with
+ * {@code pip install}, they run alone.</li>
+ * <li>both blocks have the same code, since the code of a block is written to a file named after its hash.</li>
+ * </ul>
+ * A block only starts once all its dependencies have succeeded, and is skipped if one of them has failed.
+ *
+ * @author HamaWhite
+ */
+public class CodeBlockScheduler {
+
+    private static final Pattern FILENAME_PATTERN = Pattern.compile("^\\s*#\\s*filename:\\s*(\\S+)",
+            Pattern.MULTILINE);
+
+    private static final Pattern DEPENDS_PATTERN = Pattern.compile("^\\s*#\\s*depends:\\s*(.+)$", Pattern.MULTILINE);
+
+    /**
+     * matches the quoted file names, such as 'data.csv' or "output/plot.png".
+     */
+    private static final Pattern QUOTED_FILE_PATTERN = Pattern.compile("['\"]([^'\"\\s]+\\.\\w{1,8})['\"]");
+
+    private static final Set<String> SHELL_LANGUAGES = Set.of("bash", "shell", "sh", "powershell");
+
+    private CodeBlockScheduler() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Infers the dependencies of the code blocks.
+     *
+     * @param codeBlocks the code blocks, in the order of the message.
+     * @return the indexes of the earlier blocks each block depends on.
+     */
+    public static List<Set<Integer>> dependencies(List<CodeBlock> codeBlocks) {
+        List<String> filenames = codeBlocks.stream().map(block -> firstGroup(FILENAME_PATTERN, block.code())).toList();
+        List<Set<String>> files = codeBlocks.stream().map(CodeBlockScheduler::files).toList();
+
+        List<Set<Integer>> dependencies = new ArrayList<>();
+        for (int j = 0; j < codeBlocks.size(); j++) {
+            CodeBlock block = codeBlocks.get(j);
+            Set<String> declared = declaredDependencies(block.code());
+            Set<Integer> dependsOn = new HashSet<>();
+            for (int i = 0; i < j; i++) {
+                String filename = filenames.get(i);
+                if (isShell(block) || isShell(codeBlocks.get(i))
+                        || block.code().equals(codeBlocks.get(i).code())
+                        || declared.contains(String.valueOf(i + 1))
+                        || (filename != null && (declared.contains(filename)
+                                || importsModule(block.code(), filename)))
+                        || files.get(i).stream().anyMatch(files.get(j)::contains)) {
+                    dependsOn.add(i);
+                }
+            }
+            dependencies.add(dependsOn);
+        }
+        return dependencies;
+    }
+
+    /**
+     * Runs the code blocks concurrently, each one once its dependencies have succeeded.
+     *
+     * @param codeBlocks the code blocks, in the order of the message.
+     * @param execution  executes a code block, given its index and the block.
+     * @param executor   the executor the code blocks run on.
+     * @return the result of each code block in the order of the message, null for the skipped blocks.
+     * @throws Autogen4jException if a code block could not be executed, once the other blocks are done.
+     */
+    public static List<CodeExecutionResult> execute(List<CodeBlock> codeBlocks,
+            BiFunction<Integer, CodeBlock, CodeExecutionResult> execution, Executor executor) {
+        List<Set<Integer>> dependencies = dependencies(codeBlocks);
+        List<CompletableFuture<CodeExecutionResult>> futures = new ArrayList<>();
+        for (int j = 0; j < codeBlocks.size(); j++) {
+            int index = j;
+            CodeBlock block = codeBlocks.get(j);
+            List<CompletableFuture<CodeExecutionResult>> required = dependencies.get(j).stream()
+                    .map(futures::get)
+                    .toList();
+            futures.add(CompletableFuture.allOf(required.toArray(new CompletableFuture<?>[0]))
+                    .thenApplyAsync(ignored -> {
+                        boolean failed = required.stream()
+                                .map(CompletableFuture::join)
+                                .anyMatch(result -> result == null || result.exitCode() != 0);
+                        return failed ? null : execution.apply(index, block);
+                    }, executor));
+        }
+        try {
+            // the blocks still running must not be left behind in the working directory.
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            if (e.getCause()instanceof Autogen4jException cause) {
+                throw cause;
+            }
+            throw new Autogen4jException("Failed to execute the code blocks.", e.getCause());
+        }
+    }
+
+    /**
+     * Runs the code blocks concurrently on the shared executor.
+     *
+     * @param codeBlocks the code blocks, in the order of the message.
+     * @param execution  executes a code block, given its index and the block.
+     * @return the result of each code block in the order of the message, null for the skipped blocks.
+     */
+    public static List<CodeExecutionResult> execute(List<CodeBlock> codeBlocks,
+            BiFunction<Integer, CodeBlock, CodeExecutionResult> execution) {
+        return execute(codeBlocks, execution, DefaultExecutorHolder.EXECUTOR);
+    }
+
+    private static boolean isShell(CodeBlock block) {
+        return block.language() != null && SHELL_LANGUAGES.contains(block.language().toLowerCase());
+    }
+
+    private static Set<String> files(CodeBlock block) {
+        Set<String> files = new HashSet<>();
+        String filename = firstGroup(FILENAME_PATTERN, block.code());
+        if (filename != null) {
+            files.add(filename);
+        }
+        Matcher matcher = QUOTED_FILE_PATTERN.matcher(block.code());
+        while (matcher.find()) {
+            files.add(matcher.group(1));
+        }
+        return files;
+    }
+
+    private static Set<String> declaredDependencies(String code) {
+        Set<String> declared = new HashSet<>();
+        Matcher matcher = DEPENDS_PATTERN.matcher(code);
+        while (matcher.find()) {
+            for (String dependency : matcher.group(1).split(",")) {
+                declared.add(dependency.strip());
+            }
+        }
+        return declared;
+    }
+
+    private static boolean importsModule(String code, String filename) {
+        if (!filename.endsWith(".py")) {
+            return false;
+        }
+        String path = filename.substring(0, filename.length() - ".py".length());
+        String module = Pattern.quote(path.substring(path.lastIndexOf('/') + 1));
+        return Pattern.compile("^\\s*(import|from)\\s+" + module + "\\b", Pattern.MULTILINE).matcher(code).find();
+    }
+
+    private static String firstGroup(Pattern pattern, String code) {
+        Matcher matcher = pattern.matcher(code);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * The executor shared by the code blocks, created on first use.
+     */
+    private static final class DefaultExecutorHolder {
+
+        private static final ExecutorService EXECUTOR = newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.hw.autogen4j.entity.CodeExecutionConfig;
+import com.hw.autogen4j.entity.CodeExecutionResult;
+import com.hw.autogen4j.util.BoundedOutputStream;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+import static com.hw.autogen4j.util.CodeUtil.executionResult;
+
+/**
+ * A pool of warm, long-lived containers of one image, with one working directory mounted.
+ * <p>
+ * Creating and starting a container for each code block costs far more than the code usually takes, so the
+ * containers are started ahead of time and each code block runs with {@code docker exec} in one of them. A container
+ * is replaced after a timeout, a maximum number of failures, or a maximum number of uses, so that the state left
+ * behind by the code does not leak for long.
+ * <p>
+ * The pools are closed when the process exits, the containers left behind by a process that was killed are removed
+ * when the next pool of the same docker client starts.
+ *
+ * @author HamaWhite
+ */
+public class ContainerPool extends AbstractWorkerPool<ContainerPool.Container> {
+
+    private static final Map<PoolKey, ContainerPool> POOLS = new ConcurrentHashMap<>();
+
+    static {
+        // the containers outlive the process unless they are removed.
+        Runtime.getRuntime().addShutdownHook(new Thread(ContainerPool::closeAll, "autogen4j-container-pools"));
+    }
+
+    private final PoolKey key;
+
+    private ContainerPool(PoolKey key) {
+        super(key.size());
+        this.key = key;
+        key.client().removeOrphans();
+        prestart();
+    }
+
+    /**
+     * Returns the pool of the image and the working directory of the config, starting its containers on first use.
+     *
+     * @param config the config of the code execution.
+     * @return the pool of the image and the working directory.
+     */
+    public static ContainerPool of(CodeExecutionConfig config) {
+        PoolKey key = new PoolKey(config.getDocker(), Path.of(config.getWorkDir()).toAbsolutePath().normalize(),
+                config.getDockerClient(), config.getContainerPoolSize(), config.getContainerMaxUses(),
+                config.getContainerMaxFailures());
+        return POOLS.computeIfAbsent(key, ContainerPool::new);
+    }
+
+    /**
+     * Run a command in a warm container, waiting for one to be free if all of them are busy.
+     *
+     * @param command        the command to run, relative to the working directory.
+     * @param timeout        the maximum execution time in seconds.
+     * @param maxOutputBytes the maximum number of bytes of output kept in memory per stream.
+     * @return the result of the code execution.
+     */
+    public CodeExecutionResult execute(List<String> command, int timeout, int maxOutputBytes) {
+        return withWorker(container -> {
+            container.uses++;
+            BoundedOutputStream stdout = new BoundedOutputStream(maxOutputBytes);
+            BoundedOutputStream stderr = new BoundedOutputStream(maxOutputBytes);
+            int exitCode;
+            try {
+                exitCode = key.client().exec(container.id, command, timeout, stdout, stderr);
+            } catch (TimeoutException e) {
+                // the code may still be running in the container, which cannot be reused.
+                container.broken = true;
+                return new CodeExecutionResult(1, "Timeout", key.image());
+            }
+            if (exitCode != 0) {
+                container.failures++;
+            }
+            CodeExecutionResult result = executionResult(exitCode, stdout, stderr, key.workDir().toString());
+            return new CodeExecutionResult(result.exitCode(), result.logs(), key.image(), result.outputBytes(),
+                    result.truncated());
+        });
+    }
+
+    @Override
+    protected Container startWorker() {
+        return new Container(key.client().start(key.image(), key.workDir()));
+    }
+
+    @Override
+    protected boolean reusable(Container container) {
+        return !container.broken && container.uses < key.maxUses() && container.failures < key.maxFailures();
+    }
+
+    @Override
+    protected void destroy(Container container) {
+        key.client().remove(container.id);
+    }
+
+    @Override
+    public void close() {
+        POOLS.remove(key, this);
+        super.close();
+    }
+
+    /**
+     * Close all the pools.
+     */
+    public static void closeAll() {
+        POOLS.values().forEach(ContainerPool::close);
+    }
+
+    @Override
+    public String toString() {
+        return "ContainerPool[" + key.image() + ", " + key.workDir() + "]";
+    }
+
+    /**
+     * A running container, only used by one code block at a time.
+     */
+    static final class Container {
+
+        private final String id;
+
+        private int uses;
+
+        private int failures;
+
+        private boolean broken;
+
+        private Container(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * the key of a pool, the docker clients are compared by value so that equal configs share the pool.
+     */
+    private record PoolKey(String image, Path workDir, DockerClient client, int size, int maxUses,
+            int maxFailures) {
+    }
+}
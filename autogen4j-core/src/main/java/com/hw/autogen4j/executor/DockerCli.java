@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.hw.autogen4j.exception.Autogen4jException;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A docker client calling the docker CLI. Two clients calling the same binary are equal, so the configs creating
+ * their own client still share the warm containers of an image and a working directory.
+ *
+ * @author HamaWhite
+ */
+public class DockerCli implements DockerClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DockerCli.class);
+
+    /**
+     * the timeout of the commands managing the containers, in seconds.
+     */
+    private static final int COMMAND_TIMEOUT = 120;
+
+    /**
+     * the label of the containers, its value identifies the JVM which started them.
+     */
+    private static final String POOL_LABEL = "autogen4j.pool";
+
+    /**
+     * the label of the containers identifying the process which started them, as its host, pid and start time.
+     */
+    private static final String OWNER_LABEL = "autogen4j.owner";
+
+    private static final String JVM_ID = UUID.randomUUID().toString();
+
+    /**
+     * the host name, null if it is unknown, then no container is ever considered orphaned.
+     */
+    private static final String HOST = hostName();
+
+    private final String binary;
+
+    public DockerCli() {
+        this("docker");
+    }
+
+    /**
+     * Creates a docker client.
+     *
+     * @param binary the path of the docker binary.
+     */
+    public DockerCli(String binary) {
+        this.binary = binary;
+    }
+
+    @Override
+    public String start(String image, Path workDir) {
+        String mount = workDir.toAbsolutePath().toString();
+        // the container does nothing but waiting for the code to run in it.
+        String containerId = run(List.of("run", "-d", "--rm",
+                "--label=" + POOL_LABEL + "=" + JVM_ID, "--label=" + OWNER_LABEL + "=" + owner(ProcessHandle.current()),
+                "-v", mount + ":" + mount,
+                "-w", mount, image, "tail", "-f", "/dev/null"));
+        if (containerId.isEmpty()) {
+            throw new Autogen4jException("Failed to start a container of the image %s.", image);
+        }
+        return containerId;
+    }
+
+    @Override
+    public int exec(String containerId, List<String> command, int timeout, OutputStream stdout, OutputStream stderr)
+            throws TimeoutException {
+        CommandLine commandLine = new CommandLine(binary).addArgument("exec").addArgument(containerId);
+        command.forEach(argument -> commandLine.addArgument(argument, false));
+
+        DefaultExecutor executor = new DefaultExecutor();
+        executor.setExitValue(0);
+        executor.setStreamHandler(new PumpStreamHandler(stdout, stderr));
+        ExecuteWatchdog watchdog = new ExecuteWatchdog(TimeUnit.SECONDS.toMillis(timeout));
+        executor.setWatchdog(watchdog);
+        try {
+            return executor.execute(commandLine);
+        } catch (ExecuteException e) {
+            if (watchdog.killedProcess()) {
+                throw new TimeoutException("The command timed out in container " + containerId);
+            }
+            return e.getExitValue();
+        } catch (IOException e) {
+            throw new Autogen4jException("Error executing code in container " + containerId, e);
+        }
+    }
+
+    @Override
+    public void remove(String containerId) {
+        try {
+            run(List.of("rm", "-f", containerId));
+        } catch (Autogen4jException e) {
+            LOG.warn("Failed to remove the container {}.", containerId, e);
+        }
+    }
+
+    /**
+     * Remove the labelled containers whose process is provably gone: it ran on this host, and no process with its pid
+     * and its start time is running any more. The containers of other hosts sharing the docker daemon, and the ones
+     * whose process cannot be checked, are left alone.
+     */
+    @Override
+    public void removeOrphans() {
+        String containers;
+        try {
+            containers = run(List.of("ps", "-a", "--filter", "label=" + POOL_LABEL, "--format",
+                    "{{.ID}} {{.Label \"" + POOL_LABEL + "\"}} {{.Label \"" + OWNER_LABEL + "\"}}"));
+        } catch (Autogen4jException e) {
+            LOG.warn("Failed to list the containers of the pools.", e);
+            return;
+        }
+        containers.lines().map(line -> line.trim().split("\\s+"))
+                .filter(fields -> fields.length == 3 && !JVM_ID.equals(fields[1]) && isOrphan(fields[2]))
+                .forEach(fields -> {
+                    LOG.info("Removing the container {} left behind by the process {}.", fields[0], fields[2]);
+                    remove(fields[0]);
+                });
+    }
+
+    /**
+     * Identifies a process by its host, pid and start time, since a pid can be reused once the process is gone.
+     */
+    private static String owner(ProcessHandle process) {
+        long started = process.info().startInstant().map(Instant::toEpochMilli).orElse(-1L);
+        return HOST + "/" + process.pid() + "/" + started;
+    }
+
+    private static boolean isOrphan(String owner) {
+        String[] parts = owner.split("/");
+        if (HOST == null || parts.length != 3 || !HOST.equals(parts[0]) || "-1".equals(parts[2])) {
+            return false;
+        }
+        try {
+            Optional<ProcessHandle> process = ProcessHandle.of(Long.parseLong(parts[1]));
+            if (process.isEmpty()) {
+                return true;
+            }
+            // a process whose start time is unknown may be the owner.
+            return process.get().info().startInstant().isPresent() && !owner(process.get()).equals(owner);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            LOG.warn("The host name is unknown, the orphan containers are not removed.", e);
+            return null;
+        }
+    }
+
+    private String run(List<String> arguments) {
+        CommandLine commandLine = new CommandLine(binary);
+        arguments.forEach(argument -> commandLine.addArgument(argument, false));
+
+        DefaultExecutor executor = new DefaultExecutor();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+        executor.setStreamHandler(new PumpStreamHandler(outputStream, errorStream));
+        executor.setWatchdog(new ExecuteWatchdog(TimeUnit.SECONDS.toMillis(COMMAND_TIMEOUT)));
+        try {
+            executor.execute(commandLine);
+            return outputStream.toString().trim();
+        } catch (IOException e) {
+            throw new Autogen4jException("Failed to run %s %s: %s", binary, arguments.get(0),
+                    errorStream.toString().trim());
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DockerCli other && binary.equals(other.binary);
+    }
+
+    @Override
+    public int hashCode() {
+        return binary.hashCode();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The container operations needed to run code in docker.
+ * <p>
+ * The default implementation calls the docker CLI, tests can stand in a fake binary or another implementation.
+ *
+ * @author HamaWhite
+ */
+public interface DockerClient {
+
+    /**
+     * Start a long-lived container, with the working directory mounted at the same path inside the container. The
+     * container is labelled with the current process, so that it can be removed once the process is gone.
+     *
+     * @param image   the image of the container.
+     * @param workDir the working directory to mount, it is also the working directory of the container.
+     * @return the id of the container.
+     */
+    String start(String image, Path workDir);
+
+    /**
+     * Run a command in a running container, in its working directory.
+     *
+     * @param containerId the id of the container.
+     * @param command     the command to run.
+     * @param timeout     the maximum execution time in seconds.
+     * @param stdout      receives the standard output of the command.
+     * @param stderr      receives the standard error of the command.
+     * @return the exit code of the command.
+     * @throws TimeoutException if the command did not finish in time.
+     */
+    int exec(String containerId, List<String> command, int timeout, OutputStream stdout, OutputStream stderr)
+            throws TimeoutException;
+
+    /**
+     * Stop and remove a container.
+     *
+     * @param containerId the id of the container.
+     */
+    void remove(String containerId);
+
+    /**
+     * Remove the containers started by the processes that exited without closing their pools, for example after being
+     * killed.
+     */
+    void removeOrphans();
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hw.autogen4j.cache.CacheStats;
+import com.hw.autogen4j.entity.CodeExecutionResult;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * An opt-in cache of the results of deterministic code, keyed by the language, the hash of the code and a fingerprint
+ * of the working directory.
+ * <p>
+ * The fingerprint covers the path, size and modification time of every file of the working directory, so any change
+ * of the files invalidates the cached results of that directory. It is only computed again after an execution, or
+ * once the directory is seen to change, so a cache hit does not read the whole directory. Only successful executions
+ * that leave the working directory unchanged are cached, code writing files must run again to write them again.
+ *
+ * @author HamaWhite
+ */
+public class ExecutionCache {
+
+    private final Cache<Key, CodeExecutionResult> cache;
+
+    private final WorkDirFingerprints workDirFingerprints = new WorkDirFingerprints();
+
+    /**
+     * the last fingerprint seen for each working directory.
+     */
+    private final Map<Path, String> fingerprints = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Creates an execution cache.
+     *
+     * @param maximumSize the maximum number of cached results, the least recently used ones are evicted first.
+     */
+    public ExecutionCache(long maximumSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Returns the cached result of the code, or executes it and caches the result.
+     *
+     * @param workDir   the working directory of the code.
+     * @param language  the language of the code.
+     * @param codeHash  the hash of the code.
+     * @param execution executes the code.
+     * @return the result of the code execution.
+     */
+    public CodeExecutionResult computeIfAbsent(String workDir, String language, String codeHash,
+            Supplier<CodeExecutionResult> execution) {
+        Path dir = Path.of(workDir).toAbsolutePath().normalize();
+        String fingerprint = workDirFingerprints.current(dir);
+        invalidateIfChanged(dir, fingerprint);
+
+        Key key = new Key(dir, language, codeHash, fingerprint);
+        CodeExecutionResult result = cache.getIfPresent(key);
+        if (result != null) {
+            hitCount.increment();
+            return result;
+        }
+        missCount.increment();
+        result = execution.get();
+
+        // the events of the files the code wrote may not be delivered yet, so the files are read again.
+        String fingerprintAfter = workDirFingerprints.compute(dir);
+        if (result.exitCode() == 0 && fingerprint.equals(fingerprintAfter)) {
+            cache.put(key, result);
+        }
+        invalidateIfChanged(dir, fingerprintAfter);
+        return result;
+    }
+
+    private void invalidateIfChanged(Path dir, String fingerprint) {
+        String previous = fingerprints.put(dir, fingerprint);
+        if (previous != null && !previous.equals(fingerprint)) {
+            cache.asMap().keySet().removeIf(key -> key.workDir().equals(dir));
+        }
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return the number of cached results.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the hit and miss statistics of the cache.
+     *
+     * @return the statistics of the cache.
+     */
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum());
+    }
+
+    private record Key(Path workDir, String language, String codeHash, String fingerprint) {
+    }
+}
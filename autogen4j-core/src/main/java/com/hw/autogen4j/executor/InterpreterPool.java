@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.hw.autogen4j.entity.CodeExecutionConfig;
+import com.hw.autogen4j.entity.CodeExecutionResult;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A pool of warm python workers for one working directory.
+ * <p>
+ * Starting an interpreter and importing heavy modules such as pandas often takes longer than running the code itself.
+ * The workers of the pool are started ahead of time with the modules already imported, and each one runs many code
+ * blocks. A worker is replaced after a failure, a timeout, or a maximum number of uses, so that the state left behind
+ * by the code, for example a broken module, does not leak for long.
+ *
+ * @author HamaWhite
+ */
+public class InterpreterPool extends AbstractWorkerPool<InterpreterWorker> {
+
+    private static final Map<PoolKey, InterpreterPool> POOLS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(InterpreterPool::closeAll, "autogen4j-interpreter-pools"));
+    }
+
+    private final PoolKey key;
+
+    private InterpreterPool(PoolKey key) {
+        super(key.size());
+        this.key = key;
+        prestart();
+    }
+
+    /**
+     * Returns the pool of the working directory of the config, starting its workers on first use.
+     *
+     * @param config the config of the code execution.
+     * @return the pool of the working directory.
+     */
+    public static InterpreterPool of(CodeExecutionConfig config) {
+        PoolKey key = new PoolKey(Path.of(config.getWorkDir()).toAbsolutePath().normalize(), "python",
+                List.copyOf(config.getPreImports()), config.getWorkerPoolSize(), config.getWorkerMaxUses());
+        return POOLS.computeIfAbsent(key, InterpreterPool::new);
+    }
+
+    /**
+     * Run a code file in a warm worker, waiting for one to be free if all of them are busy.
+     *
+     * @param filename       the code file, relative to the working directory.
+     * @param timeout        the maximum execution time in seconds.
+     * @param maxOutputBytes the maximum number of bytes of output kept in memory per stream.
+     * @return the result of the code execution.
+     */
+    public CodeExecutionResult execute(String filename, int timeout, int maxOutputBytes) {
+        return withWorker(worker -> worker.execute(filename, timeout, maxOutputBytes));
+    }
+
+    @Override
+    protected InterpreterWorker startWorker() {
+        return InterpreterWorker.start(key.executable(), key.workDir(), key.preImports());
+    }
+
+    @Override
+    protected boolean reusable(InterpreterWorker worker) {
+        return worker.reusable(key.maxUses());
+    }
+
+    @Override
+    protected void destroy(InterpreterWorker worker) {
+        worker.destroy();
+    }
+
+    @Override
+    public void close() {
+        POOLS.remove(key, this);
+        super.close();
+    }
+
+    /**
+     * Close all the pools.
+     */
+    public static void closeAll() {
+        POOLS.values().forEach(InterpreterPool::close);
+    }
+
+    @Override
+    public String toString() {
+        return "InterpreterPool[" + key.workDir() + "]";
+    }
+
+    private record PoolKey(Path workDir, String executable, List<String> preImports, int size, int maxUses) {
+    }
+}
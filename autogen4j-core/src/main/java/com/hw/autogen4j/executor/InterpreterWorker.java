@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hw.autogen4j.entity.CodeExecutionResult;
+import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.autogen4j.util.BoundedOutputStream;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.hw.autogen4j.util.CodeUtil.executionResult;
+import static com.hw.autogen4j.util.ThreadUtil.newVirtualThreadPerTaskExecutor;
+
+/**
+ * A python interpreter started once and reused to run many code files, see {@code executor/python_worker.py}.
+ *
+ * @author HamaWhite
+ */
+final class InterpreterWorker {
+
+    private static final String SCRIPT = loadScript();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * reads the responses of the workers, so that waiting for a response can time out.
+     */
+    private static final ExecutorService READER = newVirtualThreadPerTaskExecutor();
+
+    private final Path workDir;
+
+    private final Process process;
+
+    private final BufferedWriter requests;
+
+    private final BufferedReader responses;
+
+    private int uses;
+
+    private boolean healthy = true;
+
+    private InterpreterWorker(Path workDir, Process process) {
+        this.workDir = workDir;
+        this.process = process;
+        this.requests = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.responses = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Start a worker and wait until it has imported the modules.
+     *
+     * @param executable the python executable.
+     * @param workDir    the working directory of the worker.
+     * @param preImports the modules to import before running any code.
+     * @return a worker ready to run code.
+     */
+    static InterpreterWorker start(String executable, Path workDir, List<String> preImports) {
+        List<String> command = new ArrayList<>(List.of(executable, "-u", "-c", SCRIPT));
+        command.addAll(preImports);
+        try {
+            Files.createDirectories(workDir);
+            Process process = new ProcessBuilder(command)
+                    .directory(workDir.toFile())
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            InterpreterWorker worker = new InterpreterWorker(workDir, process);
+            if (worker.responses.readLine() == null) {
+                throw new Autogen4jException("The %s worker exited during startup.", executable);
+            }
+            return worker;
+        } catch (IOException e) {
+            throw new Autogen4jException("Failed to start the " + executable + " worker.", e);
+        }
+    }
+
+    /**
+     * Run a code file in the worker.
+     *
+     * @param filename the code file, relative to the working directory.
+     * @param timeout        the maximum execution time in seconds, the worker is killed past it.
+     * @param maxOutputBytes the maximum number of bytes of output kept in memory per stream.
+     * @return the result of the code execution.
+     */
+    CodeExecutionResult execute(String filename, int timeout, int maxOutputBytes) {
+        uses++;
+        Path stdout = null;
+        Path stderr = null;
+        try {
+            stdout = Files.createTempFile("autogen4j-", ".out");
+            stderr = Files.createTempFile("autogen4j-", ".err");
+            requests.write(MAPPER.writeValueAsString(
+                    Map.of("file", filename, "stdout", stdout.toString(), "stderr", stderr.toString())));
+            requests.newLine();
+            requests.flush();
+
+            CompletableFuture<String> response = CompletableFuture.supplyAsync(this::readResponse, READER);
+            JsonNode exit = MAPPER.readTree(response.get(timeout, TimeUnit.SECONDS)).get("exit");
+            if (exit == null || !exit.canConvertToInt()) {
+                throw new Autogen4jException("Malformed response of the worker.");
+            }
+            int exitCode = exit.asInt();
+            healthy = exitCode == 0;
+            return executionResult(exitCode, capture(stdout, maxOutputBytes), capture(stderr, maxOutputBytes),
+                    workDir.toString());
+        } catch (TimeoutException e) {
+            destroy();
+            return new CodeExecutionResult(1, "Timeout");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            destroy();
+            throw new Autogen4jException("Interrupted while executing code.", e);
+        } catch (IOException | ExecutionException e) {
+            destroy();
+            throw new Autogen4jException("Error executing code.", e);
+        } finally {
+            deleteQuietly(stdout);
+            deleteQuietly(stderr);
+        }
+    }
+
+    private static BoundedOutputStream capture(Path file, int maxOutputBytes) throws IOException {
+        BoundedOutputStream capture = new BoundedOutputStream(maxOutputBytes);
+        Files.copy(file, capture);
+        return capture;
+    }
+
+    private String readResponse() {
+        try {
+            String line = responses.readLine();
+            if (line == null) {
+                throw new Autogen4jException("The worker exited unexpectedly.");
+            }
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Whether the worker can run more code, that is it is alive, the last code succeeded, and it has been used less
+     * than the maximum number of times.
+     *
+     * @param maxUses the maximum number of code files a worker runs.
+     * @return true if the worker can be reused.
+     */
+    boolean reusable(int maxUses) {
+        return healthy && uses < maxUses && process.isAlive();
+    }
+
+    /**
+     * Kill the worker and the processes started by the code.
+     */
+    void destroy() {
+        healthy = false;
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path != null) {
+            path.toFile().delete();
+        }
+    }
+
+    private static String loadScript() {
+        try (var inputStream = InterpreterWorker.class.getResourceAsStream("/executor/python_worker.py")) {
+            if (inputStream == null) {
+                throw new IllegalStateException("The python worker script is missing.");
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
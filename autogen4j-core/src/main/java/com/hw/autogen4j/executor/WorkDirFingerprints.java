@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * The fingerprints of the working directories, from the path, size and modification time of their files. The
+ * directories are watched, so a fingerprint is only computed again once the files of its directory change.
+ * <p>
+ * Before a known fingerprint is used, a sentinel file is created in its directory, and the events are read until the
+ * one of the sentinel, then the keys already signalled are read too: the events are delivered in order, so every
+ * change made before the lookup has been seen by then. If the sentinel is not seen in time, for example with a polling watch service, the directories are no longer
+ * watched and each lookup computes the fingerprint again.
+ *
+ * @author HamaWhite
+ */
+final class WorkDirFingerprints {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WorkDirFingerprints.class);
+
+    /**
+     * the prefix of the temporary code files, which are not part of the fingerprint.
+     */
+    static final String CODE_FILE_PREFIX = "tmp_code_";
+
+    private static final String SENTINEL_PREFIX = CODE_FILE_PREFIX + "watch_";
+
+    private static final long SENTINEL_TIMEOUT_MILLIS = 500;
+
+    /**
+     * the watch service of the directories, null if they are not watched.
+     */
+    private WatchService watchService;
+
+    /**
+     * the fingerprint of each watched directory, removed once its files change.
+     */
+    private final Map<Path, String> fingerprints = new HashMap<>();
+
+    private long sentinelCount;
+
+    WorkDirFingerprints() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.warn("The working directories cannot be watched, their fingerprints are computed for each lookup.", e);
+        }
+    }
+
+    /**
+     * Returns the fingerprint of the directory, computed again only if its files changed since it was last computed.
+     *
+     * @param dir the absolute, normalized path of the directory.
+     * @return the fingerprint.
+     */
+    synchronized String current(Path dir) {
+        if (fingerprints.containsKey(dir) && awaitChanges(dir) && fingerprints.containsKey(dir)) {
+            return fingerprints.get(dir);
+        }
+        return compute(dir);
+    }
+
+    /**
+     * Computes the fingerprint of the directory, for example once code ran in it.
+     *
+     * @param dir the absolute, normalized path of the directory.
+     * @return the fingerprint.
+     */
+    synchronized String compute(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            fingerprints.remove(dir);
+            return "";
+        }
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        List<Path> files = new ArrayList<>();
+        // a directory is watched before its files are read, a change meanwhile is seen by the next lookup.
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.forEach(path -> {
+                if (Files.isDirectory(path)) {
+                    watch(path);
+                } else if (Files.isRegularFile(path)
+                        && !path.getFileName().toString().startsWith(CODE_FILE_PREFIX)) {
+                    files.add(path);
+                }
+            });
+            files.stream().sorted().forEach(path -> update(digest, dir, path));
+        } catch (IOException | UncheckedIOException e) {
+            // a directory that cannot be read never matches, so nothing is served from the cache.
+            LOG.warn("Failed to compute the fingerprint of {}.", dir, e);
+            fingerprints.remove(dir);
+            return "unreadable-" + System.nanoTime();
+        }
+        String fingerprint = DigestUtils.sha256Hex(digest.digest());
+        if (watchService != null) {
+            fingerprints.put(dir, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * The directories themselves change with every temporary code file, so only their files are part of the
+     * fingerprint.
+     */
+    private static void update(MessageDigest digest, Path dir, Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            String entry = "%s|%d|%d%n".formatted(dir.relativize(path), attributes.size(),
+                    attributes.lastModifiedTime().toMillis());
+            digest.update(entry.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void watch(Path dir) {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the events until the one of a new sentinel file of the directory, and forgets the fingerprints of the
+     * directories whose files changed.
+     *
+     * @return whether the events were read, if not the fingerprint must be computed again.
+     */
+    private boolean awaitChanges(Path dir) {
+        Path sentinel = dir.resolve(SENTINEL_PREFIX + sentinelCount++);
+        try {
+            Files.createFile(sentinel);
+        } catch (IOException e) {
+            LOG.debug("Failed to create the sentinel file {}.", sentinel, e);
+            return false;
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SENTINEL_TIMEOUT_MILLIS);
+            boolean seen = false;
+            while (!seen) {
+                WatchKey key = watchService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (key == null) {
+                    stopWatching();
+                    return false;
+                }
+                seen = readEvents(key, sentinel);
+            }
+            // a key signalled before the sentinel may be queued after the one of the sentinel's directory.
+            for (WatchKey key = watchService.poll(); key != null; key = watchService.poll()) {
+                readEvents(key, sentinel);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(sentinel);
+            } catch (IOException e) {
+                LOG.debug("Failed to delete the sentinel file {}.", sentinel, e);
+            }
+        }
+    }
+
+    /**
+     * Reads the events of a key.
+     *
+     * @return whether the event of the sentinel file was read.
+     */
+    private boolean readEvents(WatchKey key, Path sentinel) {
+        Path watched = (Path) key.watchable();
+        boolean seen = false;
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // the events were lost, any directory may have changed.
+                fingerprints.clear();
+            } else {
+                Path path = watched.resolve((Path) event.context());
+                seen |= path.equals(sentinel) && event.kind() == ENTRY_CREATE;
+                changed |= !path.getFileName().toString().startsWith(CODE_FILE_PREFIX);
+            }
+        }
+        if (!key.reset()) {
+            // the directory was deleted.
+            changed = true;
+        }
+        if (changed) {
+            fingerprints.keySet().removeIf(watched::startsWith);
+        }
+        return seen;
+    }
+
+    private void stopWatching() {
+        LOG.info("The changes of the working directories are not seen in time, they are no longer watched.");
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOG.debug("Failed to close the watch service.", e);
+        }
+        watchService = null;
+        fingerprints.clear();
+    }
+}
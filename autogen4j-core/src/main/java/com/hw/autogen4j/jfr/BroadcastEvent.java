@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded around the broadcast of a message of a group chat to the other participants.
+ *
+ * @author HamaWhite
+ */
+@Name("com.hw.autogen4j.Broadcast")
+@Label("Broadcast")
+@Category({"Autogen4j", "Group Chat"})
+@StackTrace(false)
+public class BroadcastEvent extends Event {
+
+    @Label("Manager")
+    public String manager;
+
+    @Label("Speaker")
+    public String speaker;
+
+    @Label("Recipient Count")
+    public int recipientCount;
+
+    @Label("Message Size")
+    @Description("The number of characters of the message content")
+    public long messageSize;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded around the execution of each code block by an agent.
+ *
+ * @author HamaWhite
+ */
+@Name("com.hw.autogen4j.CodeExecution")
+@Label("Code Execution")
+@Category({"Autogen4j", "Code Execution"})
+@Description("A code block executed by an agent")
+@StackTrace(false)
+public class CodeExecutionEvent extends Event {
+
+    @Label("Agent")
+    public String agent;
+
+    @Label("Language")
+    public String language;
+
+    @Label("Code Size")
+    @Description("The number of characters of the code")
+    public long codeSize;
+
+    @Label("Exit Code")
+    public int exitCode;
+
+    @Label("Output Size")
+    @DataAmount(DataAmount.BYTES)
+    public long outputSize;
+
+    @Label("Outcome")
+    public String outcome;
+}
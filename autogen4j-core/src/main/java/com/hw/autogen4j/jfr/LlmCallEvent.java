@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded around each llm reply of an agent, whether the response comes from the llm or from the response cache.
+ *
+ * @author HamaWhite
+ */
+@Name("com.hw.autogen4j.LlmCall")
+@Label("LLM Call")
+@Category({"Autogen4j", "LLM"})
+@Description("An llm reply generated by an agent")
+@StackTrace(false)
+public class LlmCallEvent extends Event {
+
+    @Label("Agent")
+    public String agent;
+
+    @Label("Model")
+    public String model;
+
+    @Label("Message Count")
+    @Description("The number of messages sent to the llm, including the system message")
+    public int messageCount;
+
+    @Label("Prompt Size")
+    @Description("The number of characters of the messages sent to the llm")
+    public long promptSize;
+
+    @Label("Streamed")
+    public boolean streamed;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,472 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.journal;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.agent.group.GroupChat;
+import com.hw.autogen4j.agent.group.GroupChatManager;
+import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.autogen4j.journal.JournalRecord.Clear;
+import com.hw.autogen4j.journal.JournalRecord.GroupMessage;
+import com.hw.autogen4j.journal.JournalRecord.Message;
+import com.hw.autogen4j.journal.JournalRecord.MessageData;
+import com.hw.autogen4j.session.ChatSession;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * An append-only journal of the conversations, so that they can be resumed after a restart.
+ * <p>
+ * Agents and group chats configured with a journal append each message of their histories to it. The records are
+ * queued and written by a background thread into memory-mapped segment files, in a compact binary encoding, so the
+ * reply loop never waits for the disk. The writer forces the segment to disk once per batch of records drained from
+ * the queue, so under load many records share one fsync. The queue is bounded, when the disk falls that far behind,
+ * appending blocks until there is room again.
+ * <p>
+ * On startup, open the journal on the same directory and restore the agents, sessions and group chats from it before
+ * continuing the conversations. Records still queued when the process died are lost, call {@link #flush()} where a
+ * conversation must be durable.
+ *
+ * @author HamaWhite
+ */
+public class ConversationJournal implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConversationJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final String DEFAULT_SESSION = "";
+
+    private static final JournalRecord STOP = new Clear(null, null, null);
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int maxBatchSize;
+
+    private final BlockingQueue<JournalRecord> queue;
+
+    private final RecordCodec codec = new RecordCodec();
+
+    private final AtomicLong appended = new AtomicLong();
+
+    private final Object syncLock = new Object();
+
+    private final Thread writer;
+
+    /**
+     * the number of records forced to disk, guarded by the sync lock.
+     */
+    private long synced;
+
+    /**
+     * the error that stopped the writer.
+     */
+    private volatile Throwable failure;
+
+    private volatile boolean closed;
+
+    private Segment segment;
+
+    private long nextSegmentIndex;
+
+    private ConversationJournal(Builder builder) {
+        this.directory = builder.directory;
+        this.segmentSize = builder.segmentSize;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.queue = new LinkedBlockingQueue<>(builder.queueCapacity);
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments();
+            nextSegmentIndex = segments.isEmpty() ? 0 : segmentIndex(segments.get(segments.size() - 1));
+            segment = Segment.open(segmentPath(nextSegmentIndex++), segmentSize);
+        } catch (IOException e) {
+            throw new Autogen4jException(String.format("Failed to open the journal in %s.", directory), e);
+        }
+        this.writer = new Thread(this::writeLoop, "autogen4j-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Opens the journal in the directory with the default settings.
+     *
+     * @param directory the directory of the segment files, created if it does not exist.
+     * @return the journal.
+     */
+    public static ConversationJournal open(Path directory) {
+        return builder().directory(directory).build();
+    }
+
+    /**
+     * Journal a message appended to the chat history of the agent in the current conversation.
+     *
+     * @param owner   the name of the agent owning the history.
+     * @param peer    the name of the peer agent.
+     * @param message the message, as appended.
+     */
+    public void appendMessage(String owner, String peer, ChatMessage message) {
+        enqueue(new Message(currentSession(), owner, peer, MessageData.of(message)));
+    }
+
+    /**
+     * Journal the chat history of the agent in the current conversation being cleared.
+     *
+     * @param owner the name of the agent owning the history.
+     * @param peer  the name of the peer agent, or null if the history with all peer agents was cleared.
+     */
+    public void appendClear(String owner, String peer) {
+        enqueue(new Clear(currentSession(), owner, peer));
+    }
+
+    /**
+     * Journal a message appended to the group chat in the current session.
+     *
+     * @param group   the name of the group chat.
+     * @param message the message, as appended.
+     */
+    public void appendGroupMessage(String group, ChatMessage message) {
+        enqueue(new GroupMessage(currentSession(), group, MessageData.of(message)));
+    }
+
+    private static String currentSession() {
+        ChatSession session = ChatSession.current();
+        return session == null ? DEFAULT_SESSION : session.getId();
+    }
+
+    private void enqueue(JournalRecord record) {
+        if (closed || failure != null) {
+            throw new Autogen4jException("The journal in %s is closed or its writer failed.", directory);
+        }
+        try {
+            queue.put(record);
+            appended.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Autogen4jException("Interrupted while appending to the journal in %s.", directory);
+        }
+    }
+
+    /**
+     * Waits until all the records appended so far are forced to disk.
+     */
+    public void flush() {
+        long target = appended.get();
+        synchronized (syncLock) {
+            while (synced < target && failure == null) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new Autogen4jException("Interrupted while flushing the journal in %s.", directory);
+                }
+            }
+            if (synced < target) {
+                throw new Autogen4jException("The journal writer failed.", failure);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<JournalRecord> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                boolean stop = false;
+                int written = 0;
+                for (JournalRecord record : batch) {
+                    if (record == STOP) {
+                        stop = true;
+                    } else {
+                        write(codec.encode(record));
+                        written++;
+                    }
+                }
+                segment.sync();
+                batch.clear();
+                synchronized (syncLock) {
+                    synced += written;
+                    syncLock.notifyAll();
+                }
+                if (stop) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("The writer of the journal in {} failed, no more records are written.", directory, e);
+            fail(e);
+        }
+    }
+
+    private void fail(Throwable e) {
+        synchronized (syncLock) {
+            failure = e;
+            syncLock.notifyAll();
+        }
+    }
+
+    private void write(ByteBuffer entry) throws IOException {
+        if (segment.append(entry)) {
+            return;
+        }
+        segment.close();
+        // an entry larger than a segment gets a segment of its own.
+        segment = Segment.open(segmentPath(nextSegmentIndex++),
+                Math.max(segmentSize, Segment.ENTRY_HEADER + entry.remaining()));
+        if (!segment.append(entry)) {
+            throw new Autogen4jException("The new journal segment %s has no room for a record.", segment.path());
+        }
+    }
+
+    /**
+     * Returns the ids of the sessions found in the journal, in order of their first record. The own state of the
+     * agents and group chats, outside of any session, is not included.
+     *
+     * @return the session ids.
+     */
+    public Set<String> sessionIds() {
+        Set<String> sessionIds = new LinkedHashSet<>();
+        replay(record -> {
+            if (record instanceof Message message) {
+                sessionIds.add(message.session());
+            } else if (record instanceof Clear clear) {
+                sessionIds.add(clear.session());
+            } else if (record instanceof GroupMessage message) {
+                sessionIds.add(message.session());
+            }
+        });
+        sessionIds.remove(DEFAULT_SESSION);
+        return sessionIds;
+    }
+
+    /**
+     * Restores the own chat histories of the agents, those written outside of any session.
+     *
+     * @param agents the agents, by their names, both the owners of the histories and their peers.
+     */
+    public void restore(List<? extends Agent> agents) {
+        restore(DEFAULT_SESSION, agents);
+    }
+
+    /**
+     * Restores the chat histories of the agents in a session.
+     *
+     * @param sessionId the id of the session, see {@link #sessionIds()}.
+     * @param agents    the agents, by their names, both the owners of the histories and their peers.
+     * @return a session with the same id, holding the restored histories and group chats.
+     */
+    public ChatSession restoreSession(String sessionId, List<? extends Agent> agents) {
+        ChatSession session = new ChatSession(sessionId);
+        session.run(() -> restore(sessionId, agents));
+        return session;
+    }
+
+    /**
+     * Restores the messages of the group chat in the current session, by its name. The group chats of the managers are
+     * also restored along with the histories of the agents, so that the histories of the participants share the
+     * restored messages.
+     *
+     * @param groupChat the group chat.
+     */
+    public void restore(GroupChat groupChat) {
+        String sessionId = currentSession();
+        List<ChatMessage> messages = new ArrayList<>();
+        replay(record -> {
+            if (record instanceof GroupMessage message && message.session().equals(sessionId)
+                    && message.group().equals(groupChat.getName())) {
+                messages.add(message.message().toChatMessage());
+            }
+        });
+        groupChat.restore(messages);
+    }
+
+    private void restore(String sessionId, List<? extends Agent> agents) {
+        // the histories of a group chat are views of its message log, which is rebuilt first.
+        agents.stream().filter(GroupChatManager.class::isInstance)
+                .map(agent -> ((GroupChatManager) agent).getGroupChat())
+                .distinct()
+                .forEach(this::restore);
+        Map<String, Map<String, List<ChatMessage>>> histories = new LinkedHashMap<>();
+        Function<String, Map<String, List<ChatMessage>>> historiesOf =
+                owner -> histories.computeIfAbsent(owner, key -> new LinkedHashMap<>());
+        // mirrors the way the agent appends and clears its histories.
+        replay(record -> {
+            if (record instanceof Message message && message.session().equals(sessionId)) {
+                historiesOf.apply(message.owner()).computeIfAbsent(message.peer(), key -> new ArrayList<>())
+                        .add(message.message().toChatMessage());
+            } else if (record instanceof Clear clear && clear.session().equals(sessionId)) {
+                if (clear.peer() == null) {
+                    historiesOf.apply(clear.owner()).clear();
+                } else {
+                    historiesOf.apply(clear.owner()).getOrDefault(clear.peer(), new ArrayList<>()).clear();
+                }
+            }
+        });
+        Map<String, Agent> agentsByName = new LinkedHashMap<>();
+        agents.forEach(agent -> agentsByName.put(agent.getName(), agent));
+        histories.forEach((owner, peers) -> {
+            if (!(agentsByName.get(owner)instanceof ConversableAgent agent)) {
+                LOG.warn("The journaled histories of agent {} are not restored, the agent is unknown.", owner);
+                return;
+            }
+            peers.forEach((peerName, messages) -> {
+                Agent peer = agentsByName.get(peerName);
+                if (peer == null) {
+                    LOG.warn("The journaled history of agent {} with agent {} is not restored, the peer is unknown.",
+                            owner, peerName);
+                } else {
+                    agent.restoreChatMessages(peer, messages);
+                }
+            });
+        });
+    }
+
+    /**
+     * Reads all complete records of the journal, in the order they were written.
+     */
+    private void replay(Consumer<JournalRecord> consumer) {
+        try {
+            for (Path path : segments()) {
+                Segment.read(path, entry -> consumer.accept(RecordCodec.decode(entry)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentIndex(Path path) {
+        String fileName = path.getFileName().toString();
+        return Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Writes and forces the queued records to disk, then stops the writer.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (writer.isAlive()) {
+                queue.put(STOP);
+                writer.join();
+            }
+            segment.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static class Builder {
+
+        private Path directory;
+
+        private int segmentSize = 16 * 1024 * 1024;
+
+        private int maxBatchSize = 1024;
+
+        private int queueCapacity = 65536;
+
+        private Builder() {
+        }
+
+        /**
+         * the directory of the segment files, created if it does not exist.
+         */
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * the size of each memory-mapped segment file, in bytes.
+         */
+        public Builder segmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * the maximum number of records written between two fsyncs.
+         */
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * the maximum number of records waiting for the writer, appending blocks beyond it.
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public ConversationJournal build() {
+            if (directory == null) {
+                throw new Autogen4jException("The directory of the journal is required.");
+            }
+            return new ConversationJournal(this);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.journal;
+
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.chat.ChatMessageRole;
+import com.hw.openai.entity.chat.ToolCall;
+
+import java.util.List;
+
+/**
+ * A record of the conversation journal.
+ *
+ * @author HamaWhite
+ */
+sealed
+interface JournalRecord {
+
+    /**
+     * A message appended to the chat history of an agent with a peer agent.
+     *
+     * @param session the id of the session, empty for the own state of the agent.
+     * @param owner   the name of the agent owning the history.
+     * @param peer    the name of the peer agent.
+     * @param message the message, as appended.
+     */
+    record Message(String session, String owner, String peer, MessageData message) implements JournalRecord {
+    }
+
+    /**
+     * The chat history of an agent was cleared.
+     *
+     * @param session the id of the session, empty for the own state of the agent.
+     * @param owner   the name of the agent owning the history.
+     * @param peer    the name of the peer agent, or null if the history with all peer agents was cleared.
+     */
+    record Clear(String session, String owner, String peer) implements JournalRecord {
+    }
+
+    /**
+     * A message appended to a group chat.
+     *
+     * @param session the id of the session, empty for the own state of the group chat.
+     * @param group   the name of the group chat.
+     * @param message the message, as appended.
+     */
+    record GroupMessage(String session, String group, MessageData message) implements JournalRecord {
+    }
+
+    /**
+     * The fields of a chat message, captured when it is journaled, since the message itself is mutable and only
+     * encoded later by the writer thread.
+     */
+    record MessageData(ChatMessageRole role, String content, String name, List<ToolCall> toolCalls) {
+
+    static MessageData of(ChatMessage message) {
+        return new MessageData(message.getRole(), message.getContent(), message.getName(),
+                message.getToolCalls());
+    }
+
+    ChatMessage toChatMessage() {
+            return new ChatMessage(role, content, name, toolCalls);
+        }
+}}
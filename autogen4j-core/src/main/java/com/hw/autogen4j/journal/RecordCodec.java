@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.journal;
+
+import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.autogen4j.journal.JournalRecord.Clear;
+import com.hw.autogen4j.journal.JournalRecord.GroupMessage;
+import com.hw.autogen4j.journal.JournalRecord.Message;
+import com.hw.autogen4j.journal.JournalRecord.MessageData;
+import com.hw.openai.entity.chat.ChatMessageRole;
+import com.hw.openai.entity.chat.FunctionCall;
+import com.hw.openai.entity.chat.ToolCall;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The binary encoding of the journal records.
+ * <p>
+ * A record starts with its type byte, followed by its fields. Integers are unsigned varints, strings are the varint
+ * length of their UTF-8 bytes plus one followed by the bytes, zero standing for null. Roles are a single byte. Not
+ * thread-safe, the journal has one codec owned by its writer thread.
+ *
+ * @author HamaWhite
+ */
+final class RecordCodec {
+
+    private static final byte MESSAGE = 1;
+
+    private static final byte CLEAR = 2;
+
+    private static final byte GROUP_MESSAGE = 3;
+
+    private static final ChatMessageRole[] ROLES = ChatMessageRole.values();
+
+    private byte[] buffer = new byte[1024];
+
+    private int size;
+
+    /**
+     * Encodes the record.
+     *
+     * @param record the record.
+     * @return the encoded record, valid until the next call.
+     */
+    ByteBuffer encode(JournalRecord record) {
+        size = 0;
+        if (record instanceof Message message) {
+            writeByte(MESSAGE);
+            writeString(message.session());
+            writeString(message.owner());
+            writeString(message.peer());
+            writeMessage(message.message());
+        } else if (record instanceof Clear clear) {
+            writeByte(CLEAR);
+            writeString(clear.session());
+            writeString(clear.owner());
+            writeString(clear.peer());
+        } else if (record instanceof GroupMessage groupMessage) {
+            writeByte(GROUP_MESSAGE);
+            writeString(groupMessage.session());
+            writeString(groupMessage.group());
+            writeMessage(groupMessage.message());
+        }
+        return ByteBuffer.wrap(buffer, 0, size);
+    }
+
+    /**
+     * Decodes a record.
+     *
+     * @param in the encoded record.
+     * @return the record.
+     */
+    static JournalRecord decode(ByteBuffer in) {
+        byte type = in.get();
+        return switch (type) {
+            case MESSAGE -> new Message(readString(in), readString(in), readString(in), readMessage(in));
+            case CLEAR -> new Clear(readString(in), readString(in), readString(in));
+            case GROUP_MESSAGE -> new GroupMessage(readString(in), readString(in), readMessage(in));
+            default -> throw new Autogen4jException("Unknown journal record type %d.", type);
+        };
+    }
+
+    private void writeMessage(MessageData message) {
+        writeByte(message.role() == null ? 0 : message.role().ordinal() + 1);
+        writeString(message.content());
+        writeString(message.name());
+        List<ToolCall> toolCalls = message.toolCalls();
+        writeVarInt(toolCalls == null ? 0 : toolCalls.size() + 1);
+        if (toolCalls != null) {
+            for (ToolCall toolCall : toolCalls) {
+                writeString(toolCall.getId());
+                writeString(toolCall.getType());
+                FunctionCall function = toolCall.getFunction();
+                writeString(function == null ? null : function.getName());
+                writeString(function == null ? null : function.getArguments());
+            }
+        }
+    }
+
+    private static MessageData readMessage(ByteBuffer in) {
+        int role = in.get();
+        String content = readString(in);
+        String name = readString(in);
+        int toolCallCount = readVarInt(in);
+        List<ToolCall> toolCalls = null;
+        if (toolCallCount > 0) {
+            toolCalls = new ArrayList<>(toolCallCount - 1);
+            for (int i = 0; i < toolCallCount - 1; i++) {
+                ToolCall toolCall = new ToolCall();
+                toolCall.setId(readString(in));
+                toolCall.setType(readString(in));
+                String functionName = readString(in);
+                String arguments = readString(in);
+                if (functionName != null || arguments != null) {
+                    FunctionCall function = new FunctionCall();
+                    function.setName(functionName);
+                    function.setArguments(arguments);
+                    toolCall.setFunction(function);
+                }
+                toolCalls.add(toolCall);
+            }
+        }
+        return new MessageData(role == 0 ? null : ROLES[role - 1], content, name, toolCalls);
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7f) != 0) {
+            writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A memory-mapped segment file of the journal.
+ * <p>
+ * Each entry is the length of the record, the CRC32C of the record and the record itself. The file is mapped at its
+ * full size up front, so the unwritten tail is zeros and a zero length marks the end of the segment. An entry torn by
+ * a crash fails its checksum, so reading stops at the last complete entry.
+ *
+ * @author HamaWhite
+ */
+final class Segment implements Closeable {
+
+    static final int ENTRY_HEADER = 8;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * the end of the last entry, where the next one is written.
+     */
+    private int position;
+
+    /**
+     * the end of the entries already forced to disk.
+     */
+    private int syncedPosition;
+
+    private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens a segment for appending, creating it with the given size if it does not exist. Appending continues after
+     * the last complete entry, anything after it is the remains of a torn write and is cleared.
+     *
+     * @param path the segment file.
+     * @param size the size of a new segment.
+     * @return the segment.
+     * @throws IOException if the file can not be mapped.
+     */
+    static Segment open(Path path, int size) throws IOException {
+        FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE);
+        try {
+            long length = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length > 0 ? length : size);
+            Segment segment = new Segment(path, channel, buffer);
+            segment.position = segment.forEach(entry -> {
+            });
+            segment.clearTornEntry();
+            segment.syncedPosition = segment.position;
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the entries of a segment file, without opening it for appending.
+     *
+     * @param path     the segment file.
+     * @param consumer receives each complete entry, in order.
+     * @throws IOException if the file can not be mapped.
+     */
+    static void read(Path path, Consumer<ByteBuffer> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            new Segment(path, channel, buffer).forEach(consumer);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Appends an entry, if it fits into the segment.
+     *
+     * @param entry the record to append.
+     * @return false if the segment has no room left for the entry.
+     */
+    boolean append(ByteBuffer entry) {
+        int length = entry.remaining();
+        if (position + ENTRY_HEADER + length > buffer.capacity()) {
+            return false;
+        }
+        crc.reset();
+        crc.update(entry.duplicate());
+        buffer.put(position + ENTRY_HEADER, entry, entry.position(), length);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        // the length goes last, a reader seeing it also sees the complete entry.
+        buffer.putInt(position, length);
+        position += ENTRY_HEADER + length;
+        return true;
+    }
+
+    /**
+     * Forces the entries appended since the last sync to disk.
+     */
+    void sync() {
+        if (position > syncedPosition) {
+            buffer.force(syncedPosition, position - syncedPosition);
+            syncedPosition = position;
+        }
+    }
+
+    /**
+     * Calls the consumer with each complete entry from the start of the segment.
+     *
+     * @return the end of the last complete entry.
+     */
+    private int forEach(Consumer<ByteBuffer> consumer) {
+        int offset = 0;
+        while (offset + ENTRY_HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + ENTRY_HEADER + length > buffer.capacity()) {
+                break;
+            }
+            byte[] entry = new byte[length];
+            buffer.get(offset + ENTRY_HEADER, entry);
+            crc.reset();
+            crc.update(entry);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            consumer.accept(ByteBuffer.wrap(entry));
+            offset += ENTRY_HEADER + length;
+        }
+        return offset;
+    }
+
+    private void clearTornEntry() {
+        if (position + ENTRY_HEADER > buffer.capacity()) {
+            return;
+        }
+        int length = buffer.getInt(position);
+        int end = length > 0 && position + ENTRY_HEADER + length <= buffer.capacity()
+                ? position + ENTRY_HEADER + length
+                : position + ENTRY_HEADER;
+        for (int i = position; i < end; i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+}
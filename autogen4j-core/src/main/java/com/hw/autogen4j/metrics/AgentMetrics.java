@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.metrics;
+
+/**
+ * The names and tags of the metrics recorded by the agents. All the metrics are tagged with the name of the agent.
+ *
+ * @author HamaWhite
+ */
+public final class AgentMetrics {
+
+    /**
+     * timer of each reply function of an agent, tagged with the function.
+     */
+    public static final String REPLY_FUNCTION = "autogen4j.reply.function";
+
+    /**
+     * timer of the llm calls that missed the response cache, tagged with the model and the outcome.
+     */
+    public static final String LLM_CALL = "autogen4j.llm.call";
+
+    /**
+     * counter of the tokens reported by the llm, tagged with the type, prompt or completion.
+     */
+    public static final String LLM_TOKENS = "autogen4j.llm.tokens";
+
+    /**
+     * timer of the code blocks executed by an agent, tagged with the language and the exit code.
+     */
+    public static final String CODE_EXECUTION = "autogen4j.code.execution";
+
+    /**
+     * distribution of the number of messages of the conversations initiated by an agent, tagged with the recipient.
+     */
+    public static final String CONVERSATION_MESSAGES = "autogen4j.conversation.messages";
+
+    public static final String TAG_AGENT = "agent";
+
+    public static final String TAG_FUNCTION = "function";
+
+    public static final String TAG_MODEL = "model";
+
+    public static final String TAG_OUTCOME = "outcome";
+
+    public static final String TAG_TYPE = "type";
+
+    public static final String TAG_LANGUAGE = "language";
+
+    public static final String TAG_EXIT_CODE = "exit_code";
+
+    public static final String TAG_RECIPIENT = "recipient";
+
+    private AgentMetrics() {
+        throw new IllegalStateException("Utility class");
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.metrics;
+
+/**
+ * A point in time copy of a timer or a distribution of the {@link InMemoryMetricsRegistry}.
+ *
+ * @param count   the number of recorded values.
+ * @param total   the sum of the recorded values.
+ * @param max     the largest recorded value.
+ * @param buckets the number of values in each bucket of the histogram.
+ *
+ * @author HamaWhite
+ */
+public record HistogramSnapshot(long count, long total, long max, long[] buckets) {
+
+    /**
+     * Returns the mean of the recorded values, or 0 if there is none.
+     *
+     * @return the mean value.
+     */
+    public double mean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Returns an estimate of the percentile, within 12.5% of the actual value.
+     *
+     * @param percentile the percentile between 0 and 1, for example 0.99.
+     * @return the estimated value, or 0 if there is none.
+     */
+    public long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(Histogram.upperBound(i), max);
+            }
+        }
+        return max;
+    }
+}
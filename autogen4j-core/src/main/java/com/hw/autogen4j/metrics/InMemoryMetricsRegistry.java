@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * A metrics recorder that keeps the metrics in memory, with a histogram for each timer and distribution.
+ *
+ * @author HamaWhite
+ */
+public class InMemoryMetricsRegistry implements MetricsRecorder {
+
+    private static final InMemoryMetricsRegistry GLOBAL = new InMemoryMetricsRegistry();
+
+    private final Map<MetricId, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private final Map<MetricId, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the registry shared by all the agents of the JVM without their own recorder.
+     *
+     * @return the global registry.
+     */
+    public static InMemoryMetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    @Override
+    public void recordTime(String name, Map<String, String> tags, long nanos) {
+        histograms.computeIfAbsent(new MetricId(name, tags), id -> new Histogram()).record(nanos);
+    }
+
+    @Override
+    public void increment(String name, Map<String, String> tags, long amount) {
+        counters.computeIfAbsent(new MetricId(name, tags), id -> new LongAdder()).add(amount);
+    }
+
+    @Override
+    public void recordValue(String name, Map<String, String> tags, long value) {
+        histograms.computeIfAbsent(new MetricId(name, tags), id -> new Histogram()).record(value);
+    }
+
+    /**
+     * Returns the histogram of a timer or a distribution.
+     *
+     * @param name the name of the metric.
+     * @param tags the tags of the metric.
+     * @return a snapshot of the histogram, empty if nothing was recorded.
+     */
+    public HistogramSnapshot histogram(String name, Map<String, String> tags) {
+        Histogram histogram = histograms.get(new MetricId(name, tags));
+        return histogram == null ? new HistogramSnapshot(0, 0, 0, new long[Histogram.BUCKET_COUNT])
+                : histogram.snapshot();
+    }
+
+    /**
+     * Returns the value of a counter.
+     *
+     * @param name the name of the counter.
+     * @param tags the tags of the counter.
+     * @return the value of the counter, 0 if it was never incremented.
+     */
+    public long counter(String name, Map<String, String> tags) {
+        LongAdder counter = counters.get(new MetricId(name, tags));
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Returns the histograms of all the timers and distributions.
+     *
+     * @return a snapshot of each histogram by metric.
+     */
+    public Map<MetricId, HistogramSnapshot> histograms() {
+        return histograms.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().snapshot()));
+    }
+
+    /**
+     * Returns the values of all the counters.
+     *
+     * @return the value of each counter by metric.
+     */
+    public Map<MetricId, Long> counters() {
+        return counters.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+    }
+
+    /**
+     * Removes all the metrics.
+     */
+    public void clear() {
+        histograms.clear();
+        counters.clear();
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.metrics;
+
+import java.util.Map;
+
+/**
+ * Identifies a metric of the {@link InMemoryMetricsRegistry}.
+ *
+ * @param name the name of the metric.
+ * @param tags the tags of the metric.
+ *
+ * @author HamaWhite
+ */
+public record MetricId(String name, Map<String, String> tags) {
+
+    public MetricId {
+        tags = Map.copyOf(tags);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.metrics;
+
+import java.util.Map;
+
+/**
+ * The SPI the agents record their metrics with.
+ * <p>
+ * The agents only record three kinds of metrics: timers, counters and distributions of values, each identified by a
+ * name and tags, so that an implementation can forward them to any metrics library. The built-in implementations are
+ * the {@link InMemoryMetricsRegistry}, used by default, and the {@link MicrometerMetricsRecorder}.
+ *
+ * @author HamaWhite
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Record the duration of an operation.
+     *
+     * @param name  the name of the timer.
+     * @param tags  the tags of the timer.
+     * @param nanos the duration in nanoseconds.
+     */
+    void recordTime(String name, Map<String, String> tags, long nanos);
+
+    /**
+     * Increment a counter.
+     *
+     * @param name   the name of the counter.
+     * @param tags   the tags of the counter.
+     * @param amount the amount to add.
+     */
+    void increment(String name, Map<String, String> tags, long amount);
+
+    /**
+     * Record a value in a distribution, for example the number of messages of a conversation.
+     *
+     * @param name  the name of the distribution.
+     * @param tags  the tags of the distribution.
+     * @param value the value to record.
+     */
+    void recordValue(String name, Map<String, String> tags, long value);
+
+    /**
+     * A recorder that drops all the metrics.
+     *
+     * @return a recorder that does nothing.
+     */
+    static MetricsRecorder noop() {
+        return NoopMetricsRecorder.INSTANCE;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A metrics recorder that forwards the metrics to a Micrometer registry, timers and distributions publish a
+ * percentile histogram.
+ * <p>
+ * Micrometer is an optional dependency, add {@code io.micrometer:micrometer-core} to use this recorder.
+ *
+ * @author HamaWhite
+ */
+public class MicrometerMetricsRecorder implements MetricsRecorder {
+
+    private final MeterRegistry registry;
+
+    public MicrometerMetricsRecorder(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void recordTime(String name, Map<String, String> tags, long nanos) {
+        Timer.builder(name)
+                .tags(tags(tags))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void increment(String name, Map<String, String> tags, long amount) {
+        Counter.builder(name)
+                .tags(tags(tags))
+                .register(registry)
+                .increment(amount);
+    }
+
+    @Override
+    public void recordValue(String name, Map<String, String> tags, long value) {
+        DistributionSummary.builder(name)
+                .tags(tags(tags))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(value);
+    }
+
+    private static List<Tag> tags(Map<String, String> tags) {
+        return tags.entrySet().stream().map(entry -> Tag.of(entry.getKey(), entry.getValue())).toList();
+    }
+}
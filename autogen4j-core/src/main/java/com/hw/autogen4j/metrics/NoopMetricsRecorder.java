@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.metrics;
+
+import java.util.Map;
+
+/**
+ * A recorder that drops all the metrics.
+ *
+ * @author HamaWhite
+ */
+final class NoopMetricsRecorder implements MetricsRecorder {
+
+    static final NoopMetricsRecorder INSTANCE = new NoopMetricsRecorder();
+
+    private NoopMetricsRecorder() {
+    }
+
+    @Override
+    public void recordTime(String name, Map<String, String> tags, long nanos) {
+        // dropped
+    }
+
+    @Override
+    public void increment(String name, Map<String, String> tags, long amount) {
+        // dropped
+    }
+
+    @Override
+    public void recordValue(String name, Map<String, String> tags, long value) {
+        // dropped
+    }
+}
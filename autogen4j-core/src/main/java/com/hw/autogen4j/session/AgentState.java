@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.session;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.entity.TokenUsage;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.SYSTEM;
+
+/**
+ * The mutable, conversation-scoped state of an agent.
+ * <p>
+ * The agent itself only holds its definition, everything that changes while chatting lives here, so that the same
+ * agent can take part in several conversations at once, each conversation owning its own state.
+ *
+ * @author HamaWhite
+ */
+@Getter
+public class AgentState {
+
+    /**
+     * the system message of the agent, which can be updated during the conversation.
+     */
+    private final List<ChatMessage> oaiSystemMessage;
+
+    /**
+     * the chat history with each peer agent.
+     */
+    private final Map<Agent, List<ChatMessage>> oaiMessages = new HashMap<>();
+
+    /**
+     * the number of consecutive auto replies sent to each peer agent.
+     */
+    private final Map<Agent, Integer> consecutiveAutoReplyCounter = new HashMap<>();
+
+    /**
+     * the tokens used by the llm calls replying to each peer agent.
+     */
+    private final Map<Agent, TokenUsage> tokenUsage = new HashMap<>();
+
+    public AgentState(String systemMessage) {
+        this.oaiSystemMessage = List.of(new ChatMessage(SYSTEM, systemMessage));
+    }
+}
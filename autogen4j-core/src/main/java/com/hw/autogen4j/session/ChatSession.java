@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.session;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A conversation-scoped session.
+ * <p>
+ * While a session is bound to the current thread, every agent taking part in the conversation reads and writes its
+ * histories, counters and system message in the session instead of in the agent instance. Agents can therefore be
+ * shared by any number of concurrent sessions. Other shared objects keep their conversation-scoped state in the session
+ * too, for example the messages of a group chat.
+ *
+ * @author HamaWhite
+ */
+public class ChatSession {
+
+    private static final ThreadLocal<ChatSession> CURRENT = new ThreadLocal<>();
+
+    /**
+     * the unique id of the session.
+     */
+    @Getter
+    private final String id;
+
+    private final Map<Agent, AgentState> states = new ConcurrentHashMap<>();
+
+    /**
+     * the state of the other shared objects, by the identity of their owner.
+     */
+    private final Map<Object, Object> scopedStates = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public ChatSession() {
+        this(UUID.randomUUID().toString());
+    }
+
+    public ChatSession(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the session bound to the current thread.
+     *
+     * @return the current session, or null if the current thread is not running a session.
+     */
+    public static ChatSession current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns the state of the agent in this session, creating it on the first access.
+     *
+     * @param agent   the agent.
+     * @param factory creates the initial state of the agent.
+     * @return the state of the agent in this session.
+     */
+    public AgentState stateOf(Agent agent, Function<Agent, AgentState> factory) {
+        return states.computeIfAbsent(agent, factory);
+    }
+
+    /**
+     * Returns the state of a shared object other than an agent in this session, creating it on the first access.
+     *
+     * @param owner   the object owning the state, compared by identity.
+     * @param factory creates the initial state.
+     * @param <T>     the type of the state, always the same for an owner.
+     * @return the state of the owner in this session.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T scopedState(Object owner, Supplier<T> factory) {
+        return (T) scopedStates.computeIfAbsent(owner, key -> factory.get());
+    }
+
+    /**
+     * Returns the chat history of the agent with the peer agent in this session.
+     *
+     * @param agent the agent owning the history.
+     * @param peer  the peer agent.
+     * @return the chat history, or an empty list if the agents never talked in this session.
+     */
+    public List<ChatMessage> chatMessages(Agent agent, Agent peer) {
+        AgentState state = states.get(agent);
+        if (state == null) {
+            return List.of();
+        }
+        return state.getOaiMessages().getOrDefault(peer, List.of());
+    }
+
+    /**
+     * Binds this session to the current thread while running the task.
+     *
+     * @param task the task to run within the session.
+     * @param <T>  the result type of the task.
+     * @return the result of the task.
+     */
+    public <T> T call(Supplier<T> task) {
+        ChatSession previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Binds this session to the current thread while running the task.
+     *
+     * @param task the task to run within the session.
+     */
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.session;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.chat.ChatMessageRole;
+import com.hw.openai.entity.chat.ToolCall;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A chat history that keeps its messages in a compact form, for long conversations.
+ * <p>
+ * Instead of one mutable {@link ChatMessage} per message, the history keeps parallel arrays: the role as a byte, the
+ * name interned, so all the messages of an agent share one string, and the content as UTF-8 bytes. A single character
+ * outside of Latin-1, like a curly quote or an emoji in a reply, makes Java store the whole string in UTF-16, so UTF-8
+ * halves most contents. Contents above the compression threshold, typically tool outputs, are deflated if that makes
+ * them smaller.
+ * <p>
+ * The messages are materialized on read, each read returns new instances, so changing them does not change the
+ * history. This trades some CPU when a prompt is built for a much smaller heap, and defeats caches keyed by message
+ * instance, such as the one of the {@code BpeTokenCounter}. Like an {@code ArrayList}, it is not thread-safe.
+ *
+ * @author HamaWhite
+ */
+public final class CompactHistory extends AbstractList<ChatMessage> implements RandomAccess {
+
+    /**
+     * the default size in bytes above which the UTF-8 content is compressed.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    private static final Interner<String> NAMES = Interners.newWeakInterner();
+
+    private static final ChatMessageRole[] ROLES = ChatMessageRole.values();
+
+    private static final int COMPRESSED = 0x80;
+
+    private static final int ROLE_MASK = 0x7f;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int compressionThreshold;
+
+    /**
+     * the role ordinal plus one of each message, zero for no role, with the compressed flag.
+     */
+    private byte[] flags = new byte[8];
+
+    private String[] names = new String[8];
+
+    private byte[][] contents = new byte[8][];
+
+    /**
+     * the tool calls of the few messages that have some, by index.
+     */
+    private Map<Integer, List<ToolCall>> toolCalls;
+
+    private int size;
+
+    public CompactHistory() {
+        this(DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * Creates an empty history.
+     *
+     * @param compressionThreshold the size in bytes above which the UTF-8 content is compressed.
+     */
+    public CompactHistory(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public ChatMessage get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        int flag = flags[index] & 0xff;
+        int role = flag & ROLE_MASK;
+        return new ChatMessage(role == 0 ? null : ROLES[role - 1], decode(contents[index], flag), names[index],
+                toolCalls == null ? null : toolCalls.get(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(ChatMessage message) {
+        if (size == flags.length) {
+            int capacity = size + (size >> 1);
+            flags = Arrays.copyOf(flags, capacity);
+            names = Arrays.copyOf(names, capacity);
+            contents = Arrays.copyOf(contents, capacity);
+        }
+        int flag = message.getRole() == null ? 0 : message.getRole().ordinal() + 1;
+        byte[] content = null;
+        if (message.getContent() != null) {
+            content = message.getContent().isEmpty() ? EMPTY : message.getContent().getBytes(StandardCharsets.UTF_8);
+            if (content.length > compressionThreshold) {
+                byte[] compressed = compress(content);
+                if (compressed.length < content.length) {
+                    content = compressed;
+                    flag |= COMPRESSED;
+                }
+            }
+        }
+        flags[size] = (byte) flag;
+        names[size] = message.getName() == null ? null : NAMES.intern(message.getName());
+        contents[size] = content;
+        if (message.getToolCalls() != null) {
+            if (toolCalls == null) {
+                toolCalls = new HashMap<>();
+            }
+            toolCalls.put(size, message.getToolCalls());
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(contents, 0, size, null);
+        toolCalls = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns the bytes used by the contents of the messages, after compression.
+     *
+     * @return the size of the contents in bytes.
+     */
+    public long contentBytes() {
+        long bytes = 0;
+        for (int i = 0; i < size; i++) {
+            bytes += contents[i] == null ? 0 : contents[i].length;
+        }
+        return bytes;
+    }
+
+    /**
+     * The compressed content starts with the length of the uncompressed content, so it is inflated in one go.
+     */
+    private static byte[] compress(byte[] content) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 16);
+            out.write(content.length >>> 24);
+            out.write(content.length >>> 16);
+            out.write(content.length >>> 8);
+            out.write(content.length);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String decode(byte[] content, int flag) {
+        if (content == null) {
+            return null;
+        }
+        if ((flag & COMPRESSED) == 0) {
+            return new String(content, StandardCharsets.UTF_8);
+        }
+        int length = (content[0] & 0xff) << 24 | (content[1] & 0xff) << 16 | (content[2] & 0xff) << 8
+                | (content[3] & 0xff);
+        byte[] inflated = new byte[length];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(content, 4, content.length - 4);
+            int offset = 0;
+            while (offset < length) {
+                int count = inflater.inflate(inflated, offset, length - offset);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                offset += count;
+            }
+            if (offset < length) {
+                throw new Autogen4jException("The compressed content is truncated, %d of %d bytes.", offset, length);
+            }
+        } catch (DataFormatException e) {
+            throw new Autogen4jException("The compressed content is corrupt.", e);
+        } finally {
+            inflater.end();
+        }
+        return new String(inflated, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.session;
+
+import com.hw.autogen4j.agent.ConversableAgent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+import static com.hw.autogen4j.util.ThreadUtil.newVirtualThreadPerTaskExecutor;
+
+/**
+ * Runs conversations concurrently, each one in its own {@link ChatSession} on its own thread.
+ * <p>
+ * By default, each session runs on a virtual thread, so thousands of conversations that are mostly waiting for the
+ * LLM can be in flight at the same time while sharing the same agent instances.
+ *
+ * @author HamaWhite
+ */
+public class SessionRuntime implements AutoCloseable {
+
+    private final ExecutorService executor;
+
+    public SessionRuntime() {
+        this(newVirtualThreadPerTaskExecutor());
+    }
+
+    public SessionRuntime(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Initiate a chat with the recipient agent in a new session.
+     *
+     * @param sender    the agent initiating the chat.
+     * @param recipient the recipient agent.
+     * @param message   the message to send.
+     * @return a future completed with the session once the conversation is over.
+     */
+    public CompletableFuture<ChatSession> initiateChat(ConversableAgent sender, ConversableAgent recipient,
+            String message) {
+        return initiateChat(sender, recipient, message, true);
+    }
+
+    /**
+     * Initiate a chat with the recipient agent in a new session.
+     *
+     * @param sender    the agent initiating the chat.
+     * @param recipient the recipient agent.
+     * @param message   the message to send.
+     * @param silent    whether to print the messages for this conversation.
+     * @return a future completed with the session once the conversation is over.
+     */
+    public CompletableFuture<ChatSession> initiateChat(ConversableAgent sender, ConversableAgent recipient,
+            String message, boolean silent) {
+        return submit(session -> sender.initiateChat(recipient, message, true, silent));
+    }
+
+    /**
+     * Run a conversation in a new session.
+     *
+     * @param conversation the conversation to run, it receives the session it runs in.
+     * @return a future completed with the session once the conversation is over.
+     */
+    public CompletableFuture<ChatSession> submit(Consumer<ChatSession> conversation) {
+        ChatSession session = new ChatSession();
+        return CompletableFuture.supplyAsync(() -> {
+            session.run(() -> conversation.accept(session));
+            return session;
+        }, executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.stream;
+
+import com.hw.openai.entity.chat.ChatChoice;
+import com.hw.openai.entity.chat.ChatCompletionChunk;
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.chat.FunctionCall;
+import com.hw.openai.entity.chat.ToolCall;
+
+import org.apache.commons.collections4.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
+
+/**
+ * Assembles the chunks of a streamed chat completion into a chat message.
+ *
+ * @author HamaWhite
+ */
+public class ChatMessageAssembler {
+
+    private final ChatMessage message = new ChatMessage(ASSISTANT, null);
+
+    private final StringBuilder content = new StringBuilder();
+
+    /**
+     * whether content was appended since the message was last assembled.
+     */
+    private boolean contentChanged;
+
+    /**
+     * Appends the delta of the first choice of the chunk to the message.
+     *
+     * @param chunk a chunk of the streamed chat completion.
+     * @return the new content of the chunk, or an empty string if the chunk has no content.
+     */
+    public String append(ChatCompletionChunk chunk) {
+        if (CollectionUtils.isEmpty(chunk.getChoices())) {
+            return "";
+        }
+        ChatChoice choice = chunk.getChoices().get(0);
+        ChatMessage delta = choice.getMessage();
+        if (delta == null) {
+            return "";
+        }
+        if (delta.getRole() != null) {
+            message.setRole(delta.getRole());
+        }
+        if (CollectionUtils.isNotEmpty(delta.getToolCalls())) {
+            appendToolCalls(delta.getToolCalls());
+        }
+        String deltaContent = delta.getContent();
+        if (deltaContent == null || deltaContent.isEmpty()) {
+            return "";
+        }
+        content.append(deltaContent);
+        contentChanged = true;
+        return deltaContent;
+    }
+
+    /**
+     * The tool calls are streamed as fragments, the first fragment of a call carries its id and function name, and
+     * the following ones carry pieces of the arguments.
+     */
+    private void appendToolCalls(List<ToolCall> deltas) {
+        if (message.getToolCalls() == null) {
+            message.setToolCalls(new ArrayList<>());
+        }
+        List<ToolCall> toolCalls = message.getToolCalls();
+        for (ToolCall delta : deltas) {
+            int index = delta.getIndex() != null ? delta.getIndex() : toolCalls.size() - 1;
+            if (index >= toolCalls.size() || index < 0) {
+                if (delta.getFunction() != null && delta.getFunction().getArguments() == null) {
+                    delta.getFunction().setArguments("");
+                }
+                toolCalls.add(delta);
+                continue;
+            }
+            FunctionCall function = toolCalls.get(index).getFunction();
+            if (function != null && delta.getFunction() != null && delta.getFunction().getArguments() != null) {
+                function.setArguments(function.getArguments() + delta.getFunction().getArguments());
+            }
+        }
+    }
+
+    /**
+     * Returns the content assembled so far, without copying it. It changes as chunks are appended.
+     *
+     * @return the assembled content.
+     */
+    public CharSequence content() {
+        return content;
+    }
+
+    /**
+     * Returns the message assembled so far. The content is only copied into the message when it changed.
+     *
+     * @return the assembled message.
+     */
+    public ChatMessage message() {
+        if (contentChanged) {
+            message.setContent(content.toString());
+            contentChanged = false;
+        }
+        return message;
+    }
+}
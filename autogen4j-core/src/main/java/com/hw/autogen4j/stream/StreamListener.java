@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.stream;
+
+import com.hw.openai.entity.chat.ChatMessage;
+
+/**
+ * Receives the reply of the llm incrementally, while it is streamed.
+ *
+ * @author HamaWhite
+ */
+@FunctionalInterface
+public interface StreamListener {
+
+    /**
+     * Called for each piece of content as it arrives.
+     *
+     * @param delta the new content.
+     */
+    void onDelta(String delta);
+
+    /**
+     * Called once the reply is complete, or the stream was stopped early.
+     *
+     * @param message the assembled reply.
+     */
+    default void onComplete(ChatMessage message) {
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.tokenizer;
+
+import com.hw.autogen4j.exception.Autogen4jException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A byte pair encoding tokenizer compatible with tiktoken, in plain Java.
+ * <p>
+ * The text is split into pieces by the regex of the encoding. A piece which is itself a token is encoded by its rank,
+ * otherwise its UTF-8 bytes are merged pairwise, always merging the adjacent pair of lowest rank first, until no
+ * adjacent pair forms a token. The merge table is keyed
+ * by the pair of token ids packed into a long, so a merge step is a lookup in a primitive hash map, without hashing or
+ * copying byte arrays.
+ * <p>
+ * Special tokens such as {@code <|endoftext|>} are encoded as ordinary text. The vocabularies are bundled as resources
+ * and loaded on first use of each encoding, the tokenizers are immutable and thread-safe.
+ *
+ * @author HamaWhite
+ */
+public final class BpeTokenizer {
+
+    private static final int NO_RANK = Integer.MAX_VALUE;
+
+    private static final Map<Encoding, BpeTokenizer> TOKENIZERS = new EnumMap<>(Encoding.class);
+
+    private final Encoding encoding;
+
+    private final Pattern pattern;
+
+    /**
+     * the bytes of each token, indexed by its rank.
+     */
+    private final byte[][] tokens;
+
+    /**
+     * the rank of each single byte token, indexed by the unsigned byte.
+     */
+    private final int[] byteRanks;
+
+    /**
+     * the open addressing table of the ranks of the tokens, by their content.
+     */
+    private final int[] tokenTable;
+
+    /**
+     * the rank of the token merged from a pair of adjacent tokens.
+     */
+    private final LongIntMap mergeRanks;
+
+    private BpeTokenizer(Encoding encoding, byte[][] tokens) {
+        this.encoding = encoding;
+        this.pattern = Pattern.compile(encoding.getPattern(), Pattern.UNICODE_CHARACTER_CLASS);
+        this.tokens = tokens;
+        this.byteRanks = new int[256];
+        Arrays.fill(byteRanks, NO_RANK);
+
+        for (int rank = 0; rank < tokens.length; rank++) {
+            if (tokens[rank] != null && tokens[rank].length == 1) {
+                byteRanks[tokens[rank][0] & 0xff] = rank;
+            }
+        }
+        this.tokenTable = buildTokenTable(tokens);
+        this.mergeRanks = buildMergeRanks(tokens, tokenTable);
+    }
+
+    /**
+     * The tokens are looked up by content in an open addressing table of ranks, which is much cheaper to build than a
+     * map of wrapped byte arrays.
+     */
+    private static int[] buildTokenTable(byte[][] tokens) {
+        int[] table = new int[Integer.highestOneBit(tokens.length * 2 - 1) << 1];
+        int mask = table.length - 1;
+        Arrays.fill(table, -1);
+        for (int rank = 0; rank < tokens.length; rank++) {
+            if (tokens[rank] != null) {
+                int index = hash(tokens[rank], 0, tokens[rank].length) & mask;
+                while (table[index] >= 0) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = rank;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Each split of a token into two tokens is a merge producing it.
+     */
+    private static LongIntMap buildMergeRanks(byte[][] tokens, int[] table) {
+        long[] pairs = new long[tokens.length];
+        int[] merged = new int[tokens.length];
+        int size = 0;
+        for (int rank = 0; rank < tokens.length; rank++) {
+            byte[] token = tokens[rank];
+            for (int split = 1; token != null && split < token.length; split++) {
+                int left = lookup(table, tokens, token, 0, split);
+                int right = left < 0 ? -1 : lookup(table, tokens, token, split, token.length);
+                if (right >= 0) {
+                    if (size == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, size * 2);
+                        merged = Arrays.copyOf(merged, size * 2);
+                    }
+                    pairs[size] = pair(left, right);
+                    merged[size++] = rank;
+                }
+            }
+        }
+        LongIntMap mergeRanks = new LongIntMap(size);
+        for (int i = 0; i < size; i++) {
+            mergeRanks.put(pairs[i], merged[i]);
+        }
+        return mergeRanks;
+    }
+
+    private static int lookup(int[] table, byte[][] tokens, byte[] bytes, int from, int to) {
+        int mask = table.length - 1;
+        for (int index = hash(bytes, from, to) & mask;; index = (index + 1) & mask) {
+            int rank = table[index];
+            if (rank < 0 || Arrays.equals(tokens[rank], 0, tokens[rank].length, bytes, from, to)) {
+                return rank;
+            }
+        }
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the tokenizer of the encoding, loading its vocabulary on first use.
+     *
+     * @param encoding the encoding.
+     * @return the shared tokenizer of the encoding.
+     */
+    public static BpeTokenizer of(Encoding encoding) {
+        synchronized (TOKENIZERS) {
+            return TOKENIZERS.computeIfAbsent(encoding, key -> new BpeTokenizer(key, loadTokens(key)));
+        }
+    }
+
+    /**
+     * Returns the tokenizer of the model, see {@link Encoding#forModel(String)}.
+     *
+     * @param model the model name.
+     * @return the shared tokenizer of the model.
+     */
+    public static BpeTokenizer forModel(String model) {
+        return of(Encoding.forModel(model));
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    /**
+     * Encodes the text into tokens.
+     *
+     * @param text the text to encode.
+     * @return the ranks of the tokens.
+     */
+    public int[] encode(String text) {
+        int[] result = new int[Math.max(16, text.length() / 3)];
+        int size = 0;
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            byte[] piece = text.substring(matcher.start(), matcher.end()).getBytes(StandardCharsets.UTF_8);
+            int[] parts = new int[piece.length];
+            int count = merge(piece, parts);
+            if (size + count > result.length) {
+                result = Arrays.copyOf(result, Math.max(result.length * 2, size + count));
+            }
+            System.arraycopy(parts, 0, result, size, count);
+            size += count;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Counts the tokens of the text, without collecting them.
+     *
+     * @param text the text, may be null.
+     * @return the number of tokens.
+     */
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        int[] parts = new int[64];
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            byte[] piece = text.substring(matcher.start(), matcher.end()).getBytes(StandardCharsets.UTF_8);
+            if (piece.length > parts.length) {
+                parts = new int[piece.length];
+            }
+            count += merge(piece, parts);
+        }
+        return count;
+    }
+
+    /**
+     * Decodes the tokens back into text.
+     *
+     * @param ranks the ranks of the tokens.
+     * @return the text, with malformed UTF-8 sequences replaced.
+     */
+    public String decode(int[] ranks) {
+        int length = 0;
+        for (int rank : ranks) {
+            length += token(rank).length;
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (int rank : ranks) {
+            byte[] token = token(rank);
+            System.arraycopy(token, 0, bytes, offset, token.length);
+            offset += token.length;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] token(int rank) {
+        if (rank < 0 || rank >= tokens.length || tokens[rank] == null) {
+            throw new Autogen4jException("Unknown token %d in encoding %s.", rank, encoding.getEncodingName());
+        }
+        return tokens[rank];
+    }
+
+    /**
+     * Merges the bytes of one piece into tokens.
+     *
+     * @param piece the UTF-8 bytes of the piece.
+     * @param parts receives the ranks of the tokens, must be at least as long as the piece.
+     * @return the number of tokens.
+     */
+    private int merge(byte[] piece, int[] parts) {
+        int size = piece.length;
+        // most pieces are whole tokens, which tiktoken also encodes without merging.
+        int rank = lookup(tokenTable, tokens, piece, 0, size);
+        if (rank >= 0) {
+            parts[0] = rank;
+            return 1;
+        }
+        for (int i = 0; i < size; i++) {
+            parts[i] = byteRanks[piece[i] & 0xff];
+        }
+        if (size == 1) {
+            return 1;
+        }
+        // pairRanks[i] is the rank of the token merged from parts[i] and parts[i + 1].
+        int[] pairRanks = new int[size - 1];
+        for (int i = 0; i < size - 1; i++) {
+            pairRanks[i] = mergeRank(parts[i], parts[i + 1]);
+        }
+        while (size > 1) {
+            int min = 0;
+            for (int i = 1; i < size - 1; i++) {
+                if (pairRanks[i] < pairRanks[min]) {
+                    min = i;
+                }
+            }
+            if (pairRanks[min] == NO_RANK) {
+                break;
+            }
+            parts[min] = pairRanks[min];
+            System.arraycopy(parts, min + 2, parts, min + 1, size - min - 2);
+            System.arraycopy(pairRanks, min + 1, pairRanks, min, size - min - 2);
+            size--;
+            if (min > 0) {
+                pairRanks[min - 1] = mergeRank(parts[min - 1], parts[min]);
+            }
+            if (min < size - 1) {
+                pairRanks[min] = mergeRank(parts[min], parts[min + 1]);
+            }
+        }
+        return size;
+    }
+
+    private int mergeRank(int left, int right) {
+        return mergeRanks.get(pair(left, right), NO_RANK);
+    }
+
+    private static long pair(int left, int right) {
+        return ((long) left << 32) | right;
+    }
+
+    private static byte[][] loadTokens(Encoding encoding) {
+        InputStream resource = BpeTokenizer.class.getResourceAsStream(encoding.resource());
+        if (resource == null) {
+            throw new Autogen4jException("The vocabulary of encoding %s is not on the classpath.",
+                    encoding.getEncodingName());
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[][] tokens = new byte[1 << 16][];
+        int maxRank = -1;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(resource, 1 << 16), StandardCharsets.US_ASCII))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                int space = line.indexOf(' ');
+                if (space < 0) {
+                    continue;
+                }
+                int rank = Integer.parseInt(line, space + 1, line.length(), 10);
+                if (rank >= tokens.length) {
+                    tokens = Arrays.copyOf(tokens, Math.max(tokens.length * 2, rank + 1));
+                }
+                tokens[rank] = decoder.decode(line.substring(0, space));
+                maxRank = Math.max(maxRank, rank);
+            }
+        } catch (IOException e) {
+            throw new Autogen4jException(
+                    String.format("Failed to load the vocabulary of encoding %s.", encoding.getEncodingName()), e);
+        }
+        return Arrays.copyOf(tokens, maxRank + 1);
+    }
+}
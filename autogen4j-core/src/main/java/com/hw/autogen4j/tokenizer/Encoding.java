@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.tokenizer;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The byte pair encodings of the OpenAI models, with the same vocabularies and pre-tokenization as tiktoken.
+ *
+ * @author HamaWhite
+ */
+@Getter
+public enum Encoding {
+
+    /**
+     * the encoding of gpt-4, gpt-3.5-turbo and the text-embedding-3 models.
+     */
+    CL100K_BASE("cl100k_base",
+            "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*"
+                    + "|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+"),
+
+    /**
+     * the encoding of gpt-4o and the o-series models.
+     */
+    O200K_BASE("o200k_base",
+            "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+"
+                    + "(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+                    + "|[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*"
+                    + "(?i:'s|'t|'re|'ve|'m|'ll|'d)?"
+                    + "|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+");
+
+    private static final List<String> O200K_MODEL_PREFIXES =
+            List.of("gpt-4o", "chatgpt-4o", "gpt-4.1", "gpt-4.5", "gpt-5", "o1", "o3", "o4");
+
+    /**
+     * the name of the encoding, as known by tiktoken.
+     */
+    private final String encodingName;
+
+    /**
+     * the regex splitting the text into pieces before the byte pair merges.
+     */
+    private final String pattern;
+
+    Encoding(String encodingName, String pattern) {
+        this.encodingName = encodingName;
+        this.pattern = pattern;
+    }
+
+    /**
+     * The classpath resource holding the ranks of the encoding, in the gzipped tiktoken format.
+     *
+     * @return the resource name.
+     */
+    public String resource() {
+        return "/tokenizer/" + encodingName + ".tiktoken.gz";
+    }
+
+    /**
+     * Returns the encoding of the model. Unknown models fall back to cl100k_base.
+     *
+     * @param model the model name, such as gpt-4.
+     * @return the encoding of the model.
+     */
+    public static Encoding forModel(String model) {
+        if (model != null && O200K_MODEL_PREFIXES.stream().anyMatch(model::startsWith)) {
+            return O200K_BASE;
+        }
+        return CL100K_BASE;
+    }
+}
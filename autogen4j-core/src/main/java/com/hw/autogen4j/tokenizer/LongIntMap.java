@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.tokenizer;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from long to int, which stores neither boxed keys nor boxed values.
+ *
+ * @author HamaWhite
+ */
+final class LongIntMap {
+
+    private static final long EMPTY = -1L;
+
+    private final long[] keys;
+
+    private final int[] values;
+
+    private final int mask;
+
+    private int size;
+
+    /**
+     * Creates a map with a fixed capacity, which must not be exceeded.
+     *
+     * @param expectedSize the maximum number of entries.
+     */
+    LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Associates the value with the key, the key must not be negative.
+     */
+    void put(long key, int value) {
+        int index = index(key);
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        if (keys[index] == EMPTY) {
+            if (++size > mask / 2 + 1) {
+                throw new IllegalStateException("The map is over its capacity of " + (mask / 2 + 1));
+            }
+            keys[index] = key;
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Returns the value of the key, or the default value if the key is absent.
+     */
+    int get(long key, int defaultValue) {
+        for (int index = index(key);; index = (index + 1) & mask) {
+            long current = keys[index];
+            if (current == key) {
+                return values[index];
+            }
+            if (current == EMPTY) {
+                return defaultValue;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int index(long key) {
+        // the finalizer of murmur3, spreading the bits of both token ids over the low bits.
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.util;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Captures the output of a process with a fixed memory budget.
+ * <p>
+ * Up to the limit, the output is kept in memory as is. Past the limit, only the first and the last half of the limit
+ * are kept, for the text of the reply, and the bytes in between are only counted. A process printing a large
+ * dataframe or looping on a print therefore never holds more than the limit in memory, and never writes to disk.
+ *
+ * @author HamaWhite
+ */
+public class BoundedOutputStream extends OutputStream {
+
+    private final byte[] head;
+
+    /**
+     * a ring buffer holding the last bytes, once the head is full.
+     */
+    private final byte[] tail;
+
+    private int headSize;
+
+    /**
+     * the position of the next byte in the tail.
+     */
+    private int tailPosition;
+
+    private long tailCount;
+
+    private long byteCount;
+
+    /**
+     * Creates a capture keeping at most the limit in memory.
+     *
+     * @param limit the maximum number of bytes kept in memory, at least 2 so that both the head and the tail keep
+     *              some bytes.
+     */
+    public BoundedOutputStream(int limit) {
+        if (limit < 2) {
+            throw new IllegalArgumentException("The limit of the output must be at least 2 bytes, got " + limit);
+        }
+        this.head = new byte[limit / 2];
+        this.tail = new byte[limit - head.length];
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        byteCount += length;
+        int toHead = Math.min(length, head.length - headSize);
+        System.arraycopy(bytes, offset, head, headSize, toHead);
+        headSize += toHead;
+
+        int toTail = length - toHead;
+        tailCount += toTail;
+        // only the last bytes fit in the tail, they are copied in at most two ranges around the end of the ring.
+        int skipped = Math.max(0, toTail - tail.length);
+        int from = offset + toHead + skipped;
+        int remaining = toTail - skipped;
+        tailPosition = (int) ((tailPosition + (long) skipped) % tail.length);
+        while (remaining > 0) {
+            int count = Math.min(remaining, tail.length - tailPosition);
+            System.arraycopy(bytes, from, tail, tailPosition, count);
+            from += count;
+            remaining -= count;
+            tailPosition = (tailPosition + count) % tail.length;
+        }
+    }
+
+    private byte[] tailBytes() {
+        int size = (int) Math.min(tailCount, tail.length);
+        byte[] bytes = new byte[size];
+        int start = size < tail.length ? 0 : tailPosition;
+        int first = Math.min(size, tail.length - start);
+        System.arraycopy(tail, start, bytes, 0, first);
+        System.arraycopy(tail, 0, bytes, first, size - first);
+        return bytes;
+    }
+
+    /**
+     * Returns the end of the head, before the last character if it is cut in the middle of its bytes.
+     */
+    private int headEnd() {
+        int lead = headSize - 1;
+        while (lead > 0 && headSize - lead < 4 && (head[lead] & 0xC0) == 0x80) {
+            lead--;
+        }
+        if (lead < 0) {
+            return headSize;
+        }
+        int b = head[lead] & 0xFF;
+        int length = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+        return lead + length > headSize ? lead : headSize;
+    }
+
+    /**
+     * Returns the total number of bytes written, including the ones not kept in memory.
+     *
+     * @return the total number of bytes written.
+     */
+    public synchronized long byteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Whether part of the output is missing from the text, because it was larger than the limit.
+     *
+     * @return true if the output was truncated.
+     */
+    public synchronized boolean isTruncated() {
+        return byteCount > head.length + tail.length;
+    }
+
+    /**
+     * Returns the output as text, with the first and the last part of the output if it was truncated.
+     *
+     * @param charset the charset of the output.
+     * @return the output as text.
+     */
+    public synchronized String toString(Charset charset) {
+        byte[] tailBytes = tailBytes();
+        if (!isTruncated()) {
+            byte[] bytes = new byte[headSize + tailBytes.length];
+            System.arraycopy(head, 0, bytes, 0, headSize);
+            System.arraycopy(tailBytes, 0, bytes, headSize, tailBytes.length);
+            return new String(bytes, charset);
+        }
+        // the head may end, and the tail may start, in the middle of a multibyte character.
+        int headEnd = headEnd();
+        int start = 0;
+        while (start < tailBytes.length && (tailBytes[start] & 0xC0) == 0x80) {
+            start++;
+        }
+        return new String(head, 0, headEnd, charset)
+                + "%n... (%d bytes truncated) ...%n".formatted(byteCount - headEnd - (tailBytes.length - start))
+                + new String(tailBytes, start, tailBytes.length - start, charset);
+    }
+
+    @Override
+    public String toString() {
+        return toString(Charset.defaultCharset());
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.util;
+
+import com.hw.autogen4j.entity.CodeBlock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hand-written scanner for the markdown code blocks of a text, without regex and without backtracking.
+ * <p>
+ * It finds the same blocks as the regex {@code ```[ \t]*(\w+)?[ \t]*\r?\n(.*?)\r?\n[ \t]*```}, that is:
+ * <ul>
+ * <li>an opening fence ``` followed by optional spaces, an optional language name made of word characters, optional
+ * spaces and a linebreak.</li>
+ * <li>the code itself, as short as possible.</li>
+ * <li>a linebreak, optional spaces and a closing fence ```.</li>
+ * </ul>
+ * When single line code is detected, the code of a block cannot span several lines, and inline code between single
+ * backticks is extracted too, as with the regex above without {@code DOTALL} followed by the alternative
+ * {@code |`([^`]+)`}.
+ * <p>
+ * The positions where a block may end only depend on the text, so they are found in one pass, and each opening fence
+ * then finds its closing fence with a binary search. A long reply with unbalanced backticks therefore costs
+ * O(n log n) instead of the O(n^2) of the regex retrying the rest of the text after each opening fence.
+ *
+ * @author HamaWhite
+ */
+final class CodeBlockScanner {
+
+    private static final String FENCE = "```";
+
+    private final CharSequence text;
+
+    private final boolean detectSingleLineCode;
+
+    /**
+     * the positions where the code of a multi-line block may end, in ascending order.
+     */
+    private int[] codeEnds;
+
+    private int codeEndCount;
+
+    CodeBlockScanner(CharSequence text, boolean detectSingleLineCode) {
+        this.text = text;
+        this.detectSingleLineCode = detectSingleLineCode;
+    }
+
+    List<CodeBlock> scan() {
+        if (!detectSingleLineCode) {
+            findCodeEnds();
+        }
+        List<CodeBlock> extracted = new ArrayList<>();
+        int length = text.length();
+        int position = 0;
+        while (position < length) {
+            if (text.charAt(position) != '`') {
+                position++;
+                continue;
+            }
+            int end = matchBlock(position, extracted);
+            if (end < 0 && detectSingleLineCode) {
+                end = matchInlineCode(position, extracted);
+            }
+            position = end < 0 ? position + 1 : end;
+        }
+        return extracted;
+    }
+
+    /**
+     * Match a fenced block starting at the position.
+     *
+     * @return the end of the block, or -1 if there is no block starting at the position.
+     */
+    private int matchBlock(int start, List<CodeBlock> extracted) {
+        if (!startsWith(start, FENCE)) {
+            return -1;
+        }
+        int length = text.length();
+        int i = skipSpaces(start + FENCE.length());
+        int languageStart = i;
+        while (i < length && isWordChar(text.charAt(i))) {
+            i++;
+        }
+        String language = i > languageStart ? text.subSequence(languageStart, i).toString() : null;
+        i = skipSpaces(i);
+        int codeStart = skipLinebreak(i);
+        if (codeStart < 0) {
+            return -1;
+        }
+
+        int codeEnd = detectSingleLineCode ? singleLineCodeEnd(codeStart) : nextCodeEnd(codeStart);
+        if (codeEnd < 0) {
+            return -1;
+        }
+        String code = text.subSequence(codeStart, codeEnd).toString();
+        if (detectSingleLineCode) {
+            extracted.add(new CodeBlock(language == null ? "" : language.strip(), code.strip()));
+        } else {
+            extracted.add(new CodeBlock(language, code));
+        }
+        return skipSpaces(skipLinebreak(codeEnd)) + FENCE.length();
+    }
+
+    /**
+     * Match inline code between single backticks starting at the position.
+     *
+     * @return the end of the inline code, or -1 if there is no inline code starting at the position.
+     */
+    private int matchInlineCode(int start, List<CodeBlock> extracted) {
+        int length = text.length();
+        int i = start + 1;
+        while (i < length && text.charAt(i) != '`') {
+            i++;
+        }
+        if (i >= length || i == start + 1) {
+            return -1;
+        }
+        extracted.add(new CodeBlock("", text.subSequence(start + 1, i).toString().strip()));
+        return i + 1;
+    }
+
+    /**
+     * Find all the positions where the code of a multi-line block may end: a linebreak followed by optional spaces and
+     * a closing fence.
+     */
+    private void findCodeEnds() {
+        codeEnds = new int[16];
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if ((c == '\n' || (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n'))
+                    && startsWith(skipSpaces(skipLinebreak(i)), FENCE)) {
+                if (codeEndCount == codeEnds.length) {
+                    codeEnds = Arrays.copyOf(codeEnds, codeEndCount * 2);
+                }
+                codeEnds[codeEndCount++] = i;
+            }
+        }
+    }
+
+    /**
+     * Returns the first position at or after the start where the code of a multi-line block may end, or -1.
+     */
+    private int nextCodeEnd(int start) {
+        int low = 0;
+        int high = codeEndCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (codeEnds[middle] < start) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < codeEndCount ? codeEnds[low] : -1;
+    }
+
+    /**
+     * Returns the end of single line code starting at the position, which must be followed by a linebreak, optional
+     * spaces and a closing fence, or -1.
+     */
+    private int singleLineCodeEnd(int start) {
+        int length = text.length();
+        int i = start;
+        while (i < length && !isLineTerminator(text.charAt(i))) {
+            i++;
+        }
+        int afterLinebreak = skipLinebreak(i);
+        return afterLinebreak >= 0 && startsWith(skipSpaces(afterLinebreak), FENCE) ? i : -1;
+    }
+
+    /**
+     * Returns the position after the {@code \r?\n} linebreak at the position, or -1 if there is none.
+     */
+    private int skipLinebreak(int position) {
+        int length = text.length();
+        if (position < length && text.charAt(position) == '\r') {
+            position++;
+        }
+        return position < length && text.charAt(position) == '\n' ? position + 1 : -1;
+    }
+
+    private int skipSpaces(int position) {
+        int length = text.length();
+        while (position >= 0 && position < length && (text.charAt(position) == ' ' || text.charAt(position) == '\t')) {
+            position++;
+        }
+        return position;
+    }
+
+    private boolean startsWith(int position, String prefix) {
+        if (position < 0 || position + prefix.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(position + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the character is a word character, as {@code \w} in a regex.
+     */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Whether the character ends a line, the characters not matched by {@code .} in a regex without {@code DOTALL}.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
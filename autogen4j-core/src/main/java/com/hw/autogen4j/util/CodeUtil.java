@@ -22,20 +22,22 @@ import com.hw.autogen4j.entity.CodeBlock;
 import com.hw.autogen4j.entity.CodeExecutionConfig;
 import com.hw.autogen4j.entity.CodeExecutionResult;
 import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.autogen4j.executor.ContainerPool;
+import com.hw.autogen4j.executor.ExecutionCache;
+import com.hw.autogen4j.executor.InterpreterPool;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.exec.*;
 import org.apache.commons.lang3.StringUtils;
 
-import java.io.ByteArrayOutputStream;
+import lombok.SneakyThrows;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static com.hw.autogen4j.util.FileUtil.deleteFile;
 import static com.hw.autogen4j.util.FileUtil.writeCodeToFile;
@@ -49,27 +51,13 @@ public class CodeUtil {
         throw new IllegalStateException("Utility class");
     }
 
-    /**
-     * Matches multi-line code blocks.
-     * <ul>
-     * <li>[ \t]* - Matches the potential spaces before the language name.</li>
-     * <li>(\w+)? - Matches the language, where the ? indicates it is optional.</li>
-     * <li>[ \t]* - Matches the potential spaces (not newlines) after the language name.</li>
-     * <li>\r?\n - Ensures there is a linebreak after ```.</li>
-     * <li>(.*?) - Matches the code itself (non-greedy).</li>
-     * <li>\r?\n - Ensures there is a linebreak before ```.</li>
-     * <li>[ \t]* - Matches the potential spaces before the closing ``` (the spec allows indentation).</li>
-     * </ul>
-     */
-    private static final String CODE_BLOCK_PATTERN = "```[ \\t]*(\\w+)?[ \\t]*\\r?\\n(.*?)\\r?\\n[ \\t]*```";
-
     /**
      * Extract code from a text.
      *
      * @param text the content to extract code from.
      * @return a list of code blocks, each containing the language and the code.
      */
-    public static List<CodeBlock> extractCode(String text) {
+    public static List<CodeBlock> extractCode(CharSequence text) {
         return extractCode(text, false);
     }
 
@@ -80,29 +68,25 @@ public class CodeUtil {
      * @param detectSingleLineCode extracting single line code.
      * @return a list of code blocks, each containing the language and the code.
      */
-    public static List<CodeBlock> extractCode(String text, boolean detectSingleLineCode) {
-        List<CodeBlock> extracted = new ArrayList<>();
-        if (!detectSingleLineCode) {
-            Matcher matcher = Pattern.compile(CODE_BLOCK_PATTERN, Pattern.DOTALL).matcher(text);
-            while (matcher.find()) {
-                extracted.add(new CodeBlock(matcher.group(1), matcher.group(2)));
-            }
-            return extracted;
-        }
+    public static List<CodeBlock> extractCode(CharSequence text, boolean detectSingleLineCode) {
+        return new CodeBlockScanner(text, detectSingleLineCode).scan();
+    }
 
-        // for extracting multi-line and single-line code block, `([^`]+)` matches inline code.
-        Matcher matcher = Pattern.compile(CODE_BLOCK_PATTERN + "|`([^`]+)`").matcher(text);
-        // extract the individual code blocks and languages from the matched groups
-        while (matcher.find()) {
-            String multiLineCode = matcher.group(2);
-            String singleLineCode = matcher.group(3);
-            if (multiLineCode != null) {
-                extracted.add(new CodeBlock(matcher.group(1).strip(), multiLineCode.strip()));
-            } else if (singleLineCode != null) {
-                extracted.add(new CodeBlock("", singleLineCode.strip()));
-            }
+    /**
+     * Extract code from a text read from the reader, for example a reply streamed by the LLM.
+     *
+     * @param reader               the reader of the content to extract code from.
+     * @param detectSingleLineCode extracting single line code.
+     * @return a list of code blocks, each containing the language and the code.
+     */
+    @SneakyThrows(IOException.class)
+    public static List<CodeBlock> extractCode(Reader reader, boolean detectSingleLineCode) {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        for (int read = reader.read(buffer); read >= 0; read = reader.read(buffer)) {
+            text.append(buffer, 0, read);
         }
-        return extracted;
+        return extractCode(text, detectSingleLineCode);
     }
 
     /**
@@ -114,21 +98,54 @@ public class CodeUtil {
      * @return CodeExecutionResult representing the result of code execution.
      */
     public static CodeExecutionResult executeCode(String language, String code, CodeExecutionConfig config) {
+        return executeCode(language, code, config, config.isDeterministic());
+    }
+
+    /**
+     * Execute code in a docker container.
+     *
+     * @param language      The language of the code.
+     * @param code          The code to execute.
+     * @param config        Configuration for code execution.
+     * @param deterministic Whether the code is deterministic, so that its result can be taken from the execution
+     *                      cache of the config.
+     * @return CodeExecutionResult representing the result of code execution.
+     */
+    public static CodeExecutionResult executeCode(String language, String code, CodeExecutionConfig config,
+            boolean deterministic) {
         if (StringUtils.isEmpty(language) || StringUtils.isEmpty(code)) {
             throw new Autogen4jException("Either language or code must be provided.");
         }
 
         String workDir = config.getWorkDir();
         String codeHash = DigestUtils.md5Hex(code);
+        ExecutionCache executionCache = config.getExecutionCache();
+        if (deterministic && executionCache != null) {
+            return executionCache.computeIfAbsent(workDir, language, codeHash,
+                    () -> executeCode(language, code, codeHash, config));
+        }
+        return executeCode(language, code, codeHash, config);
+    }
+
+    private static CodeExecutionResult executeCode(String language, String code, String codeHash,
+            CodeExecutionConfig config) {
+        String workDir = config.getWorkDir();
         String fileExt = language.startsWith("python") ? "py" : language;
         String filename = String.format("tmp_code_%s.%s", codeHash, fileExt);
 
         // write the code string to a file specified by the filename.
         writeCodeToFile(workDir, filename, code);
 
-        CodeExecutionResult executionResult = StringUtils.isEmpty(config.getDocker())
-                ? executeCodeLocally(language, workDir, filename, config.getTimeout())
-                : executeCodeInDocker();
+        CodeExecutionResult executionResult;
+        if (StringUtils.isNotEmpty(config.getDocker())) {
+            executionResult = executeCodeInDocker(language, filename, config);
+        } else if (config.isWarmWorkers() && "python".equals(language)) {
+            executionResult = InterpreterPool.of(config).execute(filename, config.getTimeout(),
+                    config.getMaxOutputBytes());
+        } else {
+            executionResult = executeCodeLocally(language, workDir, filename, config.getTimeout(),
+                    config.getMaxOutputBytes());
+        }
 
         deleteFile(workDir, filename);
         return executionResult;
@@ -144,6 +161,11 @@ public class CodeUtil {
 
     public static CodeExecutionResult executeCodeLocally(String language, String workDir, String filename,
             int timeout) {
+        return executeCodeLocally(language, workDir, filename, timeout, CodeExecutionConfig.DEFAULT_MAX_OUTPUT_BYTES);
+    }
+
+    public static CodeExecutionResult executeCodeLocally(String language, String workDir, String filename,
+            int timeout, int maxOutputBytes) {
         // set up the command based on language
         String executable = getExecutableForLanguage(language);
         CommandLine commandLine = new CommandLine(executable);
@@ -155,8 +177,8 @@ public class CodeUtil {
         executor.setExitValue(0);
 
         // set up the streams for the output of the subprocess
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+        BoundedOutputStream outputStream = new BoundedOutputStream(maxOutputBytes);
+        BoundedOutputStream errorStream = new BoundedOutputStream(maxOutputBytes);
         PumpStreamHandler streamHandler = new PumpStreamHandler(outputStream, errorStream);
         executor.setStreamHandler(streamHandler);
 
@@ -168,22 +190,49 @@ public class CodeUtil {
             // execute the command
             executor.execute(commandLine);
             // process completed before the watchdog terminated it
-            String output = outputStream.toString();
-            return new CodeExecutionResult(0, output.trim());
+            return executionResult(0, outputStream, errorStream, workDir);
         } catch (ExecuteException e) {
             // process finished with an exit value (possibly non-zero)
-            String errorOutput = errorStream.toString()
-                    .replace(Path.of(workDir).toAbsolutePath() + File.separator, "");
-
-            return new CodeExecutionResult(e.getExitValue(), errorOutput.trim());
+            return executionResult(e.getExitValue(), outputStream, errorStream, workDir);
         } catch (IOException e) {
             // returns a special result if the process was killed by the watchdog
             throw new Autogen4jException("Error executing code.", e);
         }
     }
 
-    public static CodeExecutionResult executeCodeInDocker() {
-        // TODO
-        return null;
+    /**
+     * Build the result of a code execution from its captured output, the logs are the stdout if the code succeeded,
+     * the stderr otherwise.
+     *
+     * @param exitCode    the exit code of the code.
+     * @param stdout      the captured stdout.
+     * @param stderr      the captured stderr.
+     * @param workDir     the working directory, which is removed from the paths in the error output.
+     * @return the result of the code execution.
+     */
+    public static CodeExecutionResult executionResult(int exitCode, BoundedOutputStream stdout,
+            BoundedOutputStream stderr, String workDir) {
+        BoundedOutputStream output = exitCode == 0 ? stdout : stderr;
+        String logs = output.toString();
+        if (exitCode != 0) {
+            logs = logs.replace(Path.of(workDir).toAbsolutePath() + File.separator, "");
+        }
+        return new CodeExecutionResult(exitCode, logs.trim(), null, output.byteCount(), output.isTruncated());
+    }
+
+    /**
+     * Execute a code file in a warm container of the docker image of the config, the working directory is mounted in
+     * the container.
+     *
+     * @param language The language of the code.
+     * @param filename The code file, relative to the working directory.
+     * @param config   Configuration for code execution.
+     * @return CodeExecutionResult representing the result of code execution.
+     */
+    public static CodeExecutionResult executeCodeInDocker(String language, String filename,
+            CodeExecutionConfig config) {
+        String executable = getExecutableForLanguage(language);
+        return ContainerPool.of(config).execute(List.of(executable, filename), config.getTimeout(),
+                config.getMaxOutputBytes());
     }
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+# A warm python worker, started once and reused for many code blocks.
+#
+# The modules given as arguments are imported up front. Then each request line names a code file and the files to
+# write its stdout and stderr to, the file is run as __main__ in the same interpreter, and the exit code is written
+# back as a response line. stdin, stdout and stderr are only used for the protocol, the code sees /dev/null instead.
+# The errors of the worker itself, such as a module that failed to import, are logged to the original stderr.
+#
+# Like a fresh interpreter, each file sees the modules of the working directory as they are on disk, the environment
+# variables and sys.path of the worker, and no open matplotlib figure: they are restored after each file.
+import importlib
+import json
+import os
+import runpy
+import sys
+import traceback
+
+
+def main():
+    requests = os.fdopen(os.dup(0), 'r')
+    responses = os.fdopen(os.dup(1), 'w')
+    log = os.fdopen(os.dup(2), 'w')
+    devnull = os.open(os.devnull, os.O_RDWR)
+    for fd in (0, 1, 2):
+        os.dup2(devnull, fd)
+
+    for module in sys.argv[1:]:
+        try:
+            __import__(module)
+        except Exception:
+            print('Failed to import the module %s:' % module, file=log)
+            traceback.print_exc(file=log)
+            log.flush()
+
+    cwd = os.getcwd()
+    respond(responses, {'ready': True})
+    for line in requests:
+        request = json.loads(line)
+        environ, path = dict(os.environ), list(sys.path)
+        try:
+            exit_code = run(request, devnull, log)
+        finally:
+            os.chdir(cwd)
+            restore(cwd, environ, path, log)
+        respond(responses, {'exit': exit_code})
+
+
+def restore(cwd, environ, path, log):
+    """Forget the state the code left behind, so the next file starts as in a fresh interpreter."""
+    # the modules of the working directory may be rewritten by the next code block.
+    for name, module in list(sys.modules.items()):
+        filename = getattr(module, '__file__', None)
+        if filename and os.path.abspath(filename).startswith(cwd + os.sep):
+            del sys.modules[name]
+    importlib.invalidate_caches()
+    os.environ.clear()
+    os.environ.update(environ)
+    sys.path[:] = path
+    pyplot = sys.modules.get('matplotlib.pyplot')
+    if pyplot is not None:
+        try:
+            pyplot.close('all')
+            sys.modules['matplotlib'].rcdefaults()
+        except Exception:
+            traceback.print_exc(file=log)
+            log.flush()
+
+
+def respond(responses, response):
+    responses.write(json.dumps(response) + '\n')
+    responses.flush()
+
+
+def run(request, devnull, log):
+    flags = os.O_WRONLY | os.O_CREAT | os.O_TRUNC
+    for fd, path in ((1, request['stdout']), (2, request['stderr'])):
+        target = os.open(path, flags)
+        os.dup2(target, fd)
+        os.close(target)
+    sys.stdout, sys.stderr = sys.__stdout__, sys.__stderr__
+    argv = sys.argv
+    sys.argv = [request['file']]
+    try:
+        runpy.run_path(request['file'], run_name='__main__')
+        return 0
+    except SystemExit as e:
+        if e.code is None or isinstance(e.code, int):
+            return e.code or 0
+        print(e.code, file=sys.stderr)
+        return 1
+    except BaseException as e:
+        # skip the frames of the worker and runpy, as if the file was run by a fresh interpreter.
+        tb = e.__traceback__
+        filename = os.path.abspath(request['file'])
+        while tb is not None and os.path.abspath(tb.tb_frame.f_code.co_filename) != filename:
+            tb = tb.tb_next
+        traceback.print_exception(type(e), e, tb)
+        return 1
+    finally:
+        sys.argv = argv
+        for stream in (sys.stdout, sys.stderr, sys.__stdout__, sys.__stderr__):
+            try:
+                stream.flush()
+            except Exception:
+                traceback.print_exc(file=log)
+                log.flush()
+        sys.stdout, sys.stderr = sys.__stdout__, sys.__stderr__
+        os.dup2(devnull, 1)
+        os.dup2(devnull, 2)
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent;
+
+import com.hw.autogen4j.entity.ReplyResult;
+import com.hw.autogen4j.entity.TokenBudget;
+import com.hw.autogen4j.entity.TokenUsage;
+import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.autogen4j.stub.OpenAiStubServer;
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.hw.autogen4j.entity.HumanInputMode.NEVER;
+import static com.hw.autogen4j.stub.StubResponse.reply;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author HamaWhite
+ */
+class ConversableAgentTest {
+
+    /**
+     * An agent that replies without calling the LLM, and records the stack depth of each reply.
+     */
+    private static class EchoAgent extends ConversableAgent {
+
+        private final List<Integer> stackDepths = new ArrayList<>();
+
+        private Runnable beforeReply = () -> {
+        };
+
+        private EchoAgent(Builder builder) {
+            super(builder);
+        }
+
+        @Override
+        public ReplyResult generateOaiReply(Agent sender, List<ChatMessage> messages) {
+            beforeReply.run();
+            stackDepths.add(Thread.currentThread().getStackTrace().length);
+            return new ReplyResult(true, new ChatMessage("echo " + messages.size()));
+        }
+
+        private static class Builder extends ConversableAgent.Builder<Builder> {
+
+            @Override
+            protected EchoAgent build() {
+                return new EchoAgent(this);
+            }
+        }
+    }
+
+    private static EchoAgent echoAgent(String name, int maxConsecutiveAutoReply) {
+        return new EchoAgent.Builder()
+                .name(name)
+                .humanInputMode(NEVER)
+                .maxConsecutiveAutoReply(maxConsecutiveAutoReply)
+                .build();
+    }
+
+    @Test
+    void testLongConversationKeepsStackDepthConstant() {
+        int turns = 20_000;
+        EchoAgent ping = echoAgent("ping", Integer.MAX_VALUE);
+        EchoAgent pong = echoAgent("pong", turns);
+
+        ping.initiateChat(pong, "start", true, true);
+
+        // pong terminates the conversation once it has auto-replied more than maxConsecutiveAutoReply times.
+        assertThat(pong.stackDepths).hasSize(turns + 1);
+        assertThat(pong.chatMessages(ping)).hasSize(1 + 2 * (turns + 1));
+        // the first reply is generated before the loop starts, all the later ones at the same stack depth.
+        assertThat(ping.stackDepths.stream().skip(1)).containsOnly(ping.stackDepths.get(1));
+        assertThat(pong.stackDepths.stream().skip(1)).containsOnly(pong.stackDepths.get(1));
+    }
+
+    @Test
+    void testCompactHistoryKeepsSameMessages() {
+        EchoAgent ping = echoAgent("ping", Integer.MAX_VALUE);
+        EchoAgent pong = echoAgent("pong", 10);
+        ping.initiateChat(pong, "start", true, true);
+
+        EchoAgent compactPing = new EchoAgent.Builder().name("ping").humanInputMode(NEVER).compactHistory(true)
+                .build();
+        EchoAgent compactPong = new EchoAgent.Builder().name("pong").humanInputMode(NEVER).compactHistory(true)
+                .maxConsecutiveAutoReply(10).build();
+        compactPing.initiateChat(compactPong, "start", true, true);
+
+        assertThat(compactPong.chatMessages(compactPing)).isEqualTo(pong.chatMessages(ping)).hasSize(23);
+        assertThat(compactPing.chatMessages(compactPong)).isEqualTo(ping.chatMessages(pong));
+    }
+
+    @Test
+    void testSendAsyncReturnsFirstReply() throws InterruptedException {
+        EchoAgent ping = echoAgent("ping", Integer.MAX_VALUE);
+        EchoAgent pong = echoAgent("pong", 100);
+
+        ChatMessage reply = ping.initiateChatAsync(pong, "start").join();
+        assertThat(reply.getContent()).isEqualTo("echo 1");
+
+        // the rest of the conversation goes on in the mailboxes of the agents.
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pong.stackDepths.size() < 101 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(pong.stackDepths).hasSize(101);
+    }
+
+    @Test
+    void testSendAsyncFailsWhenMailboxIsFull() {
+        EchoAgent ping = echoAgent("ping", Integer.MAX_VALUE);
+        // the mailbox of pong is never processed, so it is full after the first message.
+        EchoAgent pong = new EchoAgent.Builder()
+                .name("pong")
+                .mailboxCapacity(1)
+                .mailboxExecutor(task -> {
+                })
+                .mailboxOfferTimeout(10)
+                .build();
+
+        var first = ping.sendAsync(pong, new ChatMessage("first"), false, true);
+        var second = ping.sendAsync(pong, new ChatMessage("second"), false, true);
+
+        assertThat(first).isNotDone();
+        assertThatThrownBy(second::join).hasCauseInstanceOf(Autogen4jException.class)
+                .hasMessageContaining("The mailbox of agent pong is full");
+    }
+
+    @Test
+    void testReplyWaitsForRoomOutsideTheMailbox() throws Exception {
+        EchoAgent ping = echoAgent("ping", 1);
+        EchoAgent pong = new EchoAgent.Builder()
+                .name("pong")
+                .humanInputMode(NEVER)
+                .mailboxCapacity(1)
+                .mailboxOfferTimeout(5_000)
+                .build();
+        // while pong replies to the first message, a second one fills its mailbox.
+        CountDownLatch queued = new CountDownLatch(1);
+        pong.beforeReply = () -> {
+            if (queued.getCount() > 0) {
+                pong.receiveAsync(ping, new ChatMessage("second"), false, true);
+                queued.countDown();
+            }
+        };
+
+        ChatMessage reply = ping.initiateChatAsync(pong, "first").get(10, TimeUnit.SECONDS);
+        assertThat(reply.getContent()).isEqualTo("echo 1");
+
+        // the reply reaches ping once the second message has made room in the mailbox of pong.
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (ping.chatMessages(pong).size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(ping.chatMessages(pong)).extracting(ChatMessage::getContent).startsWith("first", "echo 1");
+    }
+
+    @Test
+    void testStreamingStopsEarly() {
+        String[] tokens = {"Done", ".", " TERMINATE", " and", " more", " words"};
+        StringBuilder events = new StringBuilder();
+        for (String token : tokens) {
+            events.append("data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"%s\"}}]}\n\n".formatted(token));
+        }
+        events.append("data: [DONE]\n\n");
+        OpenAiClient client = OpenAiClient.builder()
+                .openaiApiKey("sk-test")
+                .interceptorList(List.of(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(MediaType.get("text/event-stream"), events.toString()))
+                        .build()))
+                .build()
+                .init();
+
+        List<String> deltas = new ArrayList<>();
+        var assistant = AssistantAgent.builder()
+                .name("assistant")
+                .client(client)
+                .streamListener(deltas::add)
+                .streamStopCondition(content -> StringUtils.endsWith(content, "TERMINATE"))
+                .build();
+
+        ChatMessage reply = assistant.generateOaiReply(assistant, List.of(new ChatMessage(USER, "Hi"))).reply();
+        assertThat(deltas).containsExactly("Done", ".", " TERMINATE");
+        assertThat(reply.getContent()).isEqualTo("Done. TERMINATE");
+    }
+
+    @Test
+    void testTokenBudgetEndsConversation() {
+        try (OpenAiStubServer server = OpenAiStubServer.builder()
+                .defaultResponder(request -> reply("Let us keep talking about " + request.lastContent()))
+                .start()) {
+            OpenAiClient client = server.client(10);
+            var alice = AssistantAgent.builder()
+                    .name("alice")
+                    .client(client)
+                    .maxConsecutiveAutoReply(1000)
+                    .tokenBudget(TokenBudget.ofTotal(2_000))
+                    .build();
+            var bob = AssistantAgent.builder()
+                    .name("bob")
+                    .client(client)
+                    .maxConsecutiveAutoReply(1000)
+                    .build();
+
+            bob.initiateChat(alice, "the weather", true, true);
+
+            TokenUsage usage = alice.tokenUsage(bob);
+            assertThat(usage.totalTokens()).isGreaterThanOrEqualTo(2_000);
+            assertThat(alice.tokenUsage()).isEqualTo(usage);
+            assertThat(bob.tokenUsage(alice).totalTokens()).isPositive();
+            // the prompts grow with the history, so the budget is reached after a few turns.
+            assertThat(server.requestCount()).isLessThan(40);
+            assertThat(alice.chatMessages(bob)).hasSize(server.requestCount() + 1);
+
+            // a new chat starts with a new budget.
+            int requests = server.requestCount();
+            bob.initiateChat(alice, "the news", true, true);
+            assertThat(server.requestCount() - requests).isGreaterThan(1);
+            assertThat(alice.tokenUsage(bob).totalTokens()).isGreaterThanOrEqualTo(2_000);
+            assertThat(alice.tokenUsage().totalTokens()).isGreaterThan(alice.tokenUsage(bob).totalTokens());
+        }
+    }
+}
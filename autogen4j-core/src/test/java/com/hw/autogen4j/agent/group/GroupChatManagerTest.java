@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.AssistantAgent;
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.agent.group.selector.SpeakerSelector;
+import com.hw.autogen4j.entity.ReplyResult;
+import com.hw.autogen4j.entity.TokenBudget;
+import com.hw.autogen4j.entity.TokenUsage;
+import com.hw.autogen4j.session.ChatSession;
+import com.hw.autogen4j.stub.OpenAiStubServer;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hw.autogen4j.entity.HumanInputMode.NEVER;
+import static com.hw.autogen4j.stub.StubResponse.reply;
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class GroupChatManagerTest {
+
+    /**
+     * An agent that replies without calling the LLM, and is slow to receive, like an agent persisting or indexing
+     * each message.
+     */
+    private static class SlowAgent extends ConversableAgent {
+
+        private static final AtomicInteger COUNTER = new AtomicInteger();
+
+        /**
+         * the barrier the recipients of a broadcast wait on together, null if they don't wait.
+         */
+        private final CyclicBarrier barrier;
+
+        private SlowAgent(Builder builder) {
+            super(builder);
+            this.barrier = builder.barrier;
+        }
+
+        @Override
+        public ReplyResult generateOaiReply(Agent sender, List<ChatMessage> messages) {
+            return new ReplyResult(true, new ChatMessage("reply-" + COUNTER.incrementAndGet()));
+        }
+
+        @Override
+        public void receive(Agent sender, ChatMessage message, boolean requestReply, boolean silent) {
+            try {
+                Thread.sleep(20);
+                if (barrier != null) {
+                    barrier.await(10, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (BrokenBarrierException | TimeoutException e) {
+                throw new IllegalStateException("The recipients did not receive the message at the same time.", e);
+            }
+            super.receive(sender, message, requestReply, silent);
+        }
+
+        private static class Builder extends ConversableAgent.Builder<Builder> {
+
+            private CyclicBarrier barrier;
+
+            public Builder barrier(CyclicBarrier barrier) {
+                this.barrier = barrier;
+                return this;
+            }
+
+            @Override
+            protected SlowAgent build() {
+                return new SlowAgent(this);
+            }
+        }
+    }
+
+    @Test
+    void testParallelBroadcastKeepsOrder() {
+        // the 4 recipients of each round wait for each other, so they must receive the message at the same time.
+        CyclicBarrier barrier = new CyclicBarrier(4);
+        List<ConversableAgent> agents = List.of("a", "b", "c", "d", "e").stream()
+                .map(name -> (ConversableAgent) new SlowAgent.Builder().barrier(barrier).name(name)
+                        .humanInputMode(NEVER).build())
+                .toList();
+        GroupChat groupChat = GroupChat.builder()
+                .agents(List.copyOf(agents))
+                .maxRound(8)
+                .speakerSelector(SpeakerSelector.roundRobin())
+                .build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        GroupChatManager manager = GroupChatManager.builder()
+                .groupChat(groupChat)
+                .broadcastExecutor(executor)
+                .build();
+        agents.get(0).initiateChat(manager, "task", true, true);
+        executor.shutdown();
+
+        List<String> groupContents = groupChat.getMessages().stream().map(ChatMessage::getContent).toList();
+        assertThat(groupContents).hasSize(8);
+        for (ConversableAgent agent : agents) {
+            // every message of the group, whether sent or received, is in the history in the order of the group.
+            List<String> contents = agent.chatMessages(manager).stream().map(ChatMessage::getContent).toList();
+            assertThat(contents.subList(0, groupContents.size())).isEqualTo(groupContents);
+        }
+        BroadcastStats stats = manager.broadcastStats();
+        assertThat(stats.count()).isEqualTo(8);
+        assertThat(stats.average().toMillis()).isGreaterThanOrEqualTo(20L);
+        assertThat(barrier.isBroken()).isFalse();
+    }
+
+    @Test
+    void testHistoriesShareGroupLog() {
+        List<ConversableAgent> agents = List.of("a", "b", "c").stream()
+                .map(name -> (ConversableAgent) new SlowAgent.Builder().name(name).humanInputMode(NEVER).build())
+                .toList();
+        GroupChat groupChat = GroupChat.builder()
+                .agents(List.copyOf(agents))
+                .maxRound(4)
+                .speakerSelector(SpeakerSelector.roundRobin())
+                .build();
+        GroupChatManager manager = GroupChatManager.builder().groupChat(groupChat).build();
+        ConversableAgent a = agents.get(0);
+        a.initiateChat(manager, "task", true, true);
+
+        // the reply of the last round is sent to the manager, but never broadcast.
+        assertThat(groupChat.getLog().size()).isEqualTo(groupChat.getMessages().size() + 1);
+        List<ChatMessage> log = groupChat.getLog().messages();
+        for (ConversableAgent agent : agents) {
+            List<ChatMessage> history = agent.chatMessages(manager);
+            for (int i = 0; i < history.size(); i++) {
+                ChatMessage message = history.get(i);
+                boolean spoken = agent.getName().equals(log.get(i).getName());
+                assertThat(message.getRole()).isEqualTo(spoken ? ASSISTANT : USER);
+                assertThat(manager.chatMessages(agent).get(i).getRole()).isEqualTo(spoken ? USER : ASSISTANT);
+                // the messages are stored once, whoever reads them.
+                if (!spoken) {
+                    assertThat(message).isSameAs(log.get(i));
+                }
+            }
+        }
+        ChatMessage lastReply = log.get(log.size() - 1);
+        ConversableAgent other = agents.stream()
+                .filter(agent -> agent != a && !agent.getName().equals(lastReply.getName()))
+                .findFirst()
+                .orElseThrow();
+        assertThat(other.chatMessages(manager)).hasSize(log.size() - 1);
+
+        // the other agent is not the initiator, so its history goes on, without the reply it never received.
+        a.initiateChat(manager, "another task", true, true);
+        List<String> contents = other.chatMessages(manager).stream().map(ChatMessage::getContent).toList();
+        assertThat(contents).contains("task", "another task").doesNotContain(lastReply.getContent());
+        assertThat(a.chatMessages(manager).get(0).getContent()).isEqualTo("another task");
+    }
+
+    @Test
+    void testConcurrentSessionsKeepTheirOwnGroupChat() throws Exception {
+        List<ConversableAgent> agents = List.of("a", "b", "c").stream()
+                .map(name -> (ConversableAgent) new SlowAgent.Builder().name(name).humanInputMode(NEVER).build())
+                .toList();
+        GroupChat groupChat = GroupChat.builder()
+                .agents(List.copyOf(agents))
+                .maxRound(4)
+                .speakerSelector(SpeakerSelector.roundRobin())
+                .build();
+        GroupChatManager manager = GroupChatManager.builder().groupChat(groupChat).build();
+
+        List<ChatSession> sessions = List.of(new ChatSession(), new ChatSession());
+        ExecutorService executor = Executors.newFixedThreadPool(sessions.size());
+        List<Future<?>> chats = sessions.stream()
+                .<Future<?>>map(session -> executor.submit(() -> session.run(
+                        () -> agents.get(0).initiateChat(manager, "task " + session.getId(), true, true))))
+                .toList();
+        for (Future<?> chat : chats) {
+            chat.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        for (ChatSession session : sessions) {
+            session.run(() -> {
+                List<String> groupContents = groupChat.getMessages().stream().map(ChatMessage::getContent).toList();
+                assertThat(groupContents).hasSize(4);
+                assertThat(groupContents.get(0)).isEqualTo("task " + session.getId());
+                // the histories of the session are views of the log of the session.
+                List<String> contents = agents.get(1).chatMessages(manager).stream()
+                        .map(ChatMessage::getContent).toList();
+                assertThat(contents.subList(0, groupContents.size())).isEqualTo(groupContents);
+                assertThat(groupChat.getLog().size()).isEqualTo(groupContents.size() + 1);
+            });
+        }
+        // the group chat itself took part in no conversation.
+        assertThat(groupChat.getMessages()).isEmpty();
+        assertThat(groupChat.getLog().size()).isZero();
+    }
+
+    @Test
+    void testGroupLogDropsUnreadMessages() {
+        Agent participant = new SlowAgent.Builder().name("participant").build();
+        Agent manager = new SlowAgent.Builder().name("manager").build();
+        GroupMessageLog log = new GroupMessageLog();
+        List<ChatMessage> history = log.history(participant, ASSISTANT, manager);
+        List<ChatMessage> managerHistory = log.history(manager, USER, participant);
+        for (int i = 0; i < 100; i++) {
+            ChatMessage message = new ChatMessage(USER, "message-" + i);
+            history.add(message);
+            managerHistory.add(message);
+        }
+        assertThat(log.messages()).hasSize(100);
+
+        // the messages are dropped once no history can read them, their indexes stay the same.
+        history.clear();
+        assertThat(log.messages()).hasSize(100);
+        managerHistory.clear();
+        assertThat(log.messages()).isEmpty();
+        assertThat(log.size()).isEqualTo(100);
+
+        history.add(new ChatMessage(USER, "next"));
+        managerHistory.add(history.get(0));
+        assertThat(managerHistory).hasSize(1);
+        assertThat(managerHistory.get(0).getContent()).isEqualTo("next");
+        assertThat(log.messages()).hasSize(1);
+        assertThat(log.size()).isEqualTo(101);
+
+        // an empty history does not keep the messages appended after it was created or cleared.
+        List<ChatMessage> idle = log.history(participant, USER, manager);
+        for (int i = 0; i < 10; i++) {
+            managerHistory.add(new ChatMessage(USER, "more-" + i));
+        }
+        history.clear();
+        managerHistory.clear();
+        assertThat(idle).isEmpty();
+        assertThat(log.messages()).isEmpty();
+    }
+
+    @Test
+    void testTokenBudgetEndsGroupChat() {
+        try (OpenAiStubServer server = OpenAiStubServer.builder()
+                .defaultResponder(request -> reply("I agree with " + request.lastContent()))
+                .start()) {
+            List<ConversableAgent> agents = List.of("a", "b", "c").stream()
+                    .map(name -> (ConversableAgent) AssistantAgent.builder().name(name).client(server.client(10))
+                            .build())
+                    .toList();
+            GroupChat groupChat = GroupChat.builder()
+                    .agents(List.copyOf(agents))
+                    .maxRound(100)
+                    .speakerSelector(SpeakerSelector.roundRobin())
+                    .tokenBudget(TokenBudget.ofTotal(1_500))
+                    .build();
+            GroupChatManager manager = GroupChatManager.builder()
+                    .groupChat(groupChat)
+                    .build();
+            agents.get(0).initiateChat(manager, "the plan", true, true);
+
+            TokenUsage usage = groupChat.tokenUsage();
+            assertThat(usage.totalTokens()).isGreaterThanOrEqualTo(1_500);
+            assertThat(usage).isEqualTo(agents.stream().map(ConversableAgent::tokenUsage)
+                    .reduce(TokenUsage.EMPTY, TokenUsage::plus));
+            assertThat(groupChat.getMessages()).hasSizeLessThan(100).hasSize(server.requestCount() + 1);
+
+            // a new chat starts with a new budget.
+            int requests = server.requestCount();
+            agents.get(0).initiateChat(manager, "the new plan", true, true);
+            assertThat(server.requestCount() - requests).isGreaterThan(1);
+            assertThat(groupChat.tokenUsage().totalTokens()).isGreaterThanOrEqualTo(1_500)
+                    .isLessThan(usage.totalTokens() * 2);
+        }
+    }
+}
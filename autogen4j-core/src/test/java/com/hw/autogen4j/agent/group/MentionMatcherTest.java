@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class MentionMatcherTest {
+
+    /**
+     * The regex based counting that the matcher replaces.
+     */
+    private static Map<String, Integer> regexCount(String content, List<String> names) {
+        Map<String, Integer> mentions = new HashMap<>();
+        for (String name : names) {
+            Pattern pattern = Pattern.compile("(?<=\\W)" + Pattern.quote(name) + "(?=\\W)");
+            Matcher matcher = pattern.matcher(" " + content + " ");
+            int count = 0;
+            while (matcher.find()) {
+                count++;
+            }
+            if (count > 0) {
+                mentions.put(name, count);
+            }
+        }
+        return mentions;
+    }
+
+    @Test
+    void testCount() {
+        MentionMatcher matcher = new MentionMatcher(List.of("coder", "product_manager", "user_proxy", "@coder"));
+
+        assertThat(matcher.count("coder, ask the product_manager. The coder_bot and mycoder are not @coder."))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("coder", 2, "product_manager", 1, "@coder", 1));
+        assertThat(matcher.count("nobody")).isEmpty();
+    }
+
+    @Test
+    void testSameCountsAsRegex() {
+        List<String> names = List.of("a", "ab", "aba", "b_a", "ba", "a-b", "ä", "a a");
+        MentionMatcher matcher = new MentionMatcher(names);
+        String alphabet = "ab_- .ä";
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int j = random.nextInt(20); j > 0; j--) {
+                content.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertThat(matcher.count(content)).as(content.toString())
+                    .isEqualTo(regexCount(content.toString(), names));
+        }
+    }
+}
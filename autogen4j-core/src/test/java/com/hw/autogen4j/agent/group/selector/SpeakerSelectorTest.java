@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.agent.group.selector;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.AssistantAgent;
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.agent.group.GroupChat;
+import com.hw.autogen4j.agent.group.GroupChatManager;
+import com.hw.autogen4j.exception.Autogen4jException;
+import com.hw.autogen4j.stub.OpenAiStubServer;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.hw.autogen4j.stub.StubResponse.reply;
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author HamaWhite
+ */
+class SpeakerSelectorTest {
+
+    private final ConversableAgent planner = agent("planner");
+
+    private final ConversableAgent coder = agent("coder");
+
+    private final ConversableAgent critic = agent("critic");
+
+    private static ConversableAgent agent(String name) {
+        return AssistantAgent.builder().name(name).systemMessage(name).build();
+    }
+
+    private GroupChat groupChat(SpeakerSelector speakerSelector) {
+        return GroupChat.builder()
+                .agents(List.of(planner, coder, critic))
+                .speakerSelector(speakerSelector)
+                .build();
+    }
+
+    @Test
+    void testRoundRobin() {
+        GroupChat groupChat = groupChat(SpeakerSelector.roundRobin());
+
+        assertThat(groupChat.selectSpeaker(planner, null)).isSameAs(coder);
+        assertThat(groupChat.selectSpeaker(coder, null)).isSameAs(critic);
+        assertThat(groupChat.selectSpeaker(critic, null)).isSameAs(planner);
+    }
+
+    @Test
+    void testRandomNeverRepeatsWhenNotAllowed() {
+        GroupChat groupChat = GroupChat.builder()
+                .agents(List.of(planner, coder, critic))
+                .allowRepeatSpeaker(false)
+                .speakerSelector(SpeakerSelector.random(new Random(42)))
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(groupChat.selectSpeaker(coder, null)).isNotSameAs(coder);
+        }
+    }
+
+    @Test
+    void testTransitionGraph() {
+        SpeakerSelector selector = SpeakerSelector.transitions(Map.of(
+                "planner", List.of("coder"),
+                "coder", List.of("critic", "planner")));
+
+        GroupChat groupChat = groupChat(selector);
+        assertThat(groupChat.selectSpeaker(planner, null)).isSameAs(coder);
+        // two agents are allowed after the coder, so the graph cannot decide on its own.
+        assertThat(selector.select(groupChat, coder, groupChat.getAgents(), null)).isNull();
+
+        SpeakerSelector tieBroken = SpeakerSelector.transitions(
+                Map.of("coder", List.of("critic", "planner")), SpeakerSelector.roundRobin());
+        assertThat(groupChat(tieBroken).selectSpeaker(coder, null)).isSameAs(critic);
+    }
+
+    @Test
+    void testLlmOnlyBreaksTiesOfTheGraph() {
+        try (OpenAiStubServer server = OpenAiStubServer.builder()
+                .defaultResponder(request -> reply(request.lastContent().contains("[planner, critic]")
+                        ? "planner"
+                        : "critic"))
+                .start()) {
+            SpeakerSelector selector = SpeakerSelector.hybrid(SpeakerSelector.transitions(Map.of(
+                    "planner", List.of("planner"),
+                    "coder", List.of("critic", "planner"))));
+            GroupChat groupChat = groupChat(selector);
+            GroupChatManager manager = GroupChatManager.builder()
+                    .groupChat(groupChat)
+                    .client(server.client(10))
+                    .build();
+
+            // the llm picks between the two agents allowed after the coder.
+            assertThat(groupChat.selectSpeaker(coder, manager)).isSameAs(planner);
+            assertThat(server.requestCount()).isEqualTo(1);
+            assertThat(server.requests().get(0).lastContent()).contains("[planner, critic]");
+
+            // no other agent is allowed to speak after the planner, the llm picks among all the candidates.
+            assertThat(selector.select(groupChat, planner, List.of(coder, critic), manager)).isSameAs(critic);
+            assertThat(server.requestCount()).isEqualTo(2);
+            assertThat(server.requests().get(1).lastContent()).contains("[coder, critic]");
+        }
+    }
+
+    @Test
+    void testLlmCannotDecideWithoutCandidateName() {
+        try (OpenAiStubServer server = OpenAiStubServer.builder()
+                .defaultResponder(request -> reply("nobody"))
+                .start()) {
+            GroupChat groupChat = groupChat(SpeakerSelector.llm());
+            GroupChatManager manager = GroupChatManager.builder()
+                    .groupChat(groupChat)
+                    .client(server.client(10))
+                    .build();
+
+            assertThat(SpeakerSelector.llm().select(groupChat, coder, List.of(planner, critic), manager)).isNull();
+            // the group chat decides what to do when its selector cannot decide.
+            assertThatThrownBy(() -> groupChat.selectSpeaker(coder, manager))
+                    .isInstanceOf(Autogen4jException.class)
+                    .hasMessageContaining("could not decide after coder");
+        }
+    }
+
+    @Test
+    void testMentionFallsBack() {
+        SpeakerSelector fallback = (groupChat, lastSpeaker, candidates, manager) -> planner;
+        GroupChat groupChat = groupChat(SpeakerSelector.mention().orElse(fallback));
+
+        groupChat.append(new ChatMessage(ASSISTANT, "Done, @critic please review it."));
+        assertThat(groupChat.selectSpeaker(coder, null)).isSameAs(critic);
+
+        // the plain name is not an explicit mention.
+        groupChat.append(new ChatMessage(ASSISTANT, "The critic may review it."));
+        assertThat(groupChat.selectSpeaker(coder, null)).isSameAs(planner);
+
+        groupChat.append(new ChatMessage(ASSISTANT, "Either @critic or @planner."));
+        Agent speaker = groupChat.selectSpeaker(coder, null);
+        assertThat(speaker).isSameAs(planner);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.cache;
+
+import com.hw.openai.entity.chat.ChatChoice;
+import com.hw.openai.entity.chat.ChatCompletion;
+import com.hw.openai.entity.chat.ChatCompletionResp;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
+import static com.hw.openai.entity.chat.ChatMessageRole.SYSTEM;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class ResponseCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ChatCompletion request(String content) {
+        return ChatCompletion.builder()
+                .model("gpt-4")
+                .temperature(0)
+                .messages(List.of(new ChatMessage(SYSTEM, "You are a helpful AI Assistant."),
+                        new ChatMessage(USER, content)))
+                .build();
+    }
+
+    private static ChatCompletionResp response(String content) {
+        ChatChoice choice = new ChatChoice();
+        choice.setIndex(0);
+        choice.setMessage(new ChatMessage(ASSISTANT, content));
+
+        ChatCompletionResp response = new ChatCompletionResp();
+        response.setChoices(List.of(choice));
+        return response;
+    }
+
+    @Test
+    void testKeyIsStable() {
+        assertThat(ResponseCache.key(request("Hello"))).isEqualTo(ResponseCache.key(request("Hello")))
+                .hasSize(64)
+                .isNotEqualTo(ResponseCache.key(request("Hello!")));
+    }
+
+    @Test
+    void testInMemoryCacheEvictsBySize() {
+        InMemoryResponseCache cache = new InMemoryResponseCache(1_000);
+        for (int i = 0; i < 100; i++) {
+            cache.put(ResponseCache.key(request("Hello " + i)), response("Hi " + i));
+        }
+        assertThat(cache.size()).isPositive().isLessThan(100);
+
+        // the most recently used responses are kept
+        ChatCompletionResp cached = cache.get(ResponseCache.key(request("Hello 99")));
+        assertThat(cached.getChoices().get(0).getMessage().getContent()).isEqualTo("Hi 99");
+        assertThat(cache.get(ResponseCache.key(request("Hello 0")))).isNull();
+        assertThat(cache.stats()).isEqualTo(new CacheStats(1, 1));
+    }
+
+    @Test
+    void testTieredCacheSurvivesRestart() {
+        String key = ResponseCache.key(request("Hello"));
+        new TieredResponseCache(new InMemoryResponseCache(10_000), new DiskResponseCache(tempDir))
+                .put(key, response("Hi"));
+
+        var restarted = new TieredResponseCache(new InMemoryResponseCache(10_000), new DiskResponseCache(tempDir));
+        assertThat(restarted.get(key).getChoices().get(0).getMessage().getContent()).isEqualTo("Hi");
+        assertThat(restarted.get(ResponseCache.key(request("Bye")))).isNull();
+        assertThat(restarted.stats().hitRate()).isEqualTo(0.5);
+    }
+}
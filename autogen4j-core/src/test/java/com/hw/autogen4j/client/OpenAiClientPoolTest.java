@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.client;
+
+import com.hw.openai.OpenAiClient;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class OpenAiClientPoolTest {
+
+    @Test
+    void testSameSettingsShareClient() {
+        try (OpenAiClientPool pool = new OpenAiClientPool()) {
+            OpenAiClient first = pool.get(new ClientKey(null, "sk-test", null, 60));
+            OpenAiClient second = pool.get(new ClientKey(null, "sk-test", null, 60));
+            OpenAiClient other = pool.get(new ClientKey(null, "sk-test", null, 30));
+
+            assertThat(second).isSameAs(first);
+            assertThat(other).isNotSameAs(first);
+            assertThat(pool.size()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void testClientKeyHidesApiKey() {
+        assertThat(new ClientKey(null, "sk-secret", null, 60).toString()).doesNotContain("sk-secret");
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.context;
+
+import com.hw.autogen4j.session.CompactHistory;
+import com.hw.autogen4j.tokenizer.Encoding;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class ContextPolicyTest {
+
+    private final List<ChatMessage> history = new ArrayList<>();
+
+    private List<String> contents(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getContent).toList();
+    }
+
+    private void codeFixLoop(int turns) {
+        history.add(new ChatMessage(USER, "task"));
+        for (int i = 0; i < turns; i++) {
+            history.add(new ChatMessage(ASSISTANT, "code " + i));
+            history.add(new ChatMessage(USER, "exitcode: 1 (execution failed)\nCode output: error " + i));
+        }
+    }
+
+    @Test
+    void testLastMessages() {
+        codeFixLoop(3);
+        assertThat(contents(ContextPolicy.lastMessages(2).apply(history)))
+                .containsExactly("code 2", "exitcode: 1 (execution failed)\nCode output: error 2");
+        assertThat(ContextPolicy.lastMessages(100).apply(history)).isEqualTo(history);
+    }
+
+    @Test
+    void testTokenBudgetKeepsLatestMessages() {
+        codeFixLoop(10);
+        // the last message is always kept, even if it alone exceeds the budget
+        TokenCounter counter = TokenCounter.estimate();
+        List<ChatMessage> kept = ContextPolicy.tokenBudget(6, counter).apply(history);
+        assertThat(kept).hasSize(1).containsExactly(history.get(history.size() - 1));
+
+        int budget = history.subList(history.size() - 4, history.size()).stream().mapToInt(counter::count).sum();
+        assertThat(ContextPolicy.tokenBudget(budget, counter).apply(history)).hasSize(4);
+    }
+
+    @Test
+    void testBpeTokenCounter() {
+        TokenCounter counter = TokenCounter.forModel("gpt-4");
+        assertThat(counter).isSameAs(BpeTokenCounter.of(Encoding.CL100K_BASE));
+
+        // 3 tokens of message format, 1 for the role and 2 for the content.
+        ChatMessage message = new ChatMessage(USER, "hello world");
+        assertThat(counter.count(message)).isEqualTo(6);
+        assertThat(counter.count(new ChatMessage(USER, "hello world", "alice"))).isEqualTo(8);
+
+        // the cached count is not used once the message changed.
+        message.setContent("hello");
+        assertThat(counter.count(message)).isEqualTo(5);
+
+        codeFixLoop(50);
+        int total = history.stream().mapToInt(counter::count).sum();
+        assertThat(history.stream().mapToInt(counter::count).sum()).isEqualTo(total);
+        assertThat(ContextPolicy.tokenBudget(total, counter).apply(history)).isEqualTo(history);
+    }
+
+    @Test
+    void testPinFirstMessageAndLatestToolOutput() {
+        codeFixLoop(10);
+        history.add(new ChatMessage(ASSISTANT, "fixed"));
+
+        List<ChatMessage> kept = ContextPolicy.lastMessages(1)
+                .pinFirstMessage()
+                .pinLatestToolOutput()
+                .apply(history);
+        assertThat(contents(kept))
+                .containsExactly("task", "exitcode: 1 (execution failed)\nCode output: error 9", "fixed");
+    }
+
+    @Test
+    void testPinFirstMessageOnCompactHistory() {
+        codeFixLoop(10);
+        // the compact history materializes a new message on every read
+        List<ChatMessage> compact = new CompactHistory();
+        compact.addAll(history);
+
+        List<ChatMessage> kept = ContextPolicy.lastMessages(3)
+                .pinFirstMessage()
+                .pinLatestToolOutput()
+                .apply(compact);
+        assertThat(contents(kept)).containsExactly("task", "code 8",
+                "exitcode: 1 (execution failed)\nCode output: error 8",
+                "code 9", "exitcode: 1 (execution failed)\nCode output: error 9");
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.hw.autogen4j.entity.CodeBlock;
+import com.hw.autogen4j.entity.CodeExecutionResult;
+import com.hw.autogen4j.exception.Autogen4jException;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author HamaWhite
+ */
+class CodeBlockSchedulerTest {
+
+    @Test
+    void testDependencies() {
+        List<CodeBlock> codeBlocks = List.of(
+                new CodeBlock("sh", "pip install pandas"),
+                new CodeBlock("python", "# filename: fetch.py\nopen('prices.csv', 'w').write('1,2')"),
+                new CodeBlock("python", "print(open('weather.json').read())"),
+                new CodeBlock("python", "import pandas as pd\nprint(pd.read_csv(\"prices.csv\"))"),
+                new CodeBlock("python", "from fetch import *"),
+                new CodeBlock("python", "# depends: 3\nprint('done')"));
+
+        assertThat(CodeBlockScheduler.dependencies(codeBlocks)).containsExactly(
+                Set.of(),
+                Set.of(0),
+                Set.of(0),
+                Set.of(0, 1),
+                Set.of(0, 1),
+                Set.of(0, 2));
+    }
+
+    @Test
+    void testIdenticalBlocksRunOneAfterTheOther() {
+        List<CodeBlock> codeBlocks = List.of(
+                new CodeBlock("python", "print('hello')"),
+                new CodeBlock("python", "print('world')"),
+                new CodeBlock("python", "print('hello')"));
+
+        assertThat(CodeBlockScheduler.dependencies(codeBlocks)).containsExactly(Set.of(), Set.of(), Set.of(0));
+    }
+
+    @Test
+    void testExecutionErrorIsRethrown() {
+        List<CodeBlock> codeBlocks = List.of(
+                new CodeBlock("python", "print('hello')"),
+                new CodeBlock("python", "print('world')"));
+
+        assertThatThrownBy(() -> CodeBlockScheduler.execute(codeBlocks, (index, block) -> {
+            throw new Autogen4jException("Error executing code.");
+        })).isExactlyInstanceOf(Autogen4jException.class).hasMessage("Error executing code.");
+    }
+
+    @Test
+    void testIndependentBlocksRunConcurrently() {
+        List<CodeBlock> codeBlocks = List.of(
+                new CodeBlock("python", "fetch('a.json')"),
+                new CodeBlock("python", "fetch('b.json')"),
+                new CodeBlock("python", "fetch('c.json')"));
+
+        // each block waits for the two others, which only returns if the three of them run at the same time.
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        List<CodeExecutionResult> results = CodeBlockScheduler.execute(codeBlocks, (index, block) -> {
+            await(barrier);
+            return new CodeExecutionResult(0, "block " + index);
+        });
+
+        assertThat(results).extracting(CodeExecutionResult::logs).containsExactly("block 0", "block 1", "block 2");
+    }
+
+    @Test
+    void testBlocksAfterFailedDependencyAreSkipped() {
+        List<CodeBlock> codeBlocks = List.of(
+                new CodeBlock("python", "open('data.csv', 'w')\nraise Exception()"),
+                new CodeBlock("python", "open('data.csv')"),
+                new CodeBlock("python", "print('independent')"));
+
+        List<CodeExecutionResult> results = CodeBlockScheduler.execute(codeBlocks,
+                (index, block) -> new CodeExecutionResult(index == 0 ? 1 : 0, "block " + index));
+
+        assertThat(results.get(0).exitCode()).isEqualTo(1);
+        assertThat(results.get(1)).isNull();
+        assertThat(results.get(2).logs()).isEqualTo("block 2");
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Autogen4jException("Interrupted while waiting for the other blocks.", e);
+        } catch (BrokenBarrierException | TimeoutException e) {
+            throw new Autogen4jException("The blocks did not run concurrently.", e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.hw.autogen4j.entity.CodeExecutionConfig;
+import com.hw.autogen4j.entity.CodeExecutionResult;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static com.hw.autogen4j.util.CodeUtil.executeCode;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class ContainerPoolTest {
+
+    /**
+     * A fake docker binary, it runs the commands on the host and records the containers in its state directory.
+     */
+    private static final String FAKE_DOCKER = """
+            #!/bin/sh
+            state="$(dirname "$0")/state"
+            mkdir -p "$state"
+            command="$1"
+            shift
+            case "$command" in
+              run)
+                while [ $# -gt 0 ]; do
+                  case "$1" in
+                    -v) mount="${2%%:*}"; shift 2 ;;
+                    -w) shift 2 ;;
+                    -*) shift ;;
+                    *) break ;;
+                  esac
+                done
+                id="container-$$"
+                echo "$mount" > "$state/$id"
+                echo "$1" > "$state/$id.image"
+                echo "$id" ;;
+              exec)
+                id="$1"
+                shift
+                echo "$id" >> "$state/execs"
+                cd "$(cat "$state/$id")" && exec "$@" ;;
+              rm)
+                echo "$2" >> "$state/removed" ;;
+              ps)
+                cat "$state/ps" 2>/dev/null ;;
+            esac
+            """;
+
+    private CodeExecutionConfig config;
+
+    private Path state;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path bin = Files.createDirectories(tempDir.resolve("bin"));
+        Path docker = bin.resolve("docker");
+        Files.writeString(docker, FAKE_DOCKER);
+        docker.toFile().setExecutable(true);
+        state = bin.resolve("state");
+
+        config = CodeExecutionConfig.builder()
+                .workDir(tempDir.resolve("work").toString())
+                .docker("python:3-slim")
+                .dockerClient(new DockerCli(docker.toString()))
+                .containerPoolSize(1)
+                .containerMaxFailures(1)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ContainerPool.of(config).close();
+    }
+
+    private List<String> lines(String name) throws IOException {
+        Path path = state.resolve(name);
+        return Files.exists(path) ? Files.readAllLines(path) : List.of();
+    }
+
+    @Test
+    void testContainerIsReused() throws IOException {
+        CodeExecutionResult first = executeCode("python", "print('Hello, Docker!')", config);
+        CodeExecutionResult second = executeCode("sh", "echo 'Hello, Shell!'", config);
+
+        assertThat(first.exitCode()).isZero();
+        assertThat(first.logs()).isEqualTo("Hello, Docker!");
+        assertThat(first.image()).isEqualTo("python:3-slim");
+        assertThat(second.logs()).isEqualTo("Hello, Shell!");
+        List<String> execs = lines("execs");
+        assertThat(execs).hasSize(2);
+        assertThat(execs.get(1)).isEqualTo(execs.get(0));
+    }
+
+    @Test
+    void testConfigsShareThePoolOfAnImage() {
+        CodeExecutionConfig other = CodeExecutionConfig.builder()
+                .workDir(config.getWorkDir())
+                .docker(config.getDocker())
+                .dockerClient(new DockerCli(state.resolveSibling("docker").toString()))
+                .containerPoolSize(1)
+                .containerMaxFailures(1)
+                .build();
+        assertThat(ContainerPool.of(other)).isSameAs(ContainerPool.of(config));
+    }
+
+    @Test
+    void testContainerIsReplacedAfterFailures() throws IOException {
+        CodeExecutionResult failure = executeCode("python", "raise Exception('Test Exception')", config);
+        CodeExecutionResult after = executeCode("python", "print('ok')", config);
+
+        assertThat(failure.exitCode()).isNotZero();
+        assertThat(failure.logs()).contains("Test Exception");
+        assertThat(after.exitCode()).isZero();
+        List<String> execs = lines("execs");
+        assertThat(lines("removed")).containsExactly(execs.get(0));
+        assertThat(execs.get(1)).isNotEqualTo(execs.get(0));
+    }
+
+    @Test
+    void testHandleExecutionTimeout() throws IOException, InterruptedException {
+        config.setTimeout(1);
+        CodeExecutionResult result = executeCode("sh", "exec sleep 10", config);
+
+        assertThat(result.exitCode()).isNotZero();
+        assertThat(lines("removed")).hasSize(1);
+
+        // the broken container is replaced in the background, wait for it before the directory is deleted.
+        ContainerPool pool = ContainerPool.of(config);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pool.idleCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(pool.idleCount()).isOne();
+    }
+
+    @Test
+    void testOrphanContainersAreRemoved() throws IOException {
+        // only the containers of this host whose process is gone, or whose pid was reused, are orphans.
+        String host = InetAddress.getLocalHost().getHostName();
+        ProcessHandle current = ProcessHandle.current();
+        long started = current.info().startInstant().map(Instant::toEpochMilli).orElse(-1L);
+        Files.createDirectories(state);
+        Files.writeString(state.resolve("ps"), String.join(System.lineSeparator(),
+                "orphan jvm-1 %s/%d/1".formatted(host, Long.MAX_VALUE),
+                "reused jvm-2 %s/%d/1".formatted(host, current.pid()),
+                "alive jvm-3 %s/%d/%d".formatted(host, current.pid(), started),
+                "remote jvm-4 %s-other/%d/1".formatted(host, Long.MAX_VALUE),
+                "unknown jvm-5 %s/%d/-1".formatted(host, Long.MAX_VALUE), ""));
+        CodeExecutionResult result = executeCode("sh", "echo ok", config);
+
+        assertThat(result.exitCode()).isZero();
+        assertThat(lines("removed")).containsExactly("orphan", "reused");
+    }
+}
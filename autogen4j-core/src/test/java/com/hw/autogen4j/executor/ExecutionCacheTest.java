@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.hw.autogen4j.entity.CodeExecutionConfig;
+import com.hw.autogen4j.entity.CodeExecutionResult;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.hw.autogen4j.util.CodeUtil.executeCode;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class ExecutionCacheTest {
+
+    private static final String CODE = """
+            #!/bin/sh
+            echo $$
+            """;
+
+    private CodeExecutionConfig config;
+
+    private ExecutionCache executionCache;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        executionCache = new ExecutionCache(16);
+        config = CodeExecutionConfig.builder()
+                .workDir(tempDir.toString())
+                .executionCache(executionCache)
+                .build();
+    }
+
+    @Test
+    void testDeterministicCodeIsCached() {
+        CodeExecutionResult first = executeCode("sh", CODE, config, true);
+        CodeExecutionResult second = executeCode("sh", CODE, config, true);
+        // the pid of the shell differs for each run, so the same output means the code did not run again.
+        assertThat(second).isSameAs(first);
+        assertThat(executionCache.stats().hitCount()).isEqualTo(1);
+
+        CodeExecutionResult notDeterministic = executeCode("sh", CODE, config);
+        assertThat(notDeterministic.logs()).isNotEqualTo(first.logs());
+    }
+
+    @Test
+    void testWorkspaceChangeInvalidates() throws IOException {
+        CodeExecutionResult first = executeCode("sh", CODE, config, true);
+        Files.writeString(tempDir.resolve("data.csv"), "a,b\n1,2\n");
+
+        CodeExecutionResult second = executeCode("sh", CODE, config, true);
+        assertThat(second.logs()).isNotEqualTo(first.logs());
+        assertThat(executionCache.size()).isEqualTo(1);
+
+        // the changes of the directories created meanwhile are seen too.
+        Path nested = Files.createDirectories(tempDir.resolve("nested"));
+        Files.writeString(nested.resolve("data.csv"), "a,b\n");
+        CodeExecutionResult third = executeCode("sh", CODE, config, true);
+        assertThat(executeCode("sh", CODE, config, true)).isSameAs(third);
+
+        Files.writeString(nested.resolve("data.csv"), "a,b\n1,2\n");
+        assertThat(executeCode("sh", CODE, config, true).logs()).isNotEqualTo(third.logs());
+    }
+
+    @Test
+    void testCodeWritingFilesIsNotCached() {
+        String code = """
+                #!/bin/sh
+                echo $$ >> out.txt
+                """;
+
+        executeCode("sh", code, config, true);
+        executeCode("sh", code, config, true);
+        assertThat(executionCache.size()).isZero();
+        assertThat(executionCache.stats().hitCount()).isZero();
+    }
+}
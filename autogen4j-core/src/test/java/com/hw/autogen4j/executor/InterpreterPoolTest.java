@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.executor;
+
+import com.hw.autogen4j.entity.CodeExecutionConfig;
+import com.hw.autogen4j.entity.CodeExecutionResult;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.hw.autogen4j.util.CodeUtil.executeCode;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class InterpreterPoolTest {
+
+    private CodeExecutionConfig config;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        config = CodeExecutionConfig.builder()
+                .workDir(tempDir.toString())
+                .warmWorkers(true)
+                .workerPoolSize(1)
+                .preImports(List.of("json"))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        InterpreterPool.of(config).close();
+    }
+
+    @Test
+    void testWorkerIsReused() {
+        String code = """
+                import os
+                print(os.getpid())
+                """;
+
+        CodeExecutionResult first = executeCode("python", code, config);
+        CodeExecutionResult second = executeCode("python", code + "\n", config);
+        assertThat(first.exitCode()).isZero();
+        assertThat(second.logs()).isEqualTo(first.logs());
+    }
+
+    @Test
+    void testCodeSeesModulesAsOnDisk() {
+        String code = """
+                import os
+                with open('utils.py', 'w') as f:
+                    f.write('VALUE = %d')
+                import utils
+                print(os.getpid(), utils.VALUE, os.environ.get('LEFT_BEHIND'))
+                os.environ['LEFT_BEHIND'] = 'yes'
+                """;
+
+        // the module changes size, since python trusts its cached bytecode for a file of the same size and mtime.
+        CodeExecutionResult first = executeCode("python", code.formatted(1), config);
+        CodeExecutionResult second = executeCode("python", code.formatted(22), config);
+        String pid = first.logs().split(" ")[0];
+        // the same worker imports the rewritten module, and the environment is restored.
+        assertThat(first.logs()).isEqualTo(pid + " 1 None");
+        assertThat(second.logs()).isEqualTo(pid + " 22 None");
+    }
+
+    @Test
+    void testWorkerIsReplacedAfterFailure() {
+        String code = """
+                import os
+                print(os.getpid())
+                """;
+
+        CodeExecutionResult before = executeCode("python", code, config);
+        CodeExecutionResult failure = executeCode("python", "raise Exception('Test Exception')", config);
+        CodeExecutionResult after = executeCode("python", code, config);
+
+        assertThat(failure.exitCode()).isNotZero();
+        assertThat(failure.logs()).contains("Test Exception").doesNotContain("runpy", "python_worker");
+        assertThat(after.exitCode()).isZero();
+        assertThat(after.logs()).isNotEqualTo(before.logs());
+    }
+
+    @Test
+    void testHandleExecutionTimeout() {
+        config.setTimeout(1);
+        CodeExecutionResult result = executeCode("python", "import time\ntime.sleep(10)", config);
+        assertThat(result.exitCode()).isNotZero();
+
+        CodeExecutionResult next = executeCode("python", "print('still working')", config);
+        assertThat(next.logs()).isEqualTo("still working");
+    }
+
+    @Test
+    void testSystemExit() {
+        CodeExecutionResult result = executeCode("python", "import sys\nprint('bye')\nsys.exit(3)", config);
+        assertThat(result.exitCode()).isEqualTo(3);
+    }
+}
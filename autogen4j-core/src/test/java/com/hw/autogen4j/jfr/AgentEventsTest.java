@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.jfr;
+
+import com.hw.autogen4j.agent.AssistantAgent;
+import com.hw.autogen4j.agent.UserProxyAgent;
+import com.hw.autogen4j.agent.group.GroupChat;
+import com.hw.autogen4j.agent.group.GroupChatManager;
+import com.hw.autogen4j.agent.group.selector.SpeakerSelector;
+import com.hw.autogen4j.entity.CodeExecutionConfig;
+import com.hw.autogen4j.stub.OpenAiStubServer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.hw.autogen4j.entity.HumanInputMode.NEVER;
+import static com.hw.autogen4j.stub.StubResponse.reply;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class AgentEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testGroupChatEvents() throws IOException {
+        Path dump = tempDir.resolve("recording.jfr");
+        try (Recording recording = new Recording();
+                OpenAiStubServer server = OpenAiStubServer.builder()
+                        .script(reply("```python\nprint('hello')\n```"))
+                        .start()) {
+            recording.enable(LlmCallEvent.class);
+            recording.enable(CodeExecutionEvent.class);
+            recording.enable(SpeakerSelectionEvent.class);
+            recording.enable(BroadcastEvent.class);
+            recording.start();
+
+            var userProxy = UserProxyAgent.builder()
+                    .name("user_proxy")
+                    .humanInputMode(NEVER)
+                    .codeExecutionConfig(CodeExecutionConfig.builder().workDir(tempDir.toString()).build())
+                    .build();
+            var coder = AssistantAgent.builder()
+                    .name("coder")
+                    .client(server.client(10))
+                    .build();
+            GroupChat groupChat = GroupChat.builder()
+                    .agents(List.of(userProxy, coder))
+                    .maxRound(3)
+                    .speakerSelector(SpeakerSelector.roundRobin())
+                    .build();
+            GroupChatManager manager = GroupChatManager.builder()
+                    .groupChat(groupChat)
+                    .build();
+            userProxy.initiateChat(manager, "say hello", true, true);
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        List<RecordedEvent> llmCalls = ofType(events, "com.hw.autogen4j.LlmCall");
+        assertThat(llmCalls).hasSize(2);
+        assertThat(llmCalls).allMatch(event -> "coder".equals(event.getString("agent")));
+        assertThat(llmCalls).allMatch(event -> "success".equals(event.getString("outcome")));
+        // the system message and the task, then the code and its output too.
+        assertThat(llmCalls).extracting(event -> event.getInt("messageCount")).containsExactly(2, 4);
+        assertThat(llmCalls.get(0).getLong("promptSize")).isGreaterThan("say hello".length());
+
+        List<RecordedEvent> executions = ofType(events, "com.hw.autogen4j.CodeExecution");
+        assertThat(executions).hasSize(1);
+        assertThat(executions.get(0).getString("agent")).isEqualTo("user_proxy");
+        assertThat(executions.get(0).getInt("exitCode")).isZero();
+
+        List<RecordedEvent> selections = ofType(events, "com.hw.autogen4j.SpeakerSelection");
+        assertThat(selections).extracting(event -> event.getString("speaker")).containsExactly("coder", "user_proxy",
+                "coder");
+        assertThat(selections).allMatch(event -> "RoundRobinSelector".equals(event.getString("selector")));
+
+        List<RecordedEvent> broadcasts = ofType(events, "com.hw.autogen4j.Broadcast");
+        assertThat(broadcasts).extracting(event -> event.getString("speaker"))
+                .containsExactly("user_proxy", "coder", "user_proxy");
+        assertThat(broadcasts).allMatch(event -> event.getInt("recipientCount") == 1);
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+}
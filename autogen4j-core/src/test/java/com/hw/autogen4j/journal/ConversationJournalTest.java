@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.journal;
+
+import com.hw.autogen4j.agent.Agent;
+import com.hw.autogen4j.agent.ConversableAgent;
+import com.hw.autogen4j.agent.group.GroupChat;
+import com.hw.autogen4j.agent.group.GroupChatManager;
+import com.hw.autogen4j.agent.group.selector.SpeakerSelector;
+import com.hw.autogen4j.entity.ReplyResult;
+import com.hw.autogen4j.session.ChatSession;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.hw.autogen4j.entity.HumanInputMode.NEVER;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class ConversationJournalTest {
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * An agent that replies without calling the LLM.
+     */
+    private static class EchoAgent extends ConversableAgent {
+
+        private EchoAgent(Builder builder) {
+            super(builder);
+        }
+
+        @Override
+        public ReplyResult generateOaiReply(Agent sender, List<ChatMessage> messages) {
+            return new ReplyResult(true, new ChatMessage("echo " + messages.size()));
+        }
+
+        private static class Builder extends ConversableAgent.Builder<Builder> {
+
+            @Override
+            protected EchoAgent build() {
+                return new EchoAgent(this);
+            }
+        }
+    }
+
+    private static EchoAgent echoAgent(String name, int maxConsecutiveAutoReply, ConversationJournal journal) {
+        return new EchoAgent.Builder()
+                .name(name)
+                .humanInputMode(NEVER)
+                .maxConsecutiveAutoReply(maxConsecutiveAutoReply)
+                .journal(journal)
+                .build();
+    }
+
+    private static List<String> contents(List<ChatMessage> messages) {
+        return messages.stream().map(message -> message.getRole().getValue() + ": " + message.getContent()).toList();
+    }
+
+    @Test
+    void testRestoreAfterRestart() {
+        List<String> pingHistory;
+        List<String> pongHistory;
+        List<String> sessionHistory;
+        String sessionId;
+        try (ConversationJournal journal = ConversationJournal.open(directory)) {
+            EchoAgent ping = echoAgent("ping", 100, journal);
+            EchoAgent pong = echoAgent("pong", 3, journal);
+            ping.initiateChat(pong, "first chat", true, true);
+            // the history of the first chat is cleared by the second one.
+            ping.initiateChat(pong, "second chat", true, true);
+            pingHistory = contents(ping.chatMessages(pong));
+            pongHistory = contents(pong.chatMessages(ping));
+
+            ChatSession session = new ChatSession();
+            session.run(() -> ping.initiateChat(pong, "in a session", true, true));
+            sessionId = session.getId();
+            sessionHistory = session.call(() -> contents(pong.chatMessages(ping)));
+        }
+        assertThat(pingHistory).hasSize(9).startsWith("assistant: second chat");
+
+        try (ConversationJournal journal = ConversationJournal.open(directory)) {
+            EchoAgent ping = echoAgent("ping", 100, journal);
+            EchoAgent pong = echoAgent("pong", 3, journal);
+            journal.restore(List.of(ping, pong));
+            assertThat(contents(ping.chatMessages(pong))).isEqualTo(pingHistory);
+            assertThat(contents(pong.chatMessages(ping))).isEqualTo(pongHistory);
+
+            assertThat(journal.sessionIds()).containsExactly(sessionId);
+            ChatSession session = journal.restoreSession(sessionId, List.of(ping, pong));
+            assertThat(session.call(() -> contents(pong.chatMessages(ping)))).isEqualTo(sessionHistory);
+        }
+    }
+
+    @Test
+    void testRestoreGroupChat() {
+        try (ConversationJournal journal = ConversationJournal.open(directory)) {
+            GroupChat groupChat = GroupChat.builder().name("team").journal(journal).build();
+            groupChat.append(new ChatMessage(USER, "plan")).append(ChatMessage.ofAssistant("code"));
+            GroupChat.builder().name("other").journal(journal).build().append(new ChatMessage("unrelated"));
+            new ChatSession("session").run(() -> groupChat.append(new ChatMessage(USER, "in a session")));
+        }
+        try (ConversationJournal journal = ConversationJournal.open(directory)) {
+            GroupChat groupChat = GroupChat.builder().name("team").build();
+            journal.restore(groupChat);
+            assertThat(contents(groupChat.getMessages())).containsExactly("user: plan", "assistant: code");
+
+            assertThat(journal.sessionIds()).containsExactly("session");
+            ChatSession session = new ChatSession("session");
+            session.run(() -> journal.restore(groupChat));
+            assertThat(session.call(() -> contents(groupChat.getMessages()))).containsExactly("user: in a session");
+        }
+    }
+
+    @Test
+    void testRestoreGroupChatHistories() {
+        List<String> history;
+        try (ConversationJournal journal = ConversationJournal.open(directory)) {
+            EchoAgent planner = echoAgent("planner", 100, journal);
+            EchoAgent coder = echoAgent("coder", 100, journal);
+            GroupChatManager manager = groupChatManager(planner, coder, journal);
+            planner.initiateChat(manager, "start", true, true);
+            history = contents(coder.chatMessages(manager));
+        }
+        assertThat(history).hasSizeGreaterThan(2);
+
+        try (ConversationJournal journal = ConversationJournal.open(directory)) {
+            EchoAgent planner = echoAgent("planner", 100, journal);
+            EchoAgent coder = echoAgent("coder", 100, journal);
+            GroupChatManager manager = groupChatManager(planner, coder, journal);
+            journal.restore(List.of(planner, coder, manager));
+
+            assertThat(contents(coder.chatMessages(manager))).isEqualTo(history);
+            // the restored histories are views of the group log again, each message is stored once.
+            assertThat(contents(manager.getGroupChat().getLog().messages())).containsExactly(
+                    "user: start", "user: echo 1", "user: echo 2", "user: echo 3", "user: echo 4");
+        }
+    }
+
+    private static GroupChatManager groupChatManager(Agent planner, Agent coder, ConversationJournal journal) {
+        GroupChat groupChat = GroupChat.builder()
+                .name("team")
+                .agents(List.of(planner, coder))
+                .maxRound(4)
+                .speakerSelector(SpeakerSelector.roundRobin())
+                .journal(journal)
+                .build();
+        return GroupChatManager.builder().groupChat(groupChat).journal(journal).build();
+    }
+
+    @Test
+    void testRollSegmentsAndSkipTornRecord() throws IOException {
+        try (ConversationJournal journal =
+                ConversationJournal.builder().directory(directory).segmentSize(256).build()) {
+            GroupChat groupChat = GroupChat.builder().journal(journal).build();
+            for (int i = 0; i < 50; i++) {
+                groupChat.append(new ChatMessage("message " + i));
+            }
+            // a record larger than a segment gets a segment of its own.
+            groupChat.append(new ChatMessage("x".repeat(1000)));
+            groupChat.append(new ChatMessage("last"));
+            journal.flush();
+        }
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.sorted().toList();
+        }
+        assertThat(segments).hasSizeGreaterThan(5);
+
+        // a crash while writing the last record leaves it torn.
+        try (RandomAccessFile file = new RandomAccessFile(segments.get(segments.size() - 1).toFile(), "rw")) {
+            file.seek(Segment.ENTRY_HEADER + 1);
+            file.write(0xff);
+        }
+        try (ConversationJournal journal =
+                ConversationJournal.builder().directory(directory).segmentSize(256).build()) {
+            GroupChat groupChat = GroupChat.builder().journal(journal).build();
+            journal.restore(groupChat);
+            assertThat(groupChat.getMessages()).hasSize(51);
+            assertThat(groupChat.getMessages().get(50).getContent()).hasSize(1000);
+
+            // appending goes on where the torn record was.
+            groupChat.append(new ChatMessage("after restart"));
+            journal.flush();
+            GroupChat restored = GroupChat.builder().build();
+            journal.restore(restored);
+            assertThat(restored.getMessages()).hasSize(52);
+            assertThat(restored.getMessages().get(51).getContent()).isEqualTo("after restart");
+        }
+    }
+}
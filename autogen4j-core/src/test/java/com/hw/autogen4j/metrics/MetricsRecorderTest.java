@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.metrics;
+
+import com.hw.autogen4j.agent.AssistantAgent;
+import com.hw.autogen4j.agent.UserProxyAgent;
+import com.hw.autogen4j.entity.CodeExecutionConfig;
+import com.hw.autogen4j.stub.OpenAiStubServer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.hw.autogen4j.entity.HumanInputMode.NEVER;
+import static com.hw.autogen4j.metrics.AgentMetrics.*;
+import static com.hw.autogen4j.stub.StubResponse.reply;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class MetricsRecorderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testHistogramPercentiles() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        for (int i = 1; i <= 10_000; i++) {
+            registry.recordValue("values", Map.of(), i);
+        }
+        HistogramSnapshot histogram = registry.histogram("values", Map.of());
+        assertThat(histogram.count()).isEqualTo(10_000);
+        assertThat(histogram.max()).isEqualTo(10_000);
+        assertThat(histogram.mean()).isEqualTo(5000.5);
+        assertThat(histogram.percentile(0.5)).isBetween(5000L, 5625L);
+        assertThat(histogram.percentile(0.99)).isBetween(9900L, 10_000L);
+        assertThat(histogram.percentile(0)).isEqualTo(1);
+
+        assertThat(registry.histogram("missing", Map.of()).percentile(0.5)).isZero();
+    }
+
+    @Test
+    void testAgentMetrics() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        try (OpenAiStubServer server = OpenAiStubServer.builder()
+                .script(reply("```python\nprint('hello')\n```"))
+                .start()) {
+            var assistant = AssistantAgent.builder()
+                    .name("assistant")
+                    .client(server.client(10))
+                    .metricsRecorder(registry)
+                    .build();
+            var userProxy = UserProxyAgent.builder()
+                    .name("user_proxy")
+                    .humanInputMode(NEVER)
+                    .codeExecutionConfig(CodeExecutionConfig.builder().workDir(tempDir.toString()).build())
+                    .metricsRecorder(registry)
+                    .build();
+
+            userProxy.initiateChat(assistant, "say hello", true, true);
+        }
+
+        var llmCall = Map.of(TAG_AGENT, "assistant", TAG_MODEL, "gpt-4", TAG_OUTCOME, "success");
+        assertThat(registry.histogram(LLM_CALL, llmCall).count()).isEqualTo(2);
+        assertThat(registry.counter(LLM_TOKENS, Map.of(TAG_AGENT, "assistant", TAG_TYPE, "prompt"))).isPositive();
+        assertThat(registry.counter(LLM_TOKENS, Map.of(TAG_AGENT, "assistant", TAG_TYPE, "completion"))).isPositive();
+
+        var oaiReply = Map.of(TAG_AGENT, "assistant", TAG_FUNCTION, "generate_oai_reply");
+        assertThat(registry.histogram(REPLY_FUNCTION, oaiReply).count()).isEqualTo(2);
+        var terminationCheck = Map.of(TAG_AGENT, "user_proxy", TAG_FUNCTION, "check_termination_and_human_reply");
+        assertThat(registry.histogram(REPLY_FUNCTION, terminationCheck).count()).isEqualTo(2);
+
+        var codeExecution = Map.of(TAG_AGENT, "user_proxy", TAG_LANGUAGE, "python", TAG_EXIT_CODE, "0");
+        assertThat(registry.histogram(CODE_EXECUTION, codeExecution).count()).isEqualTo(1);
+        // the task, the code, the output of the code and TERMINATE.
+        var conversation = Map.of(TAG_AGENT, "user_proxy", TAG_RECIPIENT, "assistant");
+        assertThat(registry.histogram(CONVERSATION_MESSAGES, conversation).max()).isEqualTo(4);
+    }
+
+    @Test
+    void testMicrometerBinding() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MetricsRecorder recorder = new MicrometerMetricsRecorder(meterRegistry);
+        recorder.recordTime(LLM_CALL, Map.of(TAG_AGENT, "assistant"), 2_000_000);
+        recorder.recordTime(LLM_CALL, Map.of(TAG_AGENT, "assistant"), 4_000_000);
+        recorder.increment(LLM_TOKENS, Map.of(TAG_AGENT, "assistant", TAG_TYPE, "prompt"), 120);
+        recorder.recordValue(CONVERSATION_MESSAGES, Map.of(TAG_AGENT, "user_proxy"), 6);
+
+        assertThat(meterRegistry.get(LLM_CALL).tag(TAG_AGENT, "assistant").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(LLM_CALL).timer().mean(TimeUnit.MILLISECONDS))
+                .isEqualTo(3.0);
+        assertThat(meterRegistry.get(LLM_TOKENS).tag(TAG_TYPE, "prompt").counter().count()).isEqualTo(120);
+        assertThat(meterRegistry.get(CONVERSATION_MESSAGES).summary().totalAmount()).isEqualTo(6);
+    }
+}
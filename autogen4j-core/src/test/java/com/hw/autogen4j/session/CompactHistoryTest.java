@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.session;
+
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.chat.FunctionCall;
+import com.hw.openai.entity.chat.ToolCall;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.hw.openai.entity.chat.ChatMessageRole.ASSISTANT;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class CompactHistoryTest {
+
+    @Test
+    void testMessagesRoundTrip() {
+        ToolCall toolCall = new ToolCall();
+        FunctionCall function = new FunctionCall();
+        function.setName("search");
+        function.setArguments("{\"query\": \"autogen\"}");
+        toolCall.setFunction(function);
+
+        List<ChatMessage> messages = List.of(
+                new ChatMessage(USER, "plot a chart of NVDA", "user_proxy"),
+                new ChatMessage(ASSISTANT, "Here’s the plan 😀, then TERMINATE", "assistant"),
+                new ChatMessage(ASSISTANT, null, "assistant", List.of(toolCall)),
+                new ChatMessage(USER, ""),
+                new ChatMessage("no role"));
+        CompactHistory history = new CompactHistory();
+        history.addAll(messages);
+
+        assertThat(history).isEqualTo(messages);
+        // the names are interned and the messages materialized on each read.
+        assertThat(history.get(0).getName()).isSameAs(history.get(0).getName());
+        assertThat(history.get(1)).isNotSameAs(history.get(1));
+        history.get(0).setContent("changed");
+        assertThat(history.get(0).getContent()).isEqualTo("plot a chart of NVDA");
+
+        history.clear();
+        assertThat(history).isEmpty();
+    }
+
+    @Test
+    void testCompressLargeContent() {
+        String toolOutput = "exitcode: 0 (execution succeeded)\nCode output: ✓ step done\n".repeat(2_000);
+        CompactHistory history = new CompactHistory();
+        history.add(new ChatMessage(USER, toolOutput));
+        history.add(new ChatMessage(USER, "x".repeat(CompactHistory.DEFAULT_COMPRESSION_THRESHOLD)));
+
+        assertThat(history.get(0).getContent()).isEqualTo(toolOutput);
+        assertThat(history.contentBytes()).isLessThan(toolOutput.length() / 10);
+
+        CompactHistory uncompressed = new CompactHistory(Integer.MAX_VALUE);
+        uncompressed.add(new ChatMessage(USER, toolOutput));
+        assertThat(uncompressed.get(0).getContent()).isEqualTo(toolOutput);
+        assertThat(uncompressed.contentBytes()).isGreaterThan(toolOutput.length());
+    }
+}
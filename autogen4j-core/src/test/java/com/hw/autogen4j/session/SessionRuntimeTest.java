@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.session;
+
+import com.hw.autogen4j.agent.AssistantAgent;
+import com.hw.autogen4j.agent.UserProxyAgent;
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import org.junit.jupiter.api.Test;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.hw.autogen4j.entity.HumanInputMode.NEVER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author HamaWhite
+ */
+class SessionRuntimeTest {
+
+    private static final Pattern TASK_PATTERN = Pattern.compile("task-\\d+");
+
+    /**
+     * A client whose requests never leave the JVM, it answers every chat completion with the task of the conversation.
+     */
+    private static OpenAiClient fakeClient() {
+        return OpenAiClient.builder()
+                .openaiApiKey("sk-test")
+                .interceptorList(List.of(chain -> {
+                    Buffer buffer = new Buffer();
+                    chain.request().body().writeTo(buffer);
+                    Matcher matcher = TASK_PATTERN.matcher(buffer.readUtf8());
+                    String task = matcher.find() ? matcher.group() : "unknown";
+                    return new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(MediaType.get("application/json"), """
+                                    {"choices":[{"index":0,"message":{"role":"assistant","content":"working on %s"}}]}
+                                    """.formatted(task)))
+                            .build();
+                }))
+                .build()
+                .init();
+    }
+
+    @Test
+    void testConcurrentSessionsShareAgents() throws IOException {
+        OpenAiClient client = fakeClient();
+        var assistant = AssistantAgent.builder()
+                .name("assistant")
+                .client(client)
+                .build();
+        var userProxy = UserProxyAgent.builder()
+                .name("user_proxy")
+                .humanInputMode(NEVER)
+                .maxConsecutiveAutoReply(2)
+                .client(client)
+                .build();
+
+        List<CompletableFuture<ChatSession>> futures = new ArrayList<>();
+        try (SessionRuntime runtime = new SessionRuntime()) {
+            for (int i = 0; i < 100; i++) {
+                futures.add(runtime.initiateChat(userProxy, assistant, "task-" + i));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+        client.close();
+
+        for (int i = 0; i < futures.size(); i++) {
+            String task = "task-" + i;
+            List<ChatMessage> history = futures.get(i).join().chatMessages(assistant, userProxy);
+            assertThat(history).hasSize(8);
+            assertThat(history.get(0).getContent()).isEqualTo(task);
+            assertThat(history).allMatch(message -> message.getContent().endsWith(task));
+        }
+        // the agents' own state is untouched by the sessions
+        assertThat(userProxy.chatMessages(assistant)).isEmpty();
+    }
+}
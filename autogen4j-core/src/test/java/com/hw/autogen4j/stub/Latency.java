@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.stub;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * The distribution of the time the {@link OpenAiStubServer} takes to answer a request.
+ *
+ * @author HamaWhite
+ */
+@FunctionalInterface
+public interface Latency {
+
+    /**
+     * Draw the latency of the next response.
+     *
+     * @param random the random source of the server, seeded so that runs can be repeated.
+     * @return the time to wait before answering.
+     */
+    Duration next(Random random);
+
+    static Latency none() {
+        return random -> Duration.ZERO;
+    }
+
+    static Latency fixed(Duration latency) {
+        return random -> latency;
+    }
+
+    /**
+     * A latency uniformly distributed between the bounds.
+     */
+    static Latency uniform(Duration min, Duration max) {
+        long range = max.toMillis() - min.toMillis();
+        return random -> min.plusMillis(range <= 0 ? 0 : random.nextLong(range + 1));
+    }
+
+    /**
+     * A log-normal latency, the usual shape of llm response times: most requests are close to the median, with a long
+     * tail of slow ones.
+     *
+     * @param median the median latency.
+     * @param sigma  the standard deviation of the logarithm, 0.5 gives a p99 about three times the median.
+     */
+    static Latency logNormal(Duration median, double sigma) {
+        return random -> Duration.ofMillis(Math.round(median.toMillis() * Math.exp(sigma * random.nextGaussian())));
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.stub;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hw.autogen4j.util.ThreadUtil;
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.chat.ChatCompletion;
+import com.hw.openai.entity.chat.ChatMessage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An OpenAI compatible server on the loopback interface, it implements the chat completions endpoint so that agents
+ * can chat without a network or an api key.
+ * <p>
+ * Each request is answered by the first of:
+ * <ol>
+ * <li>a fault, injected at random with the configured rate,</li>
+ * <li>the next scripted response, in the order they were added,</li>
+ * <li>the first rule whose predicate matches the request,</li>
+ * <li>the default responder.</li>
+ * </ol>
+ * The answer is delayed by a latency drawn from the configured distribution. Streaming requests are answered with
+ * server-sent events, one per word of the reply.
+ *
+ * @author HamaWhite
+ */
+public class OpenAiStubServer implements AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = OpenAiClient.defaultObjectMapper();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final Queue<StubResponse> script;
+
+    private final List<Rule> rules;
+
+    private final Function<StubRequest, StubResponse> defaultResponder;
+
+    private final Latency latency;
+
+    private final double faultRate;
+
+    private final StubResponse fault;
+
+    private final Random random;
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    private final List<StubRequest> requests = Collections.synchronizedList(new ArrayList<>());
+
+    private OpenAiStubServer(Builder builder) throws IOException {
+        this.script = new ConcurrentLinkedQueue<>(builder.script);
+        this.rules = List.copyOf(builder.rules);
+        this.defaultResponder = builder.defaultResponder;
+        this.latency = builder.latency;
+        this.faultRate = builder.faultRate;
+        this.fault = builder.fault;
+        this.random = new Random(builder.seed);
+
+        this.executor = ThreadUtil.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/v1/chat/completions", this::handle);
+        this.server.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The base url to pass as {@code openaiApiBase} to the client or the agents.
+     *
+     * @return the base url of the OpenAI API served by this server.
+     */
+    public String baseUrl() {
+        return "http://%s:%d/v1/".formatted(server.getAddress().getHostString(), server.getAddress().getPort());
+    }
+
+    /**
+     * Create a client pointed at this server.
+     *
+     * @param requestTimeout the timeout of a request in seconds.
+     * @return a new client.
+     */
+    public OpenAiClient client(long requestTimeout) {
+        return OpenAiClient.builder()
+                .openaiApiBase(baseUrl())
+                .openaiApiKey("sk-stub")
+                .requestTimeout(requestTimeout)
+                .build()
+                .init();
+    }
+
+    public int requestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * The requests received so far, in the order they were received.
+     *
+     * @return a copy of the received requests.
+     */
+    public List<StubRequest> requests() {
+        synchronized (requests) {
+            return List.copyOf(requests);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "application/json", error("invalid_request_error", "Only POST is supported."));
+                return;
+            }
+            ChatCompletion completion = readCompletion(exchange);
+            StubRequest request = new StubRequest(requestCount.getAndIncrement(), completion);
+            requests.add(request);
+
+            StubResponse response = respond(request);
+            sleep(nextLatency());
+            if (response instanceof StubResponse.Reply reply) {
+                sendReply(exchange, completion, reply.content());
+            } else if (response instanceof StubResponse.Error e) {
+                if (e.retryAfter() != null) {
+                    exchange.getResponseHeaders().add("Retry-After", String.valueOf(e.retryAfter().toSeconds()));
+                }
+                send(exchange, e.status(), "application/json", error(e.type(), e.message()));
+            } else if (response instanceof StubResponse.Malformed malformed) {
+                send(exchange, 200, "application/json", malformed.body());
+            } else {
+                // hold the exchange until the client gives up or the server is closed.
+                sleep(Duration.ofMinutes(10));
+            }
+        }
+    }
+
+    /**
+     * Read the request, the ChatCompletion entity can only be built, not deserialized, so the fields the stub needs
+     * are copied from the JSON tree.
+     */
+    private static ChatCompletion readCompletion(HttpExchange exchange) throws IOException {
+        JsonNode node = OBJECT_MAPPER.readTree(exchange.getRequestBody());
+        List<ChatMessage> messages = OBJECT_MAPPER.convertValue(node.path("messages"), new TypeReference<>() {
+        });
+        return ChatCompletion.builder()
+                .model(node.path("model").asText())
+                .messages(messages)
+                .stream(node.path("stream").asBoolean())
+                .build();
+    }
+
+    private StubResponse respond(StubRequest request) {
+        if (faultRate > 0 && nextDouble() < faultRate) {
+            return fault;
+        }
+        StubResponse scripted = script.poll();
+        if (scripted != null) {
+            return scripted;
+        }
+        return rules.stream()
+                .filter(rule -> rule.predicate().test(request))
+                .findFirst()
+                .map(rule -> rule.responder().apply(request))
+                .orElseGet(() -> defaultResponder.apply(request));
+    }
+
+    private void sendReply(HttpExchange exchange, ChatCompletion completion, String content) throws IOException {
+        if (!completion.isStream()) {
+            Map<String, Object> body = Map.of(
+                    "id", "chatcmpl-stub",
+                    "object", "chat.completion",
+                    "model", completion.getModel(),
+                    "choices", List.of(Map.of(
+                            "index", 0,
+                            "message", Map.of("role", "assistant", "content", content),
+                            "finish_reason", "stop")),
+                    "usage", usage(completion, content));
+            send(exchange, 200, "application/json", OBJECT_MAPPER.writeValueAsString(body));
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream output = exchange.getResponseBody();
+        for (String delta : content.split("(?<=\\s)")) {
+            Map<String, Object> chunk = Map.of(
+                    "id", "chatcmpl-stub",
+                    "object", "chat.completion.chunk",
+                    "model", completion.getModel(),
+                    "choices", List.of(Map.of("index", 0, "delta", Map.of("content", delta))));
+            output.write(
+                    ("data: " + OBJECT_MAPPER.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        }
+        output.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A rough token usage, about four characters per token, so that token accounting can be tested.
+     */
+    private static Map<String, Integer> usage(ChatCompletion completion, String content) {
+        int promptChars = completion.getMessages().stream()
+                .map(ChatMessage::getContent)
+                .mapToInt(text -> text == null ? 0 : text.length())
+                .sum();
+        int promptTokens = (promptChars + 3) / 4;
+        int completionTokens = (content.length() + 3) / 4;
+        return Map.of("prompt_tokens", promptTokens,
+                "completion_tokens", completionTokens,
+                "total_tokens", promptTokens + completionTokens);
+    }
+
+    private static String error(String type, String message) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(Map.of("error", Map.of("type", type, "message", message)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private Duration nextLatency() {
+        synchronized (random) {
+            return latency.next(random);
+        }
+    }
+
+    private double nextDouble() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero() || duration.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        // interrupts the exchanges that are still waiting.
+        executor.shutdownNow();
+    }
+
+    private record Rule(Predicate<StubRequest> predicate, Function<StubRequest, StubResponse> responder) {
+    }
+
+    public static class Builder {
+
+        private final List<StubResponse> script = new ArrayList<>();
+
+        private final List<Rule> rules = new ArrayList<>();
+
+        private Function<StubRequest, StubResponse> defaultResponder = request -> StubResponse.reply("TERMINATE");
+
+        private Latency latency = Latency.none();
+
+        private double faultRate;
+
+        private StubResponse fault = StubResponse.serverError();
+
+        private long seed = 42;
+
+        private Builder() {
+        }
+
+        /**
+         * Answer the next requests with the responses, in order, before any rule applies.
+         */
+        public Builder script(StubResponse... responses) {
+            this.script.addAll(List.of(responses));
+            return this;
+        }
+
+        /**
+         * Answer the requests matching the predicate with the responder, rules are checked in the order they were
+         * added.
+         */
+        public Builder rule(Predicate<StubRequest> predicate, Function<StubRequest, StubResponse> responder) {
+            this.rules.add(new Rule(predicate, responder));
+            return this;
+        }
+
+        /**
+         * Answer the requests that neither the script nor a rule answers, replying TERMINATE by default.
+         */
+        public Builder defaultResponder(Function<StubRequest, StubResponse> defaultResponder) {
+            this.defaultResponder = defaultResponder;
+            return this;
+        }
+
+        public Builder latency(Latency latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Answer a random share of the requests with the fault instead, for example a 429.
+         *
+         * @param faultRate the probability between 0 and 1 that a request fails.
+         * @param fault     the response of a failed request.
+         */
+        public Builder fault(double faultRate, StubResponse fault) {
+            this.faultRate = faultRate;
+            this.fault = fault;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Build the server and start listening on a free port of the loopback interface.
+         *
+         * @return the started server.
+         */
+        public OpenAiStubServer start() {
+            try {
+                return new OpenAiStubServer(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.stub;
+
+import com.hw.autogen4j.agent.AssistantAgent;
+import com.hw.autogen4j.agent.UserProxyAgent;
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.exception.OpenAiException;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hw.autogen4j.entity.HumanInputMode.NEVER;
+import static com.hw.autogen4j.stub.StubResponse.malformed;
+import static com.hw.autogen4j.stub.StubResponse.rateLimited;
+import static com.hw.autogen4j.stub.StubResponse.reply;
+import static com.hw.autogen4j.stub.StubResponse.timeout;
+import static com.hw.openai.entity.chat.ChatMessageRole.USER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author HamaWhite
+ */
+class OpenAiStubServerTest {
+
+    private static List<ChatMessage> ask(String content) {
+        return List.of(new ChatMessage(USER, content));
+    }
+
+    @Test
+    void testScriptedConversation() {
+        try (OpenAiStubServer server = OpenAiStubServer.builder()
+                .script(reply("Let me think."), reply("The answer is 42."))
+                .rule(request -> request.lastContent().contains("weather"), request -> reply("It is sunny."))
+                .start()) {
+            var assistant = AssistantAgent.builder()
+                    .name("assistant")
+                    .openaiApiBase(server.baseUrl())
+                    .openaiApiKey("sk-stub")
+                    .build();
+            var userProxy = UserProxyAgent.builder()
+                    .name("user_proxy")
+                    .humanInputMode(NEVER)
+                    .maxConsecutiveAutoReply(5)
+                    .openaiApiBase(server.baseUrl())
+                    .openaiApiKey("sk-stub")
+                    .build();
+
+            userProxy.initiateChat(assistant, "What is the answer?", true, true);
+            List<String> contents = userProxy.chatMessages(assistant).stream().map(ChatMessage::getContent).toList();
+            // the script answers first, then the default responder terminates the conversation.
+            assertThat(contents).containsExactly("What is the answer?", "Let me think.", "The answer is 42.",
+                    "TERMINATE");
+            assertThat(server.requestCount()).isEqualTo(3);
+            assertThat(server.requests().get(0).lastContent()).isEqualTo("What is the answer?");
+
+            ChatMessage weather = assistant.generateOaiReply(userProxy, ask("How is the weather?")).reply();
+            assertThat(weather.getContent()).isEqualTo("It is sunny.");
+        }
+    }
+
+    @Test
+    void testFaults() {
+        try (OpenAiStubServer server = OpenAiStubServer.builder()
+                .script(rateLimited(Duration.ofSeconds(3)), malformed("{\"choices\": [{"), timeout(), reply("ok"))
+                .start()) {
+            var assistant = AssistantAgent.builder()
+                    .name("assistant")
+                    .client(server.client(1))
+                    .build();
+
+            assertThatThrownBy(() -> assistant.generateOaiReply(assistant, ask("first")))
+                    .isInstanceOfSatisfying(OpenAiException.class, e -> assertThat(e.statusCode).isEqualTo(429));
+            assertThatThrownBy(() -> assistant.generateOaiReply(assistant, ask("second")));
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> assistant.generateOaiReply(assistant, ask("third")));
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isBetween(Duration.ofMillis(900),
+                    Duration.ofSeconds(5));
+
+            assertThat(assistant.generateOaiReply(assistant, ask("fourth")).reply().getContent()).isEqualTo("ok");
+        }
+    }
+
+    @Test
+    void testLatencyAndFaultRate() {
+        try (OpenAiStubServer server = OpenAiStubServer.builder()
+                .latency(Latency.uniform(Duration.ofMillis(20), Duration.ofMillis(40)))
+                .fault(0.3, rateLimited(null))
+                .start()) {
+            OpenAiClient client = server.client(10);
+            var assistant = AssistantAgent.builder()
+                    .name("assistant")
+                    .client(client)
+                    .build();
+
+            int failures = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < 40; i++) {
+                try {
+                    assistant.generateOaiReply(assistant, ask("request " + i));
+                } catch (OpenAiException e) {
+                    failures++;
+                }
+            }
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThan(Duration.ofMillis(40 * 20));
+            assertThat(failures).isBetween(4, 24);
+            client.close();
+        }
+    }
+
+    @Test
+    void testStreaming() {
+        try (OpenAiStubServer server = OpenAiStubServer.builder()
+                .script(reply("Streaming works fine. TERMINATE"))
+                .start()) {
+            List<String> deltas = new ArrayList<>();
+            var assistant = AssistantAgent.builder()
+                    .name("assistant")
+                    .client(server.client(10))
+                    .streamListener(deltas::add)
+                    .build();
+
+            ChatMessage message = assistant.generateOaiReply(assistant, ask("stream")).reply();
+            assertThat(deltas).containsExactly("Streaming ", "works ", "fine. ", "TERMINATE");
+            assertThat(message.getContent()).isEqualTo("Streaming works fine. TERMINATE");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.stub;
+
+import com.hw.openai.entity.chat.ChatCompletion;
+import com.hw.openai.entity.chat.ChatMessage;
+
+import java.util.List;
+
+/**
+ * A chat completion request received by the {@link OpenAiStubServer}.
+ *
+ * @param index      the index of the request since the server started, starting from 0.
+ * @param completion the parsed request.
+ *
+ * @author HamaWhite
+ */
+public record StubRequest(int index, ChatCompletion completion) {
+
+    /**
+     * The content of the last message of the request, usually the message the reply is for.
+     *
+     * @return the content of the last message, or an empty string if there is none.
+     */
+    public String lastContent() {
+        List<ChatMessage> messages = completion.getMessages();
+        if (messages == null || messages.isEmpty() || messages.get(messages.size() - 1).getContent() == null) {
+            return "";
+        }
+        return messages.get(messages.size() - 1).getContent();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.stub;
+
+import java.time.Duration;
+
+/**
+ * The answer of the {@link OpenAiStubServer} to a chat completion request.
+ *
+ * @author HamaWhite
+ */
+public sealed
+interface StubResponse {
+
+    /**
+     * A successful chat completion with the content as the reply of the assistant.
+     *
+     * @param content the content of the reply.
+     */
+    record Reply(String content) implements StubResponse {
+    }
+
+    /**
+     * An error in the format of the OpenAI API.
+     *
+     * @param status     the http status code.
+     * @param type       the type of the error, for example {@code rate_limit_exceeded}.
+     * @param message    the message of the error.
+     * @param retryAfter the value of the Retry-After header, or null for none.
+     */
+    record Error(int status, String type, String message, Duration retryAfter) implements StubResponse {
+    }
+
+    /**
+     * A request that is never answered, the client gives up when its request timeout expires.
+     */
+    record Timeout() implements StubResponse {
+    }
+
+    /**
+     * A successful response whose body is not a valid chat completion.
+     *
+     * @param body the raw body of the response.
+     */
+    record Malformed(String body) implements StubResponse {
+    }
+
+    static StubResponse reply(String content) {
+        return new Reply(content);
+    }
+
+    static StubResponse rateLimited(Duration retryAfter) {
+        return new Error(429, "rate_limit_exceeded", "Rate limit reached, please try again later.", retryAfter);
+    }
+
+    static StubResponse serverError() {
+        return new Error(500, "server_error", "The server had an error while processing your request.", null);
+    }
+
+    static StubResponse timeout() {
+        return new Timeout();
+    }
+
+    static StubResponse malformed(String body) {
+        return new Malformed(body);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.autogen4j.tokenizer;
+
+import org.junit.jupiter.api.Test;
+
+import static com.hw.autogen4j.tokenizer.Encoding.CL100K_BASE;
+import static com.hw.autogen4j.tokenizer.Encoding.O200K_BASE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The expected tokens are the ones jtokkit 1.1.0, a Java port of tiktoken, returns for the same text.
+ *
+ * @author HamaWhite
+ */
+class BpeTokenizerTest {
+
+    private static final String TEXT = """
+            Héllo wörld, 你好世界 😀! I'M sure HE'S right: 1234567 + 89 = 1234656
+            ```python
+            print('hello')\t\t
+            ```
+
+              trailing   \
+            """;
+
+    /**
+     * the tokens of the text in cl100k_base and o200k_base, as returned by jtokkit 1.1.0.
+     */
+    private static final int[] CL100K_TEXT = {
+            39, 19010, 385, 289, 9603, 509, 11, 220, 57668, 53901, 3574, 244, 98220, 91416, 0, 358, 28703, 2771, 11947,
+            13575, 1314, 25, 220, 4513, 10961, 22, 489, 220, 4578, 284, 220, 4513, 19988, 21, 198, 74694, 12958, 198,
+            1374, 493, 15339, 873, 2451, 14196, 19884, 220, 28848, 262};
+
+    private static final int[] O200K_TEXT = {
+            39, 377, 72807, 286, 2877, 582, 11, 220, 177519, 28428, 88038, 0, 3413, 44, 3239, 18638, 31233, 1849, 25,
+            220, 7633, 19354, 22, 659, 220, 7479, 314, 220, 7633, 36575, 21, 198, 168394, 29010, 198, 1598, 706, 24912,
+            1542, 4209, 26178, 38193, 220, 57985, 271};
+
+    @Test
+    void testEncodeCl100k() {
+        BpeTokenizer tokenizer = BpeTokenizer.of(CL100K_BASE);
+        assertThat(tokenizer.encode("hello world")).containsExactly(15339, 1917);
+        assertThat(tokenizer.encode("<|endoftext|>")).containsExactly(27, 91, 8862, 728, 428, 91, 29);
+        assertThat(tokenizer.encode(TEXT)).containsExactly(CL100K_TEXT);
+    }
+
+    @Test
+    void testEncodeO200k() {
+        BpeTokenizer tokenizer = BpeTokenizer.of(O200K_BASE);
+        assertThat(tokenizer.encode("hello world")).containsExactly(24912, 2375);
+        assertThat(tokenizer.encode(TEXT)).containsExactly(O200K_TEXT);
+    }
+
+    @Test
+    void testRoundTrip() {
+        for (Encoding encoding : Encoding.values()) {
+            BpeTokenizer tokenizer = BpeTokenizer.of(encoding);
+            int[] tokens = tokenizer.encode(TEXT);
+            assertThat(tokenizer.decode(tokens)).isEqualTo(TEXT);
+            assertThat(tokenizer.countTokens(TEXT)).isEqualTo(tokens.length);
+        }
+        assertThat(BpeTokenizer.of(CL100K_BASE).encode("")).isEmpty();
+        assertThat(BpeTokenizer.of(CL100K_BASE).countTokens(null)).isZero();
+    }
+
+    @Test
+    void testEncodingForModel() {
+        assertThat(Encoding.forModel("gpt-4")).isEqualTo(CL100K_BASE);
+        assertThat(Encoding.forModel("gpt-3.5-turbo-16k")).isEqualTo(CL100K_BASE);
+        assertThat(Encoding.forModel("gpt-4o-mini")).isEqualTo(O200K_BASE);
+        assertThat(Encoding.forModel("o1-preview")).isEqualTo(O200K_BASE);
+        assertThat(Encoding.forModel(null)).isEqualTo(CL100K_BASE);
+        assertThat(BpeTokenizer.forModel("gpt-4")).isSameAs(BpeTokenizer.of(CL100K_BASE));
+    }
+}
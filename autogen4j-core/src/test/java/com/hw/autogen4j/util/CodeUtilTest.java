@@ -18,6 +18,7 @@
 
 package com.hw.autogen4j.util;
 
+import com.hw.autogen4j.entity.CodeBlock;
 import com.hw.autogen4j.entity.CodeExecutionConfig;
 import com.hw.autogen4j.entity.CodeExecutionResult;
 
@@ -25,10 +26,22 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static com.hw.autogen4j.util.CodeUtil.executeCode;
+import static com.hw.autogen4j.util.CodeUtil.extractCode;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 /**
  * @author HamaWhite
@@ -103,4 +116,119 @@ class CodeUtilTest {
         CodeExecutionResult result = executeCode("shell", code, config);
         assertThat(result.exitCode()).isNotZero();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testTruncateLargeOutput() throws IOException {
+        String code = """
+                print('a' * 1000 + 'b' * 1000000 + 'c' * 1000)
+                """;
+
+        config.setMaxOutputBytes(4096);
+        CodeExecutionResult result = executeCode("python", code, config);
+        assertThat(result.exitCode()).isZero();
+        assertThat(result.truncated()).isTrue();
+        assertThat(result.outputBytes()).isEqualTo(1002001);
+        assertThat(result.logs()).startsWith("a".repeat(1000)).endsWith("c".repeat(1000)).hasSizeLessThan(4200);
+    }
+
+    @Test
+    void testBoundedOutputKeepsWholeCharacters() {
+        // the head ends and the tail starts in the middle of a 3-byte character.
+        BoundedOutputStream output = new BoundedOutputStream(16);
+        byte[] bytes = "abc你好世界cd你好世界f".getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            output.write(b);
+        }
+        output.write(bytes, 0, bytes.length);
+
+        assertThat(output.isTruncated()).isTrue();
+        assertThat(output.byteCount()).isEqualTo(60);
+        assertThat(output.toString(StandardCharsets.UTF_8))
+                .isEqualTo("abc你%n... (47 bytes truncated) ...%n世界f".formatted());
+
+        assertThatThrownBy(() -> new BoundedOutputStream(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testExtractCode() {
+        String text = """
+                Run the following code:
+                ```python
+                print('Hello')
+                ```
+                and then:
+                ``` sh \r
+                echo 'World'
+                  ```
+                """;
+
+        assertThat(extractCode(text)).containsExactly(
+                new CodeBlock("python", "print('Hello')"),
+                new CodeBlock("sh", "echo 'World'"));
+        assertThat(extractCode("```\nno language\n```")).containsExactly(new CodeBlock(null, "no language"));
+        assertThat(extractCode("Use `pip install numpy` first.\n```python\nimport numpy\n```", true))
+                .containsExactly(new CodeBlock("", "pip install numpy"), new CodeBlock("python", "import numpy"));
+        assertThat(extractCode(new StringReader(text), false)).isEqualTo(extractCode(text));
+    }
+
+    /**
+     * The regex based extraction that the scanner replaces.
+     */
+    private static List<CodeBlock> regexExtractCode(String text, boolean detectSingleLineCode) {
+        String codeBlockPattern = "```[ \\t]*(\\w+)?[ \\t]*\\r?\\n(.*?)\\r?\\n[ \\t]*```";
+        List<CodeBlock> extracted = new ArrayList<>();
+        if (!detectSingleLineCode) {
+            Matcher matcher = Pattern.compile(codeBlockPattern, Pattern.DOTALL).matcher(text);
+            while (matcher.find()) {
+                extracted.add(new CodeBlock(matcher.group(1), matcher.group(2)));
+            }
+            return extracted;
+        }
+        Matcher matcher = Pattern.compile(codeBlockPattern + "|`([^`]+)`").matcher(text);
+        while (matcher.find()) {
+            if (matcher.group(2) != null) {
+                String language = matcher.group(1) == null ? "" : matcher.group(1).strip();
+                extracted.add(new CodeBlock(language, matcher.group(2).strip()));
+            } else if (matcher.group(3) != null) {
+                extracted.add(new CodeBlock("", matcher.group(3).strip()));
+            }
+        }
+        return extracted;
+    }
+
+    @Test
+    void testExtractCodeSameAsRegex() {
+        String[] tokens = {"```", "`", "\n", "\r\n", "\r", " ", "\t", "py", "x", "_", "\u2028", "é"};
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = random.nextInt(16); j > 0; j--) {
+                text.append(tokens[random.nextInt(tokens.length)]);
+            }
+            for (boolean detectSingleLineCode : new boolean[]{false, true}) {
+                assertThat(extractCode(text, detectSingleLineCode))
+                        .as("%s, %s", text, detectSingleLineCode)
+                        .isEqualTo(regexExtractCode(text.toString(), detectSingleLineCode));
+            }
+        }
+    }
+
+    @Test
+    void testExtractCodeFromPathologicalInput() {
+        // opening fences without closing fence, each one makes the regex scan the rest of the text.
+        String openings = "x```python\n".repeat(50_000);
+        // unbalanced fences and backticks.
+        String fences = "```python\n" + "x = 1\n".repeat(10) + "``` ".repeat(50_000);
+        String backticks = "`".repeat(200_000) + "a\n".repeat(100_000);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            assertThat(extractCode(openings)).isEmpty();
+            assertThat(extractCode(openings, true)).hasSize(49_999);
+            assertThat(extractCode(fences)).hasSize(1);
+            assertThat(extractCode(backticks, true)).isEmpty();
+        });
+        // the same shapes, small enough for the regex to agree in reasonable time.
+        String smallOpenings = "x```python\n".repeat(200);
+        assertThat(extractCode(smallOpenings, true)).isEqualTo(regexExtractCode(smallOpenings, true));
+    }
+}